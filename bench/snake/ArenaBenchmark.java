@@ -0,0 +1,68 @@
+package snake;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of one step of an arena full of greedy snakes.
+ *
+ * The board grows with the number of snakes so they are about as crowded
+ * in every run, and the arena is played for a while first so the snakes
+ * have grown tails. The time should grow linearly with the number of
+ * snakes.
+ *
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ArenaBenchmark {
+
+    private static final int TILES_PER_SNAKE = 400;
+    private static final int WARM_UP_TICKS = 1000;
+
+    @Param({"10", "100", "1000"})
+    public int snakes;
+
+    private Arena mArena;
+
+    /**
+     * Fills an arena with snakes and one fruit per snake, and plays it for a while.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        int side = (int) Math.sqrt(snakes * TILES_PER_SNAKE);
+        mArena = new Arena(side, side, snakes, 1);
+        for (int i = 0; i < snakes; i++) {
+            mArena.addSnake(new GreedyArenaController());
+        }
+        for (int i = 0; i < WARM_UP_TICKS; i++) {
+            mArena.step();
+        }
+    }
+
+    /**
+     * Simulates one step of all snakes.
+     * @return number of steps so far
+     */
+    @Benchmark
+    public long step() {
+        mArena.step();
+        return mArena.getTicks();
+    }
+}
@@ -0,0 +1,61 @@
+package snake;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the autopilot playing a game, one decision and step at a time.
+ *
+ * Most decisions follow a way found earlier, the others search the board,
+ * so the average covers both. A game that ends starts over with the same
+ * controller, which keeps its buffers.
+ *
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class AutopilotBenchmark {
+
+    @Param({"30x20", "200x200"})
+    public String board;
+
+    private Engine mEngine;
+    private AutopilotController mController;
+
+    /**
+     * Creates the game and the controller.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        mEngine = new Engine(BoardSize.width(board), BoardSize.height(board), 1);
+        mController = new AutopilotController();
+    }
+
+    /**
+     * Decides and takes one step.
+     * @return points of the game
+     */
+    @Benchmark
+    public int decideAndStep() {
+        if(!mEngine.step(mController.decide(mEngine))) {
+            mEngine.reset();
+        }
+        return mEngine.getPoints();
+    }
+}
@@ -0,0 +1,31 @@
+package snake;
+
+/**
+ * BoardSize reads board sizes given to benchmarks as "WIDTHxHEIGHT".
+ *
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+final class BoardSize {
+
+    private BoardSize() {
+    }
+
+    /**
+     * Gets the width of a board size.
+     * @param inSize size like 30x20
+     * @return number of tiles (x)
+     */
+    static int width(String inSize) {
+        return Integer.parseInt(inSize.substring(0, inSize.indexOf('x')));
+    }
+
+    /**
+     * Gets the height of a board size.
+     * @param inSize size like 30x20
+     * @return number of tiles (y)
+     */
+    static int height(String inSize) {
+        return Integer.parseInt(inSize.substring(inSize.indexOf('x') + 1));
+    }
+}
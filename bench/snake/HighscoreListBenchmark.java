@@ -0,0 +1,121 @@
+package snake;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the high score list, in memory and on disk.
+ * The files are written to a temporary folder that is removed afterwards.
+ *
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class HighscoreListBenchmark {
+
+    private File mFolder;
+    private String mPath;
+    private HighscoreList mList;
+    private int mScore;
+
+    /**
+     * Creates a full list and saves it once, so there is something to load.
+     * @throws IOException if the folder or file can not be created
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        mFolder = File.createTempFile("highscore", "");
+        mFolder.delete();
+        mFolder.mkdir();
+        mPath = mFolder.getPath() + File.separator;
+
+        mList = new HighscoreList(mPath);
+        for (int i = 1; i <= 10; i++) {
+            mList.add("Player " + i, i * 10);
+        }
+        mList.save();
+    }
+
+    /**
+     * Removes the temporary folder.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (File file : mFolder.listFiles()) {
+            file.delete();
+        }
+        mFolder.delete();
+    }
+
+    /**
+     * Checks scores both below and above the list.
+     * @return whether the score made the list
+     */
+    @Benchmark
+    public boolean isHighscore() {
+        mScore = (mScore + 7) % 120;
+        return mList.isHighscore(mScore);
+    }
+
+    /**
+     * Adds scores both below and above the list.
+     * @return the highest score
+     */
+    @Benchmark
+    public int add() {
+        mScore = (mScore + 7) % 120;
+        mList.add("Benchmark", mScore);
+        return mList.getHighestScore();
+    }
+
+    /**
+     * Saves the list to disk.
+     * @throws IOException if the file can not be written
+     */
+    @Benchmark
+    public void save() throws IOException {
+        mList.save();
+    }
+
+    /**
+     * Appends one score to the journal, compacting it now and then as
+     * the writer thread does, so the journal stays a realistic size.
+     * @throws IOException if the file can not be written
+     */
+    @Benchmark
+    public void append() throws IOException {
+        mScore = (mScore + 7) % 120;
+        mList.add("Benchmark", mScore);
+        mList.append(mList.getLeaderboard().getAround(mList.getLeaderboard().getCountAtLeast(mScore), 0, 0));
+        if(mList.getJournalSize() >= 1 << 16) {
+            mList.save();
+        }
+    }
+
+    /**
+     * Loads the list from disk.
+     * @return the loaded list
+     */
+    @Benchmark
+    public HighscoreList load() {
+        return HighscoreList.load(mPath);
+    }
+}
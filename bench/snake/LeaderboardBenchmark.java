@@ -0,0 +1,76 @@
+package snake;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the leaderboard with many scores already posted.
+ *
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class LeaderboardBenchmark {
+
+    @Param({"1000", "1000000"})
+    public int scores;
+
+    private Leaderboard mLeaderboard;
+    private GameRandom mRandom;
+
+    /**
+     * Posts random scores.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        mLeaderboard = new Leaderboard();
+        mRandom = new GameRandom(1);
+        for (int i = 0; i < scores; i++) {
+            mLeaderboard.submit("Player " + i, mRandom.nextInt(scores));
+        }
+    }
+
+    /**
+     * Posts a random score.
+     * @return rank of the score
+     */
+    @Benchmark
+    public int submit() {
+        return mLeaderboard.submit("Benchmark", mRandom.nextInt(scores));
+    }
+
+    /**
+     * Finds the rank of a random score.
+     * @return the rank
+     */
+    @Benchmark
+    public int getRank() {
+        return mLeaderboard.getRank(mRandom.nextInt(scores));
+    }
+
+    /**
+     * Gets the scores around a random rank.
+     * @return the scores
+     */
+    @Benchmark
+    public List<HighscoreItem> getAround() {
+        return mLeaderboard.getAround(1 + mRandom.nextInt(scores), 5, 5);
+    }
+}
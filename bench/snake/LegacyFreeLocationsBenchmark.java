@@ -0,0 +1,74 @@
+package snake;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the list copy the Board used to make every loop to find
+ * the free locations, kept as the baseline for OccupancyGridBenchmark.
+ * Large boards with long snakes take hours per call and are left out.
+ *
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class LegacyFreeLocationsBenchmark {
+
+    @Param({"30x20", "200x200"})
+    public String board;
+
+    @Param({"3", "1000"})
+    public int length;
+
+    private ArrayList<Point> mAllLocations, mSnakeLocations;
+
+    /**
+     * Fills the lists, the snake lies along the first rows.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        int width = BoardSize.width(board);
+        int height = BoardSize.height(board);
+
+        mAllLocations = new ArrayList();
+        for (int i = 0; i < width; i++) {
+            for (int j = 0; j < height; j++) {
+                mAllLocations.add(new Point(i, j));
+            }
+        }
+
+        mSnakeLocations = new ArrayList();
+        for (int i = 0; i < Math.min(length, width * height); i++) {
+            mSnakeLocations.add(new Point(i % width, i / width));
+        }
+    }
+
+    /**
+     * Rebuilds the list of free locations the way the Board used to do it.
+     * @return the free locations
+     */
+    @Benchmark
+    public ArrayList<Point> rebuild() {
+        ArrayList<Point> free = (ArrayList<Point>) mAllLocations.clone();
+        free.removeAll(mSnakeLocations);
+        return free;
+    }
+}
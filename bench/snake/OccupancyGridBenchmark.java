@@ -0,0 +1,110 @@
+package snake;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of keeping track of free tiles.
+ *
+ * The occupied tiles are spread randomly over the board, a tick frees the
+ * oldest one and occupies a random free one, which is what a moving snake
+ * does to the grid. A fill of 0.99 ignores the length and occupies all
+ * but one percent of the board, where picking a free tile by chance
+ * would almost never hit one. LegacyFreeLocationsBenchmark is the
+ * baseline it replaced.
+ *
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class OccupancyGridBenchmark {
+
+    @Param({"30x20", "200x200", "2000x2000", "10000x10000"})
+    public String board;
+
+    @Param({"3", "1000", "100000"})
+    public int length;
+
+    @Param({"0.5", "0.99"})
+    public double fill;
+
+    private OccupancyGrid mGrid;
+    private GameRandom mRandom;
+    private int[] mOccupied;
+    private int mOldest;
+
+    /**
+     * Occupies as many random tiles as the snake is long, at most half the
+     * board, or all but one percent of the board.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        mGrid = new OccupancyGrid(BoardSize.width(board), BoardSize.height(board));
+        mRandom = new GameRandom(1);
+        long tiles = (long) mGrid.getWidth() * mGrid.getHeight();
+        mOccupied = new int[fill < 0.99 ? (int) Math.min(length, tiles / 2) : (int) (tiles * fill)];
+
+        for (int i = 0; i < mOccupied.length; i++) {
+            mOccupied[i] = occupyRandom();
+        }
+    }
+
+    /**
+     * Occupies a random free tile.
+     * @return packed cell of the tile
+     */
+    private int occupyRandom() {
+        int cell = mGrid.getRandomFreeCell(mRandom);
+        mGrid.occupy(Cell.x(cell), Cell.y(cell), 1);
+        return cell;
+    }
+
+    /**
+     * Frees the oldest occupied tile and occupies a new one.
+     * @return packed cell of the new tile
+     */
+    @Benchmark
+    public int tick() {
+        int vacated = mOccupied[mOldest];
+        mGrid.free(Cell.x(vacated), Cell.y(vacated));
+        mOccupied[mOldest] = occupyRandom();
+        mOldest = (mOldest + 1) % mOccupied.length;
+        return mOccupied[mOldest];
+    }
+
+    /**
+     * Picks a random free tile.
+     * @return packed cell of the tile
+     */
+    @Benchmark
+    public int getRandomFreeCell() {
+        return mGrid.getRandomFreeCell(mRandom);
+    }
+
+    /**
+     * Frees the whole board, as done when a game is reset.
+     * Every benchmark gets its own setup, so the others are unaffected.
+     * @return number of free tiles
+     */
+    @Benchmark
+    public int clear() {
+        mGrid.clear();
+        return mGrid.getFreeCount();
+    }
+}
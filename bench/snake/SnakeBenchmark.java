@@ -0,0 +1,112 @@
+package snake;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of moving the snake and checking it for collisions.
+ *
+ * The registered snake runs straight ahead and wraps around the board,
+ * so on small boards a long snake lies on top of itself. That does not
+ * change what a step costs. The loose snake is not registered in a grid
+ * and circles a small square, it measures the walk over the whole tail
+ * that collide falls back to without a grid.
+ *
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SnakeBenchmark {
+
+    private static final int[] SQUARE = {
+        Snake.MOVE_RIGHT, Snake.MOVE_DOWN, Snake.MOVE_LEFT, Snake.MOVE_UP
+    };
+
+    @Param({"30x20", "200x200", "2000x2000"})
+    public String board;
+
+    @Param({"3", "1000", "100000"})
+    public int length;
+
+    private Snake mSnake, mLooseSnake;
+    private Fruit mFruit;
+
+    /**
+     * Builds snakes of the wanted length.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        int width = BoardSize.width(board);
+        int height = BoardSize.height(board);
+        OccupancyGrid grid = new OccupancyGrid(width, height);
+
+        mSnake = new Snake(width / 2, height / 2, Snake.MOVE_RIGHT);
+        mSnake.register(grid);
+        mFruit = new Fruit(0, 0);
+        mFruit.register(grid);
+
+        mLooseSnake = new Snake(width / 2, height / 2, Snake.MOVE_RIGHT);
+
+        for (int i = 3; i < length; i++) {
+            mSnake.grow();
+            mLooseSnake.grow();
+        }
+        for (int i = 0; i < length; i++) {
+            mSnake.update();
+            mLooseSnake.setDirection(SQUARE[i % SQUARE.length]);
+            mLooseSnake.update();
+        }
+    }
+
+    /**
+     * One move of the snake, including wrapping and updating the grid.
+     * @return whether the snake moved
+     */
+    @Benchmark
+    public boolean update() {
+        return mSnake.update();
+    }
+
+    /**
+     * Self collision check of a snake registered in a grid.
+     * @return whether the snake collided with itself
+     */
+    @Benchmark
+    public boolean collideSelf() {
+        return mSnake.collide(mSnake);
+    }
+
+    /**
+     * Collision check of a fruit against a snake registered in a grid.
+     * @return whether the fruit is on the snake
+     */
+    @Benchmark
+    public boolean collideFruit() {
+        return mSnake.collide(mFruit);
+    }
+
+    /**
+     * Collision check of a snake that is not registered in a grid.
+     * @return whether the snake collided with itself
+     */
+    @Benchmark
+    public boolean collideLoose() {
+        return mLooseSnake.collide(mLooseSnake);
+    }
+}
@@ -0,0 +1,95 @@
+package snake;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of taking and restoring snapshots of a game.
+ *
+ * The game is played by a greedy bot for a while first so the snake has
+ * a tail. Most of a snapshot is the list of free tiles, so its cost
+ * follows the size of the board more than the length of the snake.
+ *
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SnapshotBenchmark {
+
+    private static final int WARM_UP_TICKS = 2000;
+
+    @Param({"30x20", "200x200"})
+    public String board;
+
+    private Engine mEngine;
+    private ByteBuffer mBuffer;
+    private RewindBuffer mRewind;
+
+    /**
+     * Plays a game for a while and takes one snapshot to restore.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        mEngine = new Engine(BoardSize.width(board), BoardSize.height(board), 1);
+        GreedyController controller = new GreedyController();
+        for (int i = 0; i < WARM_UP_TICKS && !mEngine.isDead(); i++) {
+            mEngine.step(controller.decide(mEngine));
+        }
+
+        mBuffer = ByteBuffer.allocate(mEngine.getSnapshotSize());
+        mRewind = new RewindBuffer(100);
+        System.out.println(board + ", " + mEngine.getSnake().getCellCount() + " cells, "
+                + mEngine.getSnapshotSize() + " bytes");
+    }
+
+    /**
+     * Writes a snapshot into a reused buffer.
+     * @return the buffer
+     */
+    @Benchmark
+    public ByteBuffer snapshot() {
+        mBuffer.clear();
+        mEngine.snapshot(mBuffer);
+        return mBuffer;
+    }
+
+    /**
+     * Restores the game from a snapshot.
+     * @return the game
+     */
+    @Benchmark
+    public Engine restore() {
+        mBuffer.clear();
+        mEngine.snapshot(mBuffer);
+        mBuffer.flip();
+        mEngine.restore(mBuffer);
+        return mEngine;
+    }
+
+    /**
+     * Saves a snapshot in a rolling window of a hundred.
+     * @return number of snapshots kept
+     */
+    @Benchmark
+    public int save() {
+        mRewind.save(mEngine);
+        return mRewind.size();
+    }
+}
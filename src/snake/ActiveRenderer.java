@@ -0,0 +1,247 @@
+package snake;
+
+import java.awt.AWTException;
+import java.awt.BufferCapabilities;
+import java.awt.Canvas;
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Image;
+import java.awt.ImageCapabilities;
+import java.awt.Toolkit;
+import java.awt.image.BufferStrategy;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * ActiveRenderer draws the game on its own thread, instead of waiting for
+ * Swing to call paint.
+ *
+ * It draws the latest state committed by the game loop into a page
+ * flipping buffer strategy, at most a fixed number of frames per second
+ * and lined up to the frame period. The head is drawn between its last
+ * two tiles according to how far the game is into the next step, so the
+ * snake glides instead of jumping a tile per step. Only the tiles in the
+ * view of the state are drawn, the rest of the snake is skipped.
+ *
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class ActiveRenderer extends Canvas implements Runnable {
+
+    private static final long serialVersionUID = 8066707186494880062L;
+
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    private int mColumns, mRows;
+    private SpriteAtlas mSprites;
+    private Image[] mImages;
+    private BufferedImage mBackground;
+    private int mTileSize;
+    private FrameState.Exchange mExchange;
+    private GameClock mClock;
+    private GameMetrics mMetrics;
+    private long mFrameNanos;
+    private volatile boolean mRunning, mExposed;
+    private Thread mThread;
+
+    /**
+     * Constructor of the ActiveRenderer.
+     * @param inColumns number of tiles shown (x)
+     * @param inRows number of tiles shown (y)
+     * @param inSprites images of the game
+     * @param inExchange where the game loop commits its states
+     * @param inClock clock of the game loop
+     * @param inFramesPerSecond frame cap
+     * @param inMetrics where frame times are recorded
+     */
+    public ActiveRenderer(int inColumns, int inRows, SpriteAtlas inSprites, FrameState.Exchange inExchange,
+            GameClock inClock, int inFramesPerSecond, GameMetrics inMetrics) {
+        mColumns = inColumns;
+        mRows = inRows;
+        mSprites = inSprites;
+        mExchange = inExchange;
+        mClock = inClock;
+        mMetrics = inMetrics;
+        mFrameNanos = NANOS_PER_SECOND / inFramesPerSecond;
+    }
+
+    /**
+     * Starts the render thread once the canvas can be drawn on.
+     */
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        createStrategy();
+
+        mRunning = true;
+        mThread = new Thread(this, "Snake renderer");
+        mThread.setDaemon(true);
+        mThread.start();
+    }
+
+    /**
+     * Stops the render thread when the canvas goes away.
+     */
+    @Override
+    public void removeNotify() {
+        mRunning = false;
+        mThread.interrupt();
+        try {
+            mThread.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        super.removeNotify();
+    }
+
+    /**
+     * Makes the render thread draw a frame, when the window was uncovered.
+     * @param g graphics context, not used
+     */
+    @Override
+    public void paint(Graphics g) {
+        mExposed = true;
+    }
+
+    /**
+     * Leaves the canvas as it is, all drawing is done by the render thread.
+     * @param g graphics context, not used
+     */
+    @Override
+    public void update(Graphics g) {
+        paint(g);
+    }
+
+    /**
+     * Creates a page flipping buffer strategy, or the best one available.
+     */
+    private void createStrategy() {
+        try {
+            createBufferStrategy(2, new BufferCapabilities(new ImageCapabilities(true),
+                    new ImageCapabilities(true), BufferCapabilities.FlipContents.UNDEFINED));
+        } catch (AWTException ex) {
+            createBufferStrategy(2);
+        }
+    }
+
+    /**
+     * The render loop, name required by the Runnable interface.
+     */
+    @Override
+    public void run() {
+        BufferStrategy strategy = getBufferStrategy();
+        long lastTick = -1;
+        long nextFrame = System.nanoTime();
+
+        while(mRunning) {
+            FrameState state = mExchange.latest();
+            double alpha = Math.min(1.0, (double) (System.nanoTime() - state.getCommitTime()) / mClock.getTickNanos());
+
+            // only draw when something moved, or the window needs it
+            if(state.getTick() != lastTick || alpha < 1.0 || mExposed) {
+                long start = System.nanoTime();
+                mExposed = false;
+                lastTick = state.getTick();
+
+                do {
+                    do {
+                        Graphics g = strategy.getDrawGraphics();
+                        render(g, state, alpha);
+                        g.dispose();
+                    } while(strategy.contentsRestored());
+                    strategy.show();
+                } while(strategy.contentsLost());
+                Toolkit.getDefaultToolkit().sync();
+
+                frameDone(System.nanoTime() - start);
+            }
+
+            // wait for the start of the next frame period
+            nextFrame += mFrameNanos;
+            long now = System.nanoTime();
+            if(nextFrame < now) {
+                nextFrame = now - (now - nextFrame) % mFrameNanos + mFrameNanos;
+            }
+            try {
+                TimeUnit.NANOSECONDS.sleep(nextFrame - now);
+            } catch (InterruptedException ex) {
+                if(mRunning) {
+                    Logger.getLogger(ActiveRenderer.class.getName()).log(Level.SEVERE, null, ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Draws one frame, with tiles as large as fits the canvas.
+     * @param g graphics context
+     * @param inState state to draw
+     * @param inAlpha how far the game is into the next step, between 0 and 1
+     */
+    private void render(Graphics g, FrameState inState, double inAlpha) {
+        int size = SpriteAtlas.fitTileSize(getWidth(), getHeight(), mColumns, mRows);
+        if(mBackground == null || size != mTileSize) {
+            mTileSize = size;
+            mImages = mSprites.getSprites(getGraphicsConfiguration(), size);
+            mBackground = mSprites.createBackground(getGraphicsConfiguration(), size, mColumns, mRows);
+        }
+        g.drawImage(mBackground, 0, 0, mColumns * size, mRows * size, null);
+
+        // the canvas outside the view is left black
+        g.setColor(Color.black);
+        g.fillRect(mColumns * size, 0, getWidth() - mColumns * size, getHeight());
+        g.fillRect(0, mRows * size, mColumns * size, getHeight() - mRows * size);
+
+        int originX = Cell.x(inState.getOrigin());
+        int originY = Cell.y(inState.getOrigin());
+        int[] cells = inState.getCells();
+        for (int i = 1; i < inState.getCellCount(); i++) {
+            drawTile(g, mImages[SpriteAtlas.BODY], Cell.x(cells[i]) - originX, Cell.y(cells[i]) - originY);
+        }
+
+        int fruit = inState.getFruit();
+        drawTile(g, mImages[SpriteAtlas.FOOD], Cell.x(fruit) - originX, Cell.y(fruit) - originY);
+
+        int[] items = inState.getItemCells();
+        int[] types = inState.getItemTypes();
+        for (int i = 0; i < inState.getItemCount(); i++) {
+            Image image = types[i] == Items.BONUS ? mImages[SpriteAtlas.BONUS] : mImages[SpriteAtlas.FOOD];
+            drawTile(g, image, Cell.x(items[i]) - originX, Cell.y(items[i]) - originY);
+        }
+
+        // glide the head from its last tile, unless it wrapped around the edge
+        int head = cells[0];
+        int previous = inState.getPreviousHead();
+        int x = (Cell.x(head) - originX) * size;
+        int y = (Cell.y(head) - originY) * size;
+        if(previous != Cell.NONE && Math.abs(Cell.x(head) - Cell.x(previous)) + Math.abs(Cell.y(head) - Cell.y(previous)) == 1) {
+            x = (int) Math.round((Cell.x(previous) - originX) * size + (x - (Cell.x(previous) - originX) * size) * inAlpha);
+            y = (int) Math.round((Cell.y(previous) - originY) * size + (y - (Cell.y(previous) - originY) * size) * inAlpha);
+        }
+        g.drawImage(mImages[SpriteAtlas.HEAD], x, y, size, size, null);
+    }
+
+    /**
+     * Draws an image on a tile of the view, tiles outside it are skipped.
+     * @param g graphics context
+     * @param inImage image to draw
+     * @param inColumn column in the view
+     * @param inRow row in the view
+     */
+    private void drawTile(Graphics g, Image inImage, int inColumn, int inRow) {
+        if(inColumn >= 0 && inColumn < mColumns && inRow >= 0 && inRow < mRows) {
+            g.drawImage(inImage, inColumn * mTileSize, inRow * mTileSize, mTileSize, mTileSize, null);
+        }
+    }
+
+    /**
+     * Counts a frame for the frame rate and records how long it took.
+     * @param inNanos time it took to draw the frame
+     */
+    private void frameDone(long inNanos) {
+        mClock.frameRendered();
+        mMetrics.frameDone(inNanos);
+    }
+}
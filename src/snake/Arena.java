@@ -0,0 +1,312 @@
+package snake;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+/**
+ * Arena holds a game with many snakes and many fruits on one board,
+ * without any window.
+ *
+ * All snakes share one occupancy grid, which is the only thing collisions
+ * are checked against: a head moving onto a tile finds out what was there
+ * with one lookup, so a step takes time in proportion to the number of
+ * snakes and never compares snakes with each other. Every step first moves
+ * all tails and then all heads, so a head may follow any tail. Two heads
+ * meeting on a tile both die. Dead snakes leave the board and come back
+ * on a random free tile in the next step.
+ *
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class Arena {
+
+    private int mWidth, mHeight;
+    private GameRandom mRandom;
+    private OccupancyGrid mGrid;
+    private Fruit[] mFruits;
+    private ArrayList<Snake> mSnakes = new ArrayList();
+    private ArrayList<ArenaController> mControllers = new ArrayList();
+    private IdentityHashMap<Snake, Integer> mIndexes = new IdentityHashMap();
+    private int[] mPoints = new int[16];
+    private int[] mDeaths = new int[16];
+    private boolean[] mMoved = new boolean[16];
+    private boolean[] mDying = new boolean[16];
+    private long mTicks;
+
+    /**
+     * Constructor of the Arena, without any snakes.
+     * @param inWidth number of tiles (x)
+     * @param inHeight number of tiles (y)
+     * @param inFruits number of fruits
+     * @param inSeed seed for the random generator
+     */
+    public Arena(int inWidth, int inHeight, int inFruits, long inSeed) {
+        mWidth = inWidth;
+        mHeight = inHeight;
+        mRandom = new GameRandom(inSeed);
+        mGrid = new OccupancyGrid(inWidth, inHeight);
+
+        mFruits = new Fruit[inFruits];
+        for (int i = 0; i < inFruits; i++) {
+            Point location = mGrid.getRandomFree(mRandom);
+            mFruits[i] = new Fruit(location.x, location.y);
+            mFruits[i].register(mGrid);
+        }
+    }
+
+    /**
+     * Adds a snake on a random free tile.
+     * @param inController steers the snake, or null if a person does
+     * @return index of the snake
+     */
+    public int addSnake(ArenaController inController) {
+        int index = add(inController);
+        spawn(index);
+        return index;
+    }
+
+    /**
+     * Adds a snake on a tile, it comes back on a random tile when it dies.
+     * @param inController steers the snake, or null if a person does
+     * @param inX horizontal position
+     * @param inY vertical position
+     * @param inDirection initial direction
+     * @return index of the snake
+     */
+    public int addSnake(ArenaController inController, int inX, int inY, int inDirection) {
+        int index = add(inController);
+        place(index, new Snake(inX, inY, inDirection));
+        return index;
+    }
+
+    /**
+     * Makes room for one more snake.
+     * @param inController steers the snake, or null if a person does
+     * @return index of the snake
+     */
+    private int add(ArenaController inController) {
+        int index = mSnakes.size();
+        mSnakes.add(null);
+        mControllers.add(inController);
+
+        if(index == mPoints.length) {
+            int capacity = index * 2;
+            mPoints = Arrays.copyOf(mPoints, capacity);
+            mDeaths = Arrays.copyOf(mDeaths, capacity);
+            mMoved = Arrays.copyOf(mMoved, capacity);
+            mDying = Arrays.copyOf(mDying, capacity);
+        }
+        return index;
+    }
+
+    /**
+     * Puts a new snake on a random free tile, if there is one.
+     * @param inIndex index of the snake
+     */
+    private void spawn(int inIndex) {
+        Point location = mGrid.getRandomFree(mRandom);
+        if(location != null) {
+            place(inIndex, new Snake(location.x, location.y, 1 + mRandom.nextInt(4)));
+        }
+    }
+
+    /**
+     * Puts a snake on the board.
+     * @param inIndex index of the snake
+     * @param inSnake the snake
+     */
+    private void place(int inIndex, Snake inSnake) {
+        inSnake.register(mGrid);
+        mSnakes.set(inIndex, inSnake);
+        mIndexes.put(inSnake, inIndex);
+    }
+
+    /**
+     * Turns a snake steered by a person. Turns straight back are ignored.
+     * @param inIndex index of the snake
+     * @param inDirection new direction
+     */
+    public void steer(int inIndex, int inDirection) {
+        Snake snake = mSnakes.get(inIndex);
+        if(snake != null) {
+            snake.setDirection(inDirection);
+        }
+    }
+
+    /**
+     * Simulates one step of the game for all snakes.
+     */
+    public void step() {
+        int count = mSnakes.size();
+
+        for (int i = 0; i < count; i++) {
+            Snake snake = mSnakes.get(i);
+            ArenaController controller = mControllers.get(i);
+            if(snake != null && controller != null) {
+                int direction = controller.decide(this, i);
+                if(direction != Engine.KEEP_DIRECTION) {
+                    snake.setDirection(direction);
+                }
+            }
+        }
+
+        // all tails first, so no head runs into a tile that is being left
+        for (int i = 0; i < count; i++) {
+            Snake snake = mSnakes.get(i);
+            mMoved[i] = snake != null && snake.moveTail();
+            mDying[i] = false;
+        }
+
+        for (int i = 0; i < count; i++) {
+            if(mMoved[i]) {
+                mSnakes.get(i).moveHead();
+            }
+        }
+
+        for (int i = 0; i < count; i++) {
+            if(mMoved[i]) {
+                resolve(i);
+            }
+        }
+
+        for (int i = 0; i < count; i++) {
+            if(mDying[i]) {
+                Snake snake = mSnakes.get(i);
+                snake.unregister();
+                mIndexes.remove(snake);
+                mSnakes.set(i, null);
+                mPoints[i] = 0;
+                mDeaths[i]++;
+            } else if(mSnakes.get(i) == null) {
+                spawn(i);
+            }
+        }
+
+        mTicks++;
+    }
+
+    /**
+     * Handles what the head of a snake ran into, marking the snakes that die.
+     * @param inIndex index of the snake
+     */
+    private void resolve(int inIndex) {
+        Snake snake = mSnakes.get(inIndex);
+        Collideable hit = snake.getHit();
+
+        if(hit instanceof Fruit) {
+            snake.grow();
+            mPoints[inIndex]++;
+
+            Point location = mGrid.getRandomFree(mRandom);
+            if(location != null) {
+                ((Fruit) hit).setLocation(location);
+            }
+        } else if(hit instanceof Snake) {
+            mDying[inIndex] = true;
+
+            // two heads on the same tile, both die
+            if(hit != snake && ((Snake) hit).getLocation().equals(snake.getLocation())) {
+                mDying[mIndexes.get((Snake) hit)] = true;
+            }
+        }
+    }
+
+    /**
+     * Getter for a snake
+     * @param inIndex index of the snake
+     * @return the snake, or null if it died and is waiting to come back
+     */
+    public Snake getSnake(int inIndex) {
+        return mSnakes.get(inIndex);
+    }
+
+    /**
+     * Getter for the number of snakes, dead or alive
+     * @return number of snakes
+     */
+    public int getSnakeCount() {
+        return mSnakes.size();
+    }
+
+    /**
+     * Gets the number of tiles taken by all snakes.
+     * @return number of heads and tail tiles
+     */
+    public int getSegmentCount() {
+        int segments = 0;
+        for (Snake snake : mSnakes) {
+            if(snake != null) {
+                segments += snake.getCellCount();
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * Getter for points of a snake
+     * @param inIndex index of the snake
+     * @return fruits eaten since the snake last died
+     */
+    public int getPoints(int inIndex) {
+        return mPoints[inIndex];
+    }
+
+    /**
+     * Getter for deaths of a snake
+     * @param inIndex index of the snake
+     * @return number of times the snake died
+     */
+    public int getDeaths(int inIndex) {
+        return mDeaths[inIndex];
+    }
+
+    /**
+     * Getter for the fruits
+     * @return the fruits, not to be changed
+     */
+    public Fruit[] getFruits() {
+        return mFruits;
+    }
+
+    /**
+     * Getter for the occupancy grid
+     * @return grid shared by all snakes and fruits
+     */
+    public OccupancyGrid getGrid() {
+        return mGrid;
+    }
+
+    /**
+     * Getter for the random generator
+     * @return random generator of the arena
+     */
+    public GameRandom getRandom() {
+        return mRandom;
+    }
+
+    /**
+     * Getter for the number of simulated steps
+     * @return steps since the arena was created
+     */
+    public long getTicks() {
+        return mTicks;
+    }
+
+    /**
+     * Getter for width
+     * @return number of tiles (x)
+     */
+    public int getWidth() {
+        return mWidth;
+    }
+
+    /**
+     * Getter for height
+     * @return number of tiles (y)
+     */
+    public int getHeight() {
+        return mHeight;
+    }
+}
@@ -0,0 +1,24 @@
+package snake;
+
+/**
+ * ArenaController steers one snake in an Arena. Snakes without a
+ * controller are steered by people, through Arena.steer.
+ * 
+ * Every snake gets its own controller, created with the no argument
+ * constructor, so it may keep state between steps.
+ * 
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public interface ArenaController {
+    
+    /**
+     * Decides which way a snake should go in the next step.
+     * 
+     * @param inArena the arena
+     * @param inSnake index of the snake
+     * @return new direction, or Engine.KEEP_DIRECTION
+     */
+    int decide(Arena inArena, int inSnake);
+    
+}
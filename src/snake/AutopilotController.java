@@ -0,0 +1,532 @@
+package snake;
+
+import java.awt.Point;
+import java.util.Arrays;
+
+/**
+ * AutopilotController plays the game well enough to be used as a demo
+ * and as the baseline bot of the batch mode and load tests.
+ *
+ * It searches for the shortest way to the fruit with a breadth first
+ * search over the board, where a tile of the tail counts as free from the
+ * step the tail has left it. Since every step costs the same, a plain
+ * breadth first search finds the shortest way just like A* would. A way
+ * is only taken if the snake can still reach its own tail after eating,
+ * otherwise the snake follows its tail until the fruit is safe to get.
+ * When the snake fills a large part of the board it goes around a cycle
+ * through every tile instead, which it can keep doing until the board is full.
+ *
+ * A way that was found is followed until the fruit moves, so most steps
+ * need no search at all. All search buffers are int arrays with one
+ * entry per tile, created once, and tiles are marked with a stamp that
+ * is increased for every search instead of clearing the arrays, so a
+ * decision allocates nothing.
+ *
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class AutopilotController implements Controller {
+
+    private static final int[] DIRECTIONS = {
+        Snake.MOVE_UP, Snake.MOVE_DOWN, Snake.MOVE_LEFT, Snake.MOVE_RIGHT
+    };
+
+    /**
+     * Part of the board the snake has to fill before it goes around the cycle.
+     */
+    private static final double CYCLE_FILL = 0.5;
+
+    private int mWidth, mHeight;
+
+    // stamp of the search, the stamp the snake is marked with,
+    // and per tile the stamp it was last marked with
+    private int mStamp, mBodyMark;
+    private int[] mBodyStamp, mVisitStamp;
+
+    // per tile, the step from which the snake is off it, and the search results
+    private int[] mFreeAt, mDistance, mParent;
+    private int[] mQueue;
+
+    // the snake after following a way, from the head back
+    private int[] mBody;
+
+    // the next tile of the cycle, or null if the board has no cycle
+    private int[] mCycle;
+
+    // the way being followed
+    private int[] mPath;
+    private int mPathLength, mPathIndex, mPathTarget;
+
+    /**
+     * Decides which way the snake should go in the next step.
+     *
+     * @param inEngine the game being played
+     * @return new direction, or Engine.KEEP_DIRECTION if nothing is safe
+     */
+    @Override
+    public int decide(Engine inEngine) {
+        OccupancyGrid grid = inEngine.getGrid();
+        if(mBodyStamp == null || grid.getWidth() != mWidth || grid.getHeight() != mHeight) {
+            allocate(grid.getWidth(), grid.getHeight());
+        }
+
+        Snake snake = inEngine.getSnake();
+        Point location = snake.getLocation();
+        int head = location.y * mWidth + location.x;
+        Point fruitLocation = inEngine.getFruit().getLocation();
+        int fruit = fruitLocation.y * mWidth + fruitLocation.x;
+
+        // keep following the way that was found, if the game went as planned
+        if(mPathIndex < mPathLength && mPathTarget == fruit
+                && head == (mPathIndex == 0 ? mPath[mPathLength] : mPath[mPathIndex - 1])) {
+            return directionTo(head, mPath[mPathIndex++]);
+        }
+        mPathLength = 0;
+        mPathIndex = 0;
+
+        markBody(snake);
+
+        if(mCycle != null && snake.getCellCount() >= mWidth * mHeight * CYCLE_FILL) {
+            if(isCycleClear(head, snake.getCellCount())) {
+                return directionTo(head, mCycle[head]);
+            }
+
+            // not along the cycle yet, get onto it whenever that is safe
+            int next = mCycle[head];
+            if(isFreeAt(next, 1) && next != fruit) {
+                mPath[0] = next;
+                mPath[1] = head;
+                mPathLength = 1;
+                boolean safe = isSafe(snake, head, 0);
+                mPathLength = 0;
+                if(safe) {
+                    return directionTo(head, next);
+                }
+                markBody(snake);
+            }
+        }
+
+        if(search(head, fruit, snake.getDirection())) {
+            if(isSafe(snake, head, 1)) {
+                return directionTo(head, mPath[mPathIndex++]);
+            }
+            mPathLength = 0;
+            markBody(snake);
+        }
+
+        // wait for the fruit to become safe by following the tail
+        int tail = snake.getTailLength() > 0 ? snake.getTailCell(0) : Cell.NONE;
+        if(tail != Cell.NONE) {
+            int tailTile = Cell.y(tail) * mWidth + Cell.x(tail);
+            if(search(head, tailTile, snake.getDirection())) {
+                int next = mPath[0];
+                mPathLength = 0;
+                return directionTo(head, next);
+            }
+        }
+
+        return largestSpace(head, snake.getDirection());
+    }
+
+    /**
+     * Creates the buffers for a board.
+     * @param inWidth number of tiles (x)
+     * @param inHeight number of tiles (y)
+     */
+    private void allocate(int inWidth, int inHeight) {
+        mWidth = inWidth;
+        mHeight = inHeight;
+        int tiles = inWidth * inHeight;
+
+        mStamp = 0;
+        mBodyStamp = new int[tiles];
+        mVisitStamp = new int[tiles];
+        mFreeAt = new int[tiles];
+        mDistance = new int[tiles];
+        mParent = new int[tiles];
+        mQueue = new int[tiles];
+        mBody = new int[tiles + 1];
+        mPath = new int[tiles + 1];
+        mPathLength = 0;
+        mPathIndex = 0;
+        mCycle = createCycle(inWidth, inHeight);
+    }
+
+    /**
+     * Gets a new stamp.
+     * @return stamp no tile is marked with
+     */
+    private int nextStamp() {
+        return ++mStamp;
+    }
+
+    /**
+     * Gets the number of steps the tail will still grow without moving.
+     * @param inSnake the snake
+     * @return steps of growth left
+     */
+    private int getGrowth(Snake inSnake) {
+        return inSnake.getLength() - inSnake.getTailLength();
+    }
+
+    /**
+     * Marks the tiles of the snake with the step from which they are free.
+     * The end of the tail leaves its tile in the first step, unless the
+     * snake is still growing.
+     * @param inSnake the snake
+     */
+    private void markBody(Snake inSnake) {
+        // a decision uses a few stamps, start over well before they run out
+        if(mStamp > Integer.MAX_VALUE - 1024) {
+            mStamp = 0;
+            Arrays.fill(mBodyStamp, 0);
+            Arrays.fill(mVisitStamp, 0);
+        }
+        int stamp = nextStamp();
+        mBodyMark = stamp;
+        int growth = getGrowth(inSnake);
+        int tailLength = inSnake.getTailLength();
+
+        for (int i = 0; i < tailLength; i++) {
+            int cell = inSnake.getTailCell(i);
+            int tile = Cell.y(cell) * mWidth + Cell.x(cell);
+            mBodyStamp[tile] = stamp;
+            mFreeAt[tile] = i + 1 + growth;
+        }
+        Point head = inSnake.getLocation();
+        int tile = head.y * mWidth + head.x;
+        mBodyStamp[tile] = stamp;
+        mFreeAt[tile] = tailLength + 1 + growth;
+    }
+
+    /**
+     * Checks whether the head may be on a tile at a step.
+     * @param inTile the tile
+     * @param inStep the step, counted from now
+     * @return true if the snake is off the tile by then
+     */
+    private boolean isFreeAt(int inTile, int inStep) {
+        return mBodyStamp[inTile] != mBodyMark || mFreeAt[inTile] <= inStep;
+    }
+
+    /**
+     * Checks whether the snake can go around the cycle from its head
+     * without running into itself, which it can once it lies along the cycle.
+     * @param inHead tile of the head
+     * @param inCells number of tiles of the snake
+     * @return true if the cycle is clear for as many steps as the snake is long
+     */
+    private boolean isCycleClear(int inHead, int inCells) {
+        int tile = inHead;
+        for (int step = 1; step <= inCells; step++) {
+            tile = mCycle[tile];
+            if(!isFreeAt(tile, step)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the tile next to a tile, wrapping around the edges.
+     * @param inTile the tile
+     * @param inDirection direction to go
+     * @return the tile next to it
+     */
+    private int neighbour(int inTile, int inDirection) {
+        int x = inTile % mWidth;
+        int y = inTile / mWidth;
+        switch(inDirection) {
+            case Snake.MOVE_DOWN:
+                y = y + 1 == mHeight ? 0 : y + 1;
+                break;
+            case Snake.MOVE_LEFT:
+                x = x == 0 ? mWidth - 1 : x - 1;
+                break;
+            case Snake.MOVE_RIGHT:
+                x = x + 1 == mWidth ? 0 : x + 1;
+                break;
+            case Snake.MOVE_UP:
+                y = y == 0 ? mHeight - 1 : y - 1;
+                break;
+        }
+        return y * mWidth + x;
+    }
+
+    /**
+     * Gets the direction from a tile to the tile next to it.
+     * @param inFrom the tile
+     * @param inTo a tile next to it
+     * @return direction
+     */
+    private int directionTo(int inFrom, int inTo) {
+        for (int direction : DIRECTIONS) {
+            if(neighbour(inFrom, direction) == inTo) {
+                return direction;
+            }
+        }
+        return Engine.KEEP_DIRECTION;
+    }
+
+    /**
+     * Checks whether a direction turns straight back.
+     * @param inDirection direction of the snake
+     * @param inTurn direction to go
+     * @return true if it is not allowed
+     */
+    private static boolean isReverse(int inDirection, int inTurn) {
+        int combo = inDirection + inTurn;
+        return combo == 3 || combo == 7;
+    }
+
+    /**
+     * Searches for the shortest way from the head to a tile, avoiding the
+     * snake as it is marked. The way is put in the path, with the head
+     * after its last tile.
+     * @param inHead tile of the head
+     * @param inTarget tile to go to
+     * @param inDirection direction of the snake
+     * @return true if a way was found
+     */
+    private boolean search(int inHead, int inTarget, int inDirection) {
+        int visit = nextStamp();
+        int head = 0, tail = 0;
+
+        mVisitStamp[inHead] = visit;
+        mDistance[inHead] = 0;
+        mQueue[tail++] = inHead;
+
+        while(head < tail) {
+            int tile = mQueue[head++];
+            int distance = mDistance[tile] + 1;
+
+            for (int direction : DIRECTIONS) {
+                if(tile == inHead && isReverse(inDirection, direction)) {
+                    continue;
+                }
+                int next = neighbour(tile, direction);
+                if(mVisitStamp[next] == visit) {
+                    continue;
+                }
+                // a tile of the snake may be seen again later, when it is free
+                if(mBodyStamp[next] == mBodyMark && mFreeAt[next] > distance) {
+                    continue;
+                }
+
+                mVisitStamp[next] = visit;
+                mDistance[next] = distance;
+                mParent[next] = tile;
+                if(next == inTarget) {
+                    storePath(inHead, inTarget, distance);
+                    return true;
+                }
+                mQueue[tail++] = next;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Stores the way to a tile found by search.
+     * @param inHead tile of the head
+     * @param inTarget the tile
+     * @param inLength number of steps
+     */
+    private void storePath(int inHead, int inTarget, int inLength) {
+        int tile = inTarget;
+        for (int i = inLength - 1; i >= 0; i--) {
+            mPath[i] = tile;
+            tile = mParent[tile];
+        }
+        mPath[inLength] = inHead;
+        mPathLength = inLength;
+        mPathIndex = 0;
+        mPathTarget = inTarget;
+    }
+
+    /**
+     * Checks whether the snake can still follow its tail after taking
+     * the way being planned. The snake is marked as it would be then.
+     * @param inSnake the snake
+     * @param inHead tile of the head
+     * @param inEaten 1 if the way ends on the fruit, 0 if it does not
+     * @return true if the way is safe to take
+     */
+    private boolean isSafe(Snake inSnake, int inHead, int inEaten) {
+        // the snake after the way, from the new head back to the end of the tail
+        int count = 0;
+        for (int i = mPathLength - 1; i >= 0; i--) {
+            mBody[count++] = mPath[i];
+        }
+        mBody[count++] = inHead;
+        for (int i = inSnake.getTailLength() - 1; i >= 0 && count < mBody.length; i--) {
+            int cell = inSnake.getTailCell(i);
+            mBody[count++] = Cell.y(cell) * mWidth + Cell.x(cell);
+        }
+
+        // the tail grows while it has growth left, and one more for a fruit
+        int tailLength = Math.min(inSnake.getLength(), inSnake.getTailLength() + mPathLength);
+        int length = Math.min(1 + tailLength, count);
+        int growth = inSnake.getLength() + inEaten - tailLength;
+        if(length <= 2) {
+            return true;
+        }
+
+        mBodyMark = nextStamp();
+        for (int i = 0; i < length; i++) {
+            int tile = mBody[i];
+            mBodyStamp[tile] = mBodyMark;
+            mFreeAt[tile] = length - i + growth;
+        }
+
+        return canFollowTail(mBody[0], directionTo(mBody[1], mBody[0]));
+    }
+
+    /**
+     * Searches from the head for a tile of the snake that the tail has
+     * left by the time the head gets there. From such a tile the head can
+     * keep following the tail.
+     * @param inHead tile of the head
+     * @param inDirection direction of the snake
+     * @return true if such a tile can be reached
+     */
+    private boolean canFollowTail(int inHead, int inDirection) {
+        int visit = nextStamp();
+        int head = 0, tail = 0;
+
+        mVisitStamp[inHead] = visit;
+        mDistance[inHead] = 0;
+        mQueue[tail++] = inHead;
+
+        while(head < tail) {
+            int tile = mQueue[head++];
+            int distance = mDistance[tile] + 1;
+
+            for (int direction : DIRECTIONS) {
+                if(tile == inHead && isReverse(inDirection, direction)) {
+                    continue;
+                }
+                int next = neighbour(tile, direction);
+                if(mVisitStamp[next] == visit) {
+                    continue;
+                }
+                if(mBodyStamp[next] == mBodyMark) {
+                    if(mFreeAt[next] <= distance) {
+                        return true;
+                    }
+                    continue;
+                }
+
+                mVisitStamp[next] = visit;
+                mDistance[next] = distance;
+                mQueue[tail++] = next;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Picks the direction with the most free tiles reachable, when
+     * neither the fruit nor the tail can be reached.
+     * @param inHead tile of the head
+     * @param inDirection direction of the snake
+     * @return direction, or Engine.KEEP_DIRECTION if every direction is blocked
+     */
+    private int largestSpace(int inHead, int inDirection) {
+        int bodyStamp = mBodyMark;
+        int best = Engine.KEEP_DIRECTION;
+        int bestSpace = 0;
+
+        for (int direction : DIRECTIONS) {
+            int start = neighbour(inHead, direction);
+            if(isReverse(inDirection, direction)
+                    || (mBodyStamp[start] == bodyStamp && mFreeAt[start] > 1)) {
+                continue;
+            }
+
+            // fill from the tile, counting what can be reached
+            int visit = nextStamp();
+            int head = 0, tail = 0;
+            mVisitStamp[start] = visit;
+            mQueue[tail++] = start;
+            while(head < tail) {
+                int tile = mQueue[head++];
+                for (int turn : DIRECTIONS) {
+                    int next = neighbour(tile, turn);
+                    if(mVisitStamp[next] != visit && mBodyStamp[next] != bodyStamp) {
+                        mVisitStamp[next] = visit;
+                        mQueue[tail++] = next;
+                    }
+                }
+            }
+
+            if(tail > bestSpace) {
+                bestSpace = tail;
+                best = direction;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Creates a cycle through every tile of a board. Boards where both
+     * sides are odd get no cycle.
+     * @param inWidth number of tiles (x)
+     * @param inHeight number of tiles (y)
+     * @return the next tile of every tile, or null
+     */
+    static int[] createCycle(int inWidth, int inHeight) {
+        if(inHeight % 2 == 0 && inWidth >= 2) {
+            return createRowCycle(inWidth, inHeight, false);
+        } else if(inWidth % 2 == 0 && inHeight >= 2) {
+            return createRowCycle(inHeight, inWidth, true);
+        }
+        return null;
+    }
+
+    /**
+     * Creates a cycle that goes back and forth over the rows, leaving out
+     * the first column, and returns up the first column.
+     * @param inColumns number of columns
+     * @param inRows number of rows, even
+     * @param inTransposed true if rows are the columns of the board
+     * @return the next tile of every tile
+     */
+    private static int[] createRowCycle(int inColumns, int inRows, boolean inTransposed) {
+        int[] order = new int[inColumns * inRows];
+        int count = 0;
+        for (int row = 0; row < inRows; row++) {
+            if(row % 2 == 0) {
+                for (int column = 1; column < inColumns; column++) {
+                    order[count++] = tile(column, row, inColumns, inRows, inTransposed);
+                }
+            } else {
+                for (int column = inColumns - 1; column >= 1; column--) {
+                    order[count++] = tile(column, row, inColumns, inRows, inTransposed);
+                }
+            }
+        }
+        for (int row = inRows - 1; row >= 0; row--) {
+            order[count++] = tile(0, row, inColumns, inRows, inTransposed);
+        }
+
+        int[] next = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            next[order[i]] = order[(i + 1) % order.length];
+        }
+        return next;
+    }
+
+    /**
+     * Gets the tile at a column and row.
+     * @param inColumn column
+     * @param inRow row
+     * @param inColumns number of columns
+     * @param inRows number of rows
+     * @param inTransposed true if rows are the columns of the board
+     * @return the tile
+     */
+    private static int tile(int inColumn, int inRow, int inColumns, int inRows, boolean inTransposed) {
+        return inTransposed ? inColumn * inRows + inRow : inRow * inColumns + inColumn;
+    }
+}
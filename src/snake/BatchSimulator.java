@@ -0,0 +1,264 @@
+package snake;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * BatchSimulator plays many games without a window, in parallel on all
+ * cores, and reports throughput and how the scores are distributed.
+ *
+ * Every game gets its own Engine seeded from the batch seed and its own
+ * Controller, so a batch with the same settings always gives the same scores.
+ *
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class BatchSimulator {
+
+    private static final int GAMES_PER_TASK = 16;
+    private static final int HISTOGRAM_BUCKETS = 10;
+
+    private int mGames, mWidth, mHeight, mThreads;
+    private long mSeed, mMaxTicks;
+    private Class<? extends Controller> mController;
+
+    private int[] mScores;
+    private long[] mTicks;
+    private long mElapsedNanos;
+
+    /**
+     * Constructor of the BatchSimulator.
+     * @param inGames number of games to play
+     * @param inWidth number of tiles (x)
+     * @param inHeight number of tiles (y)
+     * @param inSeed seed of the first game, the others follow it
+     * @param inMaxTicks steps after which a game is stopped
+     * @param inController controller that plays the games
+     * @param inThreads number of threads to use
+     * @throws IllegalArgumentException if there are no games to play, or the board is too large
+     */
+    public BatchSimulator(int inGames, int inWidth, int inHeight, long inSeed, long inMaxTicks,
+            Class<? extends Controller> inController, int inThreads) {
+        if(inGames <= 0) {
+            throw new IllegalArgumentException("Number of games must be positive: " + inGames);
+        }
+        OccupancyGrid.checkSize(inWidth, inHeight);
+        mGames = inGames;
+        mWidth = inWidth;
+        mHeight = inHeight;
+        mSeed = inSeed;
+        mMaxTicks = inMaxTicks;
+        mController = inController;
+        mThreads = inThreads;
+    }
+
+    /**
+     * Plays all the games and waits until they are done.
+     */
+    public void run() {
+        mScores = new int[mGames];
+        mTicks = new long[mGames];
+
+        ForkJoinPool pool = new ForkJoinPool(mThreads);
+        long start = System.nanoTime();
+        try {
+            pool.invoke(new GamesTask(0, mGames));
+        } finally {
+            pool.shutdown();
+        }
+        mElapsedNanos = System.nanoTime() - start;
+    }
+
+    /**
+     * Plays one game until the snake dies or the step limit is reached.
+     * @param inGame index of the game
+     */
+    private void play(int inGame) {
+        Controller controller;
+        try {
+            controller = mController.newInstance();
+        } catch (InstantiationException | IllegalAccessException ex) {
+            throw new IllegalArgumentException("Controller can not be created: " + mController.getName(), ex);
+        }
+
+        Engine engine = new Engine(mWidth, mHeight, mSeed + inGame);
+        boolean alive = true;
+        while(alive && engine.getTicks() < mMaxTicks) {
+            alive = engine.step(controller.decide(engine));
+        }
+
+        mScores[inGame] = engine.getPoints();
+        mTicks[inGame] = engine.getTicks();
+    }
+
+    /**
+     * Gets the scores of the games, in the order they were seeded.
+     * @return scores
+     */
+    public int[] getScores() {
+        return mScores;
+    }
+
+    /**
+     * Gets the total number of steps played.
+     * @return steps of all games
+     */
+    public long getTotalTicks() {
+        long total = 0;
+        for (long ticks : mTicks) {
+            total += ticks;
+        }
+        return total;
+    }
+
+    /**
+     * Gets the number of games played per second.
+     * @return games per second
+     */
+    public double getGamesPerSecond() {
+        return mGames * 1e9 / mElapsedNanos;
+    }
+
+    /**
+     * Gets the number of steps played per second, over all threads.
+     * @return steps per second
+     */
+    public double getTicksPerSecond() {
+        return getTotalTicks() * 1e9 / mElapsedNanos;
+    }
+
+    /**
+     * Returns throughput and score distribution as a report.
+     * @return report
+     */
+    @Override
+    public String toString() {
+        int[] sorted = mScores.clone();
+        Arrays.sort(sorted);
+        long sum = 0;
+        for (int score : sorted) {
+            sum += score;
+        }
+
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%d games on %dx%d with %s, %d threads%n",
+                mGames, mWidth, mHeight, mController.getSimpleName(), mThreads));
+        report.append(String.format("%.3f s, %.1f games/s, %.0f ticks/s%n",
+                mElapsedNanos / 1e9, getGamesPerSecond(), getTicksPerSecond()));
+        report.append(String.format("score min %d, mean %.2f, p50 %d, p90 %d, p99 %d, max %d%n",
+                sorted[0], (double) sum / sorted.length, percentile(sorted, 50),
+                percentile(sorted, 90), percentile(sorted, 99), sorted[sorted.length - 1]));
+
+        // histogram with equally wide buckets from min to max
+        int min = sorted[0];
+        int width = Math.max(1, (sorted[sorted.length - 1] - min) / HISTOGRAM_BUCKETS + 1);
+        int[] buckets = new int[HISTOGRAM_BUCKETS];
+        for (int score : sorted) {
+            buckets[(score - min) / width]++;
+        }
+        for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+            if(buckets[i] > 0) {
+                report.append(String.format("%6d-%-6d %d%n", min + i * width, min + (i + 1) * width - 1, buckets[i]));
+            }
+        }
+
+        return report.toString();
+    }
+
+    /**
+     * Gets a percentile of sorted scores.
+     * @param inSorted sorted scores
+     * @param inPercent percentile to get
+     * @return score
+     */
+    private static int percentile(int[] inSorted, int inPercent) {
+        int index = (int) Math.ceil(inPercent / 100.0 * inSorted.length) - 1;
+        return inSorted[Math.max(0, index)];
+    }
+
+    /**
+     * Task that plays a range of games, splitting it up if it is large.
+     */
+    private class GamesTask extends RecursiveAction {
+
+        private int mFrom, mTo;
+
+        /**
+         * Constructor of the GamesTask.
+         * @param inFrom first game
+         * @param inTo game after the last one
+         */
+        GamesTask(int inFrom, int inTo) {
+            mFrom = inFrom;
+            mTo = inTo;
+        }
+
+        /**
+         * Plays the games, or splits them between two new tasks.
+         */
+        @Override
+        protected void compute() {
+            if(mTo - mFrom <= GAMES_PER_TASK) {
+                for (int i = mFrom; i < mTo; i++) {
+                    play(i);
+                }
+            } else {
+                int middle = (mFrom + mTo) >>> 1;
+                invokeAll(new GamesTask(mFrom, middle), new GamesTask(middle, mTo));
+            }
+        }
+    }
+
+    /**
+     * main method for running a batch from the command line
+     * @param args --games, --width, --height, --seed, --max-ticks, --controller and --threads
+     * @throws ClassNotFoundException if the controller class can not be found
+     */
+    public static void main(String[] args) throws ClassNotFoundException {
+        int games = 1000;
+        int width = 30;
+        int height = 20;
+        long seed = 1;
+        long maxTicks = 100000;
+        String controller = GreedyController.class.getName();
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        for (int i = 0; i < args.length; i += 2) {
+            if(i + 1 == args.length) {
+                throw new IllegalArgumentException("Missing value for option: " + args[i]);
+            }
+            String value = args[i + 1];
+            switch(args[i]) {
+                case "--games":
+                    games = Integer.parseInt(value);
+                    break;
+                case "--width":
+                    width = Integer.parseInt(value);
+                    break;
+                case "--height":
+                    height = Integer.parseInt(value);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(value);
+                    break;
+                case "--max-ticks":
+                    maxTicks = Long.parseLong(value);
+                    break;
+                case "--controller":
+                    controller = value;
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        BatchSimulator simulator = new BatchSimulator(games, width, height, seed, maxTicks,
+                Class.forName(controller).asSubclass(Controller.class), threads);
+        simulator.run();
+        System.out.print(simulator);
+    }
+}
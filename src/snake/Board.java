@@ -1,81 +1,232 @@
 package snake;
 
+import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Image;
 import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
+import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.awt.image.BufferedImage;
+import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Random;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import javax.swing.ImageIcon;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
 
 /**
- * Board is the where the game lives.
+ * Board is the where the game is shown and played.
+ * The rules of the game live in the Engine, the board renders it
+ * and feeds it with input. The board either lets Swing paint it,
+ * or in active mode hands every step over to an ActiveRenderer.
+ * Only the part of the board around the head is shown, a Camera
+ * follows the snake across boards larger than the window.
  * 
  * @author Christopher Lindblom
  * @version 2013-01-11
  */
 public class Board extends JPanel implements Runnable, KeyListener {
     
-    private Image mTileImage, mSnakeHeadImage, mSnakeBodyImage, mFoodImage;
+    private SpriteAtlas mSprites;
+    private BufferedImage mBackground;
+    private volatile int mTileSize;
     private int mWidth, mHeight;
-    private Snake mPlayer;
-    private Fruit mFruit;
-    private Random mRandom = new Random();
-    private int mPoints;
-    private ArrayList<Point> mFreeLocations, mAllLocations;
+    private Engine mEngine;
     private SnakeGame mOwner;
     private HighscoreList mHighscore;
+    private HighscoreWriter mHighscoreWriter;
+    private GameClock mClock;
+    private FrameState.Exchange mExchange;
+    private ActiveRenderer mRenderer;
+    private InputQueue mInput;
+    private ReplayRecorder mRecorder;
+    private Controller mController;
+    private Replay mReplay;
+    private Camera mCamera;
+    private GameMetrics mMetrics;
+    private int[] mChangedCells;
+    private DirtyTiles mDirty;
+    private int[] mPaintCells;
+    private Runnable mPaintTiles;
+    private volatile boolean mClearInput;
+    // what the user asked for last, only used on the Swing thread
+    private boolean mPausing;
     
-    private static int INITIAL_DIRECTION = Snake.MOVE_RIGHT;
+    private static int TICKS_PER_SECOND = 20;
+    private static int MAX_CATCH_UP = 5;
+    private static int FRAMES_PER_SECOND = 60;
+    private static int BUFFERED_TURNS = 3;
+    private static String SAVE_NAME = "savegame.dat";
+    private static int VIEW_COLUMNS = 40;
+    private static int VIEW_ROWS = 30;
+    private static int ITEMS = 3;
+    private static int DIRTY_TILES = 256;
     
     /**
-     * Constructor of the Board.
+     * Constructor of the Board, painted by Swing.
      * @param inWidth number of tiles (x)
      * @param inHeight number of tiles (y)
      * @param inOwner owning SnakeGame object
      */
     public Board(int inWidth, int inHeight, SnakeGame inOwner) {
+        this(inWidth, inHeight, inOwner, false);
+    }
+    
+    /**
+     * Constructor of the Board.
+     * @param inWidth number of tiles (x)
+     * @param inHeight number of tiles (y)
+     * @param inOwner owning SnakeGame object
+     * @param inActive true to draw with a render thread instead of Swing
+     */
+    public Board(int inWidth, int inHeight, SnakeGame inOwner, boolean inActive) {
+        this(inWidth, inHeight, inOwner, inActive, null);
+    }
+    
+    /**
+     * Constructor of the Board, playing a recorded game at normal speed.
+     * @param inReplay the recorded game
+     * @param inOwner owning SnakeGame object
+     * @param inActive true to draw with a render thread instead of Swing
+     */
+    public Board(Replay inReplay, SnakeGame inOwner, boolean inActive) {
+        this(inReplay.getWidth(), inReplay.getHeight(), inOwner, inActive, inReplay);
+    }
+    
+    /**
+     * Constructor of the Board. A board steered by a controller ignores the
+     * arrow keys and does not record its games, a bot starts over when it
+     * dies and a replay ends.
+     * @param inWidth number of tiles (x)
+     * @param inHeight number of tiles (y)
+     * @param inOwner owning SnakeGame object
+     * @param inActive true to draw with a render thread instead of Swing
+     * @param inController steers the snake, or null to let the user play and record
+     */
+    public Board(int inWidth, int inHeight, SnakeGame inOwner, boolean inActive, Controller inController) {
+        this(inWidth, inHeight, inOwner, inActive, inController, SpriteAtlas.SOURCE_SIZE);
+    }
+    
+    /**
+     * Constructor of the Board. A board steered by a controller ignores the
+     * arrow keys and does not record its games, a bot starts over when it
+     * dies and a replay ends.
+     * @param inWidth number of tiles (x)
+     * @param inHeight number of tiles (y)
+     * @param inOwner owning SnakeGame object
+     * @param inActive true to draw with a render thread instead of Swing
+     * @param inController steers the snake, or null to let the user play and record
+     * @param inTileSize size of a tile in pixels, the tiles grow and shrink with the window
+     * @throws IllegalArgumentException if a side is less than 1 or more than Cell.MAX_SIZE
+     */
+    public Board(int inWidth, int inHeight, SnakeGame inOwner, boolean inActive, Controller inController, int inTileSize) {
+        OccupancyGrid.checkSize(inWidth, inHeight);
         mWidth = inWidth;
         mHeight = inHeight;
         mOwner = inOwner;
+        mController = inController;
+        if(inController instanceof Replay) {
+            mReplay = (Replay) inController;
+        }
+        mMetrics = GameMetrics.getInstance();
+        long loadStart = System.nanoTime();
         mHighscore = HighscoreList.load(mOwner.getClass().getProtectionDomain().getCodeSource().getLocation().getPath());
+        mMetrics.loaded(System.nanoTime() - loadStart);
+        mHighscoreWriter = new HighscoreWriter(mHighscore, new HighscoreWriter.Listener() {
+            @Override
+            public void saved(int inScores, long inNanos) {
+                mMetrics.saved(inNanos);
+                Logger.getLogger(Board.class.getName()).log(Level.FINE, 
+                        "Saved {0} high scores in {1} ms", new Object[] {inScores, inNanos / 1e6});
+            }
+
+            @Override
+            public void failed(IOException inException) {
+                Logger.getLogger(Board.class.getName()).log(Level.WARNING, null, inException);
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        JOptionPane.showMessageDialog(mOwner, "Det gick inte spara topplistan.", "Fel!", JOptionPane.ERROR_MESSAGE);
+                    }
+                });
+            }
+        });
         
-        mAllLocations = new ArrayList();
-        initAllLocations();
+        if(inController == null) {
+            mRecorder = new ReplayRecorder(new File(mHighscore.getFilePath(), "replays"));
+            
+            // a game that is being played when the window closes is resumed next time
+            mOwner.addWindowListener(new WindowAdapter() {
+                @Override
+                public void windowClosing(WindowEvent e) {
+                    saveGame();
+                }
+            });
+        }
+        
+        // a replay is played with the items and the picking it was recorded with
+        int items = mReplay != null ? mReplay.getItems() : ITEMS;
+        if(mReplay != null) {
+            mEngine = mReplay.createEngine();
+        } else {
+            mEngine = new Engine(inWidth, inHeight, System.nanoTime(), items);
+        }
+        mChangedCells = new int[items + 2];
+        mDirty = new DirtyTiles(DIRTY_TILES);
+        mPaintCells = new int[DIRTY_TILES];
+        mPaintTiles = new Runnable() {
+            @Override
+            public void run() {
+                paintTiles();
+            }
+        };
+        mClock = new GameClock(TICKS_PER_SECOND, MAX_CATCH_UP);
+        mMetrics.watch(mClock);
+        mInput = new InputQueue(BUFFERED_TURNS);
+        mCamera = new Camera(inWidth, inHeight, VIEW_COLUMNS, VIEW_ROWS);
+        
+        mTileSize = inTileSize;
         
         setBackground(Color.black);
-        setPreferredSize(new Dimension(inWidth*20, inHeight*20));
+        setPreferredSize(new Dimension(mCamera.getColumns()*inTileSize, mCamera.getRows()*inTileSize));
         
         setFocusable(true);
-        loadGraphics();
+        mSprites = SpriteAtlas.load();
+        
+        if(inActive) {
+            mExchange = new FrameState.Exchange();
+            mRenderer = new ActiveRenderer(mCamera.getColumns(), mCamera.getRows(), mSprites, 
+                    mExchange, mClock, FRAMES_PER_SECOND, mMetrics);
+            setLayout(new BorderLayout());
+            add(mRenderer, BorderLayout.CENTER);
+            mRenderer.addKeyListener(this);
+        }
+        
         initGame();
     }
     
-    /**
-     * Loads all the graphics in to memory
-     */
-    private void loadGraphics() {
-        mTileImage = new ImageIcon(this.getClass().getResource("tile.png")).getImage();
-        mSnakeHeadImage = new ImageIcon(this.getClass().getResource("snake-head.png")).getImage();
-        mSnakeBodyImage = new ImageIcon(this.getClass().getResource("snake-body.png")).getImage();
-        mFoodImage = new ImageIcon(this.getClass().getResource("food.png")).getImage();
-    }
-    
     /**
      * Initializes the game
      */
     private void initGame() {
-        // put game in start up state
-        resetGame();
+        // put game in start up state, unless there is a saved game
+        if(!resumeGame()) {
+            resetGame();
+        }
+        
+        // high scores are saved on their own thread
+        mHighscoreWriter.start();
         
         // start a thread using this classes run method (for the game loop)
         Thread thread = new Thread(this);
@@ -89,40 +240,181 @@ public class Board extends JPanel implements Runnable, KeyListener {
      * Resets the game to default starting state
      */
     private void resetGame() {
-        freeAllLocations();
-        mPoints = 0;
-        mOwner.setCurrentScore(mPoints);
-        
+        // every game gets its own seed, so it can be replayed from its file
+        if(mReplay != null) {
+            mEngine.reset(mReplay.getSeed());
+            mReplay.rewind();
+        } else {
+            long seed = System.nanoTime();
+            mEngine.reset(seed);
+            try {
+                if(mRecorder != null) {
+                    mRecorder.start(seed, mWidth, mHeight, ITEMS);
+                }
+            } catch (IOException ex) {
+                Logger.getLogger(Board.class.getName()).log(Level.WARNING, "Game is not recorded", ex);
+            }
+        }
+        showGame();
+    }
+    
+    /**
+     * Shows a game that was reset or resumed.
+     */
+    private void showGame() {
+        // the queue is only emptied by the game loop, which reads it
+        mClearInput = true;
+        mOwner.setCurrentScore(mEngine.getPoints());
         mOwner.setHighscore(mHighscore.getHighestScore());
-        mPlayer = new Snake(mWidth / 2, mHeight / 2, INITIAL_DIRECTION);
-        mFruit = new Fruit(mRandom.nextInt(mWidth), mRandom.nextInt(mHeight));
-        mFreeLocations.removeAll(mPlayer.getLocations());
-        mFreeLocations.removeAll(mFruit.getLocations());
+        Point head = mEngine.getSnake().getLocation();
+        mCamera.center(head.x, head.y);
+        
+        if(mRenderer != null) {
+            mExchange.commit(mEngine, Cell.NONE, mCamera.getOrigin());
+        } else {
+            repaint();
+        }
+    }
+    
+    /**
+     * Saves a snapshot of the game being played, on the Swing thread
+     * while the window closes. The snapshot of a finished game is removed.
+     */
+    private void saveGame() {
+        Path file = Paths.get(mHighscore.getFilePath() + SAVE_NAME);
+        try {
+            ByteBuffer buffer = null;
+            synchronized (mEngine) {
+                if(!mEngine.isDead()) {
+                    buffer = ByteBuffer.allocate(mEngine.getSnapshotSize());
+                    mEngine.snapshot(buffer);
+                }
+            }
+            
+            if(buffer == null) {
+                Files.deleteIfExists(file);
+            } else {
+                buffer.flip();
+                HighscoreList.writeAtomically(file, buffer);
+            }
+        } catch (IOException ex) {
+            Logger.getLogger(Board.class.getName()).log(Level.WARNING, "Game can not be saved", ex);
+        }
+    }
+    
+    /**
+     * Continues the game saved when the window was last closed, if any.
+     * The game waits for space to be pressed, and is not recorded since
+     * a replay always starts from the beginning.
+     * @return true if a game was resumed
+     */
+    private boolean resumeGame() {
+        Path file = Paths.get(mHighscore.getFilePath() + SAVE_NAME);
+        if(mController != null || !Files.exists(file)) {
+            return false;
+        }
+        
+        try {
+            mEngine.restore(ByteBuffer.wrap(Files.readAllBytes(file)));
+            Files.delete(file);
+        } catch (IOException | IllegalArgumentException | BufferUnderflowException ex) {
+            Logger.getLogger(Board.class.getName()).log(Level.WARNING, "Saved game can not be resumed", ex);
+            return false;
+        }
+        
+        mEngine.getSnake().setStopped(true);
+        mClock.setPaused(true);
+        mPausing = true;
+        showGame();
+        return true;
     }
     
     /**
-     * Handles the painting of the Board object
+     * Handles the painting of the Board object.
+     * Only the tiles inside the clip are painted, the tiles changed by the
+     * game loop are painted one at a time by paintTiles. Painting goes through the
+     * tiles on screen, so it takes as long on any size of board. The tiles
+     * are as large as fits the panel, and drawn from sprites already scaled
+     * to that size.
      * @param g graphics context
      */
     @Override
     public void paint(Graphics g) {
+        // in active mode the renderer draws everything
+        if(mRenderer != null) {
+            super.paint(g);
+            return;
+        }
         
-        // paint all tiles as empty
-        for (Point currentTile : mAllLocations) {
-            g.drawImage(mTileImage, currentTile.x * 20, currentTile.y * 20, this);
+        long start = System.nanoTime();
+        int size = SpriteAtlas.fitTileSize(getWidth(), getHeight(), mCamera.getColumns(), mCamera.getRows());
+        Rectangle clip = g.getClipBounds();
+        if(clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
         }
         
-        // paint tail tiles
-        for (Point tailTile : mPlayer.getTail()) {
-            g.drawImage(mSnakeBodyImage, tailTile.x * 20, tailTile.y * 20, this);
+        // paint the empty tiles in one go, the rest of the panel is left black
+        if(mBackground == null || size != mTileSize) {
+            mTileSize = size;
+            mBackground = mSprites.createBackground(getGraphicsConfiguration(), size, mCamera.getColumns(), mCamera.getRows());
         }
+        g.setColor(getBackground());
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+        g.drawImage(mBackground, 0, 0, mCamera.getColumns() * size, mCamera.getRows() * size, this);
         
-        // paint snake head
-        g.drawImage(mSnakeHeadImage, mPlayer.getLocation().x * 20, mPlayer.getLocation().y * 20, this);
+        Image[] sprites = mSprites.getSprites(getGraphicsConfiguration(), size);
+        Snake player = mEngine.getSnake();
+        Fruit fruit = mEngine.getFruit();
+        Items items = mEngine.getItems();
+        OccupancyGrid grid = mEngine.getGrid();
+        int origin = mCamera.getOrigin();
+        int fromColumn = Math.max(0, clip.x / size);
+        int fromRow = Math.max(0, clip.y / size);
+        int toColumn = Math.min(mCamera.getColumns() - 1, (clip.x + clip.width - 1) / size);
+        int toRow = Math.min(mCamera.getRows() - 1, (clip.y + clip.height - 1) / size);
         
-        // paint fruit
-        g.drawImage(mFoodImage, mFruit.getLocation().x * 20, mFruit.getLocation().y * 20, this);
+        // paint whatever occupies the tiles on screen
+        for (int column = fromColumn; column <= toColumn; column++) {
+            for (int row = fromRow; row <= toRow; row++) {
+                int x = Cell.x(origin) + column;
+                int y = Cell.y(origin) + row;
+                Collideable occupant = grid.getOccupant(x, y);
+                if(occupant == player) {
+                    Point head = player.getLocation();
+                    Image sprite = head.x == x && head.y == y ? sprites[SpriteAtlas.HEAD] : sprites[SpriteAtlas.BODY];
+                    g.drawImage(sprite, column * size, row * size, size, size, this);
+                } else if(occupant == fruit) {
+                    g.drawImage(sprites[SpriteAtlas.FOOD], column * size, row * size, size, size, this);
+                } else if(occupant == items) {
+                    Image sprite = items.getType(Cell.pack(x, y)) == Items.BONUS ? sprites[SpriteAtlas.BONUS] : sprites[SpriteAtlas.FOOD];
+                    g.drawImage(sprite, column * size, row * size, size, size, this);
+                }
+            }
+        }
         
+        mClock.frameRendered();
+        mMetrics.frameDone(System.nanoTime() - start);
+    }
+    
+    /**
+     * Paints the tiles changed by the game loop right away, each with a
+     * clip of its own tile, on the Swing thread.
+     */
+    private void paintTiles() {
+        int count = mDirty.drain(mPaintCells);
+        if(count < 0) {
+            repaint();
+            return;
+        }
+        
+        int size = mTileSize;
+        for (int i = 0; i < count; i++) {
+            int column = mCamera.getColumn(Cell.x(mPaintCells[i]));
+            int row = mCamera.getRow(Cell.y(mPaintCells[i]));
+            if(column >= 0 && row >= 0) {
+                paintImmediately(column * size, row * size, size, size);
+            }
+        }
     }
 
     /**
@@ -131,41 +423,224 @@ public class Board extends JPanel implements Runnable, KeyListener {
     @Override
     public void run() {
         while(true) {
+            try {
+                // sleeps without using any CPU while the game is paused
+                mClock.waitWhilePaused();
+                
+                // every step asks for the tiles it changed to be repainted
+                int ticks = mClock.advance();
+                for (int i = 0; i < ticks; i++) {
+                    long start = System.nanoTime();
+                    boolean playing = tick();
+                    mMetrics.tickDone(System.nanoTime() - start);
+                    if(!playing) {
+                        break;
+                    }
+                }
+                
+                mClock.sleepUntilNextTick();
+            } catch (InterruptedException ex) {
+                // logs error
+                Logger.getLogger(Board.class.getName()).log(Level.SEVERE, null, ex);
+            }
+        }
+    }
+    
+    /**
+     * Simulates one step of the game.
+     * @return false if the game ended or was paused during the step
+     */
+    private boolean tick() {
+        int points = mEngine.getPoints();
+        Point head = mEngine.getSnake().getLocation();
+        Point fruit = mEngine.getFruit().getLocation();
+        int headX = head.x, headY = head.y;
+        int fruitX = fruit.x, fruitY = fruit.y;
+        
+        // take at most one turn per step, in the order the keys were pressed
+        long tick = mEngine.getTicks();
+        if(mClearInput) {
+            mClearInput = false;
+            int command = mInput.clear();
+            if(command != Engine.KEEP_DIRECTION && !applyCommand(command)) {
+                return false;
+            }
+        }
+        int direction = mInput.poll(mEngine.getSnake().getDirection());
+        while(direction < 0) {
+            if(!applyCommand(direction)) {
+                return false;
+            }
+            direction = mInput.poll(mEngine.getSnake().getDirection());
+        }
+        if(mController != null) {
+            // with a controller only commands are queued
+            direction = mController.decide(mEngine);
+        } else {
+            record(tick, direction);
+        }
+        synchronized (mEngine) {
+            mEngine.step(direction);
+        }
+        long latency = mInput.moved();
+        if(latency >= 0) {
+            mMetrics.inputMoved(latency);
+        }
+        
+        if(mEngine.getPoints() != points) {
+            mMetrics.fruitEaten();
+            mOwner.setCurrentScore(mEngine.getPoints());
+        }
+        
+        // everything on screen moves when the camera does
+        Point newHead = mEngine.getSnake().getLocation();
+        boolean scrolled = mCamera.follow(newHead.x, newHead.y);
+        if(mRenderer != null) {
+            mExchange.commit(mEngine, Cell.pack(headX, headY), mCamera.getOrigin());
+        } else if(scrolled) {
             repaint();
+        } else if(addChangedTiles(mEngine, headX, headY, fruitX, fruitY, mChangedCells, mDirty)) {
+            SwingUtilities.invokeLater(mPaintTiles);
+        }
+
+        if(mEngine.isDead()) {
+            mMetrics.died();
             
-            mPlayer.update();
-            
-            // move player from one side to other if neccesary
-            wormHole();
-            
-            // update free locations
-            freeAllLocations();
-            mFreeLocations.removeAll(mPlayer.getLocations());
-            mFreeLocations.removeAll(mFruit.getLocations());
-            
-            // check if player collides with fruit
-            if(mFruit.collide(mPlayer)) {
-                mPlayer.grow();
-                mOwner.setCurrentScore(++mPoints);
-                mFruit.setLocation(getRandomFreeLocation());
+            // a bot just plays again, as a demo of the game
+            if(mController != null && mReplay == null) {
+                resetGame();
+                return false;
             }
             
-            // check if player collides with it self
-            if(mPlayer.collide(mPlayer)) {
-                handleHighscore();
-                showHighscore();
-                reviveOrDie();
+            // the game loop waits while the dialogs are shown by Swing
+            mClock.setPaused(true);
+            if(mReplay != null) {
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        replayEnded();
+                    }
+                });
+                return false;
             }
             
-            try {
-                // slow down the loop a bit
-                Thread.sleep(17);
-            } catch (InterruptedException ex) {
-                // logs error
-                Logger.getLogger(Board.class.getName()).log(Level.SEVERE, null, ex);
-            }
+            recordEnd();
+            SwingUtilities.invokeLater(new Runnable() {
+                @Override
+                public void run() {
+                    handleHighscore();
+                    showHighscore();
+                    reviveOrDie();
+                }
+            });
+            return false;
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Pauses or resumes the game, on the game loop so that the snake and
+     * the clock change together between two steps and no step is taken
+     * with a stopped snake.
+     * @param inCommand InputQueue.PAUSE or InputQueue.RESUME
+     * @return false if the game was paused, so no step is taken
+     */
+    private boolean applyCommand(int inCommand) {
+        boolean pause = inCommand == InputQueue.PAUSE;
+        mEngine.getSnake().setStopped(pause);
+        if(pause) {
+            // the clock was already started again by the Swing thread to resume
+            mClock.setPaused(true);
+        }
+        return !pause;
+    }
+    
+    /**
+     * Records a turn. A game that can not be recorded is still played,
+     * the rest of it is just not recorded.
+     * @param inTick step of the turn
+     * @param inDirection direction given to the engine
+     */
+    private void record(long inTick, int inDirection) {
+        if(inDirection == Engine.KEEP_DIRECTION) {
+            return;
+        }
+        try {
+            mRecorder.turn(inTick, inDirection);
+        } catch (IOException ex) {
+            stopRecording(ex);
+        }
+    }
+    
+    /**
+     * Records the end of the game and closes its replay file.
+     */
+    private void recordEnd() {
+        try {
+            mRecorder.end(mEngine.getTicks(), mEngine.getPoints());
+        } catch (IOException ex) {
+            stopRecording(ex);
+        }
+    }
+    
+    /**
+     * Stops recording the game after a failed write.
+     * @param inException what went wrong
+     */
+    private void stopRecording(IOException inException) {
+        Logger.getLogger(Board.class.getName()).log(Level.WARNING, "Game is not recorded", inException);
+        try {
+            mRecorder.close();
+        } catch (IOException ex) {
+            Logger.getLogger(Board.class.getName()).log(Level.FINE, null, ex);
         }
     }
+    
+    /**
+     * Adds the tiles changed by the last step of a game.
+     * @param inEngine the game
+     * @param inHeadX horizontal position of the head before the step
+     * @param inHeadY vertical position of the head before the step
+     * @param inFruitX horizontal position of the fruit before the step
+     * @param inFruitY vertical position of the fruit before the step
+     * @param inChangedCells array for the item tiles, at least the item capacity + 2 long
+     * @param inDirty where the tiles are added
+     * @return true if a paint should be asked for
+     */
+    static boolean addChangedTiles(Engine inEngine, int inHeadX, int inHeadY, int inFruitX, int inFruitY,
+            int[] inChangedCells, DirtyTiles inDirty) {
+        // the old head becomes tail, the end of the tail may be left
+        Point head = inEngine.getSnake().getLocation();
+        boolean first = inDirty.add(Cell.pack(inHeadX, inHeadY));
+        first |= inDirty.add(Cell.pack(head.x, head.y));
+        int vacated = inEngine.getSnake().getVacatedCell();
+        if(vacated != Cell.NONE) {
+            first |= inDirty.add(vacated);
+        }
+        
+        // the fruit moves when eaten
+        Point fruit = inEngine.getFruit().getLocation();
+        if(fruit.x != inFruitX || fruit.y != inFruitY) {
+            first |= inDirty.add(Cell.pack(inFruitX, inFruitY));
+            first |= inDirty.add(Cell.pack(fruit.x, fruit.y));
+        }
+        
+        // items come, go and are eaten
+        int count = inEngine.getItems().getChangedCells(inChangedCells);
+        for (int i = 0; i < count; i++) {
+            first |= inDirty.add(inChangedCells[i]);
+        }
+        return first;
+    }
+    
+    /**
+     * Getter for the game clock
+     * @return clock that drives the game loop
+     */
+    public GameClock getClock() {
+        return mClock;
+    }
 
     /**
      * Lets the user choose to restart or quit.
@@ -173,8 +648,9 @@ public class Board extends JPanel implements Runnable, KeyListener {
     private void reviveOrDie() {
         // ask the user if they want to play again
         if(JOptionPane.showConfirmDialog(mOwner, "Vill du spela igen?", null, JOptionPane.YES_NO_OPTION) == JOptionPane.YES_OPTION) {
-            // reset if they do
+            // reset if they do, the time the dialogs took is not caught up with
             resetGame();
+            mClock.setPaused(false);
         } else {
             // close window if the dont
             mOwner.dispatchEvent(new WindowEvent(mOwner, WindowEvent.WINDOW_CLOSING));
@@ -182,22 +658,33 @@ public class Board extends JPanel implements Runnable, KeyListener {
     }
     
     /**
-     * Handles dialog with user about new high score.
+     * Tells the user the recorded game is over and closes the window.
+     */
+    private void replayEnded() {
+        JOptionPane.showMessageDialog(mOwner, "Repriset är slut, " + mEngine.getPoints() + " poäng.", 
+                "Repris", JOptionPane.PLAIN_MESSAGE);
+        mOwner.dispatchEvent(new WindowEvent(mOwner, WindowEvent.WINDOW_CLOSING));
+    }
+    
+    /**
+     * Handles dialog with user about new high score, on the Swing thread.
      */
     private void handleHighscore() {
         // check if we have a new high score
-        if(mHighscore.isHighscore(mPoints)) {
+        if(mHighscore.isHighscore(mEngine.getPoints())) {
             // get the name of the player
             String name = JOptionPane.showInputDialog(mOwner, "Ditt namn: ", 
 "Grattis, topplistan!", JOptionPane.PLAIN_MESSAGE);
             
             // add name and points if the user entered something and pressed ok
             if(name != null && name.trim().length() != 0) {
-                mHighscore.add(name.trim(), mPoints);
+                mHighscoreWriter.add(name.trim(), mEngine.getPoints());
                 try {
-                    mHighscore.save();
-                } catch (IOException ex) {
-                    JOptionPane.showMessageDialog(mOwner, "Det gick inte spara topplistan.", "Fel!", JOptionPane.ERROR_MESSAGE);
+                    // the list is shown next, the score must be in it
+                    mHighscoreWriter.awaitListed();
+                } catch (InterruptedException ex) {
+                    // logs error
+                    Logger.getLogger(Board.class.getName()).log(Level.SEVERE, null, ex);
                 }
             }
         }
@@ -228,29 +715,44 @@ public class Board extends JPanel implements Runnable, KeyListener {
     public void keyPressed(KeyEvent e) {
         int key = e.getKeyCode();
         
+        // the game is over until the dialogs are answered
+        if(mEngine.isDead()) {
+            return;
+        }
+        
+        // the game loop pauses and resumes the snake, the clock is only
+        // started here since the loop sleeps while it is paused
         if(KeyEvent.VK_SPACE == key) {
-            if(mPlayer.getStopped()) {
-                mPlayer.setStopped(false);
-            } else {
-                mPlayer.setStopped(true);
+            if(mPausing) {
+                if(mInput.offer(InputQueue.RESUME)) {
+                    mPausing = false;
+                    mClock.setPaused(false);
+                }
+            } else if(mInput.offer(InputQueue.PAUSE)) {
+                mPausing = true;
                 showHighscore();
             }
         }
         
+        // turns are queued for the game loop, not given to the snake directly
+        if(mPausing || mController != null) {
+            return;
+        }
+        
         if(KeyEvent.VK_RIGHT == key) {
-            mPlayer.setDirection(Snake.MOVE_RIGHT);
+            mInput.offer(Snake.MOVE_RIGHT);
         }
         
         if (KeyEvent.VK_LEFT == key) {
-            mPlayer.setDirection(Snake.MOVE_LEFT);
+            mInput.offer(Snake.MOVE_LEFT);
         }
         
         if(KeyEvent.VK_UP == key) {
-            mPlayer.setDirection(Snake.MOVE_UP);
+            mInput.offer(Snake.MOVE_UP);
         }
         
         if (KeyEvent.VK_DOWN == key) {
-            mPlayer.setDirection(Snake.MOVE_DOWN);
+            mInput.offer(Snake.MOVE_DOWN);
         }
     }
 
@@ -263,51 +765,4 @@ public class Board extends JPanel implements Runnable, KeyListener {
         
     }
     
-    /**
-     * Fills allLocations with a point for every location on the board.
-     */
-    private void initAllLocations() {
-        for (int i = 0; i < mWidth; i++) {
-            for (int j = 0; j < mHeight; j++) {
-                mAllLocations.add(new Point(i, j));
-            }
-        }
-    }
-    
-    /**
-     * Frees all the locations.
-     */
-    private void freeAllLocations() {
-        mFreeLocations = (ArrayList<Point>)mAllLocations.clone();
-    }
-    
-    /**
-     * Gets one random location amongst the free ones.
-     * @return random free location
-     */
-    private Point getRandomFreeLocation() {
-        return mFreeLocations.get(mRandom.nextInt(mFreeLocations.size() - 1));
-    }
-    
-    /**
-     * Makes the worm go from one side of the board to the other, if necessary.
-     */
-    private void wormHole() {
-        if(mPlayer.getLocation().x >= mWidth) {
-            mPlayer.setLocation(0, mPlayer.getLocation().y);
-        }
-
-        if(mPlayer.getLocation().x < 0) {
-            mPlayer.setLocation(mWidth-1, mPlayer.getLocation().y);
-        }
-
-        if(mPlayer.getLocation().y >= mHeight) {
-            mPlayer.setLocation(mPlayer.getLocation().x, 0);
-        }
-
-        if(mPlayer.getLocation().y < 0) {
-            mPlayer.setLocation(mPlayer.getLocation().x, mHeight-1);
-        }
-    }
-    
 }
@@ -0,0 +1,133 @@
+package snake;
+
+/**
+ * Camera is the part of the board that is shown, so a board larger than
+ * the window can be played. It follows the head of the snake, moving
+ * when the head comes within a margin of the edge of the view, and never
+ * shows anything outside the board.
+ *
+ * The top left tile of the view is kept as one packed cell, so a thread
+ * drawing the board always sees a position the camera really was at.
+ *
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class Camera {
+
+    private int mWorldWidth, mWorldHeight;
+    private int mColumns, mRows;
+    private int mMarginX, mMarginY;
+    private volatile int mOrigin;
+
+    /**
+     * Constructor of the Camera, the view is made smaller if the board is.
+     * @param inWorldWidth number of tiles on the board (x)
+     * @param inWorldHeight number of tiles on the board (y)
+     * @param inColumns number of tiles shown (x)
+     * @param inRows number of tiles shown (y)
+     */
+    public Camera(int inWorldWidth, int inWorldHeight, int inColumns, int inRows) {
+        mWorldWidth = inWorldWidth;
+        mWorldHeight = inWorldHeight;
+        mColumns = Math.min(inColumns, inWorldWidth);
+        mRows = Math.min(inRows, inWorldHeight);
+        mMarginX = mColumns / 4;
+        mMarginY = mRows / 4;
+        mOrigin = Cell.pack(0, 0);
+    }
+
+    /**
+     * Moves the view so a tile is kept away from its edges.
+     * @param inX horizontal position on the board
+     * @param inY vertical position on the board
+     * @return true if the view moved
+     */
+    public boolean follow(int inX, int inY) {
+        int origin = mOrigin;
+        int x = Cell.x(origin);
+        int y = Cell.y(origin);
+
+        if(inX < x + mMarginX) {
+            x = inX - mMarginX;
+        } else if(inX >= x + mColumns - mMarginX) {
+            x = inX - mColumns + mMarginX + 1;
+        }
+        if(inY < y + mMarginY) {
+            y = inY - mMarginY;
+        } else if(inY >= y + mRows - mMarginY) {
+            y = inY - mRows + mMarginY + 1;
+        }
+
+        return setPosition(x, y);
+    }
+
+    /**
+     * Moves the view so a tile is in the middle of it.
+     * @param inX horizontal position on the board
+     * @param inY vertical position on the board
+     */
+    public void center(int inX, int inY) {
+        setPosition(inX - mColumns / 2, inY - mRows / 2);
+    }
+
+    /**
+     * Moves the top left corner of the view, kept inside the board.
+     * @param inX horizontal position on the board
+     * @param inY vertical position on the board
+     * @return true if the view moved
+     */
+    public boolean setPosition(int inX, int inY) {
+        int x = Math.max(0, Math.min(inX, mWorldWidth - mColumns));
+        int y = Math.max(0, Math.min(inY, mWorldHeight - mRows));
+        int origin = Cell.pack(x, y);
+        if(origin == mOrigin) {
+            return false;
+        }
+        mOrigin = origin;
+        return true;
+    }
+
+    /**
+     * Gets the top left tile of the view.
+     * @return packed cell
+     */
+    public int getOrigin() {
+        return mOrigin;
+    }
+
+    /**
+     * Gets the column a tile is shown in.
+     * @param inX horizontal position on the board
+     * @return column, or -1 if the tile is not shown
+     */
+    public int getColumn(int inX) {
+        int column = inX - Cell.x(mOrigin);
+        return column >= 0 && column < mColumns ? column : -1;
+    }
+
+    /**
+     * Gets the row a tile is shown in.
+     * @param inY vertical position on the board
+     * @return row, or -1 if the tile is not shown
+     */
+    public int getRow(int inY) {
+        int row = inY - Cell.y(mOrigin);
+        return row >= 0 && row < mRows ? row : -1;
+    }
+
+    /**
+     * Getter for columns
+     * @return number of tiles shown (x)
+     */
+    public int getColumns() {
+        return mColumns;
+    }
+
+    /**
+     * Getter for rows
+     * @return number of tiles shown (y)
+     */
+    public int getRows() {
+        return mRows;
+    }
+}
@@ -0,0 +1,56 @@
+package snake;
+
+/**
+ * Cell packs a tile position into a single int, so positions can be
+ * stored in plain int arrays instead of as Point objects.
+ *
+ * The x position is kept in the upper 16 bits and the y position in the
+ * lower 16 bits, which allows boards up to MAX_SIZE tiles in each
+ * direction. Boards check their size against it when they are created.
+ *
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public final class Cell {
+
+    /**
+     * Value that never represents a tile on the board.
+     */
+    public static final int NONE = Integer.MIN_VALUE;
+
+    /**
+     * Most tiles in each direction of a board, so every position fits in a cell.
+     */
+    public static final int MAX_SIZE = 32767;
+
+    private Cell() {
+    }
+
+    /**
+     * Packs a position into a cell.
+     * @param inX horizontal position
+     * @param inY vertical position
+     * @return packed cell
+     */
+    public static int pack(int inX, int inY) {
+        return (inX << 16) | (inY & 0xFFFF);
+    }
+
+    /**
+     * Gets the horizontal position of a cell.
+     * @param inCell packed cell
+     * @return horizontal position
+     */
+    public static int x(int inCell) {
+        return inCell >> 16;
+    }
+
+    /**
+     * Gets the vertical position of a cell.
+     * @param inCell packed cell
+     * @return vertical position
+     */
+    public static int y(int inCell) {
+        return (short) inCell;
+    }
+}
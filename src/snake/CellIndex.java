@@ -0,0 +1,129 @@
+package snake;
+
+import java.util.Arrays;
+
+/**
+ * CellIndex maps packed cells to ints, like the slot of what is on the cell.
+ *
+ * It is a hash table with open addressing in two plain int arrays, sized
+ * once for the most cells it will hold, so looking up, adding and
+ * removing a cell are constant time and allocate nothing. Unlike an
+ * array over the whole board it stays small on huge boards.
+ *
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class CellIndex {
+
+    private final int[] mKeys;
+    private final int[] mValues;
+    private final int mMask;
+    private int mSize;
+
+    /**
+     * Constructor of the CellIndex.
+     * @param inCapacity most cells the index holds at once
+     */
+    public CellIndex(int inCapacity) {
+        int length = Integer.highestOneBit(Math.max(2, inCapacity) * 2 - 1) * 2;
+        mKeys = new int[length];
+        mValues = new int[length];
+        mMask = length - 1;
+        clear();
+    }
+
+    /**
+     * Gets the place a cell is first looked for.
+     * @param inCell packed cell
+     * @return index into the arrays
+     */
+    private int home(int inCell) {
+        // spread the bits of x and y over the table
+        int hash = inCell * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mMask;
+    }
+
+    /**
+     * Gets where a cell is kept, or the empty place it would be kept in.
+     * @param inCell packed cell
+     * @return index into the arrays
+     */
+    private int find(int inCell) {
+        int i = home(inCell);
+        while(mKeys[i] != Cell.NONE && mKeys[i] != inCell) {
+            i = (i + 1) & mMask;
+        }
+        return i;
+    }
+
+    /**
+     * Maps a cell to a value, replacing any earlier value.
+     * @param inCell packed cell
+     * @param inValue value to keep
+     * @throws IllegalStateException if the index is full
+     */
+    public void put(int inCell, int inValue) {
+        int i = find(inCell);
+        if(mKeys[i] == Cell.NONE) {
+            if(mSize * 2 >= mKeys.length) {
+                throw new IllegalStateException("Cell index is full");
+            }
+            mKeys[i] = inCell;
+            mSize++;
+        }
+        mValues[i] = inValue;
+    }
+
+    /**
+     * Gets the value of a cell.
+     * @param inCell packed cell
+     * @return the value, or -1 if the cell is not in the index
+     */
+    public int get(int inCell) {
+        int i = find(inCell);
+        return mKeys[i] == Cell.NONE ? -1 : mValues[i];
+    }
+
+    /**
+     * Removes a cell.
+     * @param inCell packed cell
+     * @return the value it had, or -1 if the cell was not in the index
+     */
+    public int remove(int inCell) {
+        int i = find(inCell);
+        if(mKeys[i] == Cell.NONE) {
+            return -1;
+        }
+        int value = mValues[i];
+
+        // move later cells of the same run back, so no lookup stops early
+        int hole = i;
+        for (int j = (i + 1) & mMask; mKeys[j] != Cell.NONE; j = (j + 1) & mMask) {
+            int home = home(mKeys[j]);
+            if(((j - home) & mMask) >= ((j - hole) & mMask)) {
+                mKeys[hole] = mKeys[j];
+                mValues[hole] = mValues[j];
+                hole = j;
+            }
+        }
+        mKeys[hole] = Cell.NONE;
+        mSize--;
+        return value;
+    }
+
+    /**
+     * Removes all cells.
+     */
+    public void clear() {
+        Arrays.fill(mKeys, Cell.NONE);
+        mSize = 0;
+    }
+
+    /**
+     * Gets the number of cells in the index.
+     * @return number of cells
+     */
+    public int size() {
+        return mSize;
+    }
+}
@@ -0,0 +1,238 @@
+package snake;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Image;
+import java.awt.event.KeyEvent;
+import java.awt.image.BufferedImage;
+import java.awt.event.KeyListener;
+import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+
+/**
+ * ClientBoard shows a game played on a GameServer.
+ *
+ * The board only draws what the server sends and sends the keys the
+ * player presses, all rules are on the server. A thread reads the
+ * messages into a RemoteState and asks for a repaint after each.
+ * A Camera follows the head, so large boards are shown around the snake.
+ *
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class ClientBoard extends JPanel implements Runnable, KeyListener {
+
+    private SpriteAtlas mSprites;
+    private BufferedImage mBackground;
+    private int mTileSize;
+    private SnakeGame mOwner;
+    private SocketChannel mChannel;
+    private final RemoteState mState = new RemoteState();
+    private final ByteBuffer mOut = ByteBuffer.allocate(1);
+    private Camera mCamera;
+
+    private static int VIEW_COLUMNS = 40;
+    private static int VIEW_ROWS = 30;
+
+    /**
+     * Constructor of the ClientBoard, connects and waits for the first state.
+     * @param inHost host of the server
+     * @param inPort port of the server
+     * @param inOwner owning SnakeGame object
+     * @throws IOException if the server can not be reached
+     */
+    public ClientBoard(String inHost, int inPort, SnakeGame inOwner) throws IOException {
+        mOwner = inOwner;
+        mChannel = SocketChannel.open(new InetSocketAddress(inHost, inPort));
+
+        // the size of the board comes with the first state
+        ByteBuffer in = ByteBuffer.allocate(4096);
+        while(mChannel.read(in) >= 0) {
+            in.flip();
+            boolean read = mState.read(in);
+            in.compact();
+            if(read) {
+                break;
+            }
+        }
+
+        mCamera = new Camera(mState.getWidth(), mState.getHeight(), VIEW_COLUMNS, VIEW_ROWS);
+        mCamera.center(Cell.x(mState.getHead()), Cell.y(mState.getHead()));
+
+        setBackground(Color.black);
+        setPreferredSize(new Dimension(mCamera.getColumns() * SpriteAtlas.SOURCE_SIZE, mCamera.getRows() * SpriteAtlas.SOURCE_SIZE));
+        setFocusable(true);
+        addKeyListener(this);
+        mSprites = SpriteAtlas.load();
+
+        Thread thread = new Thread(this, "Snake client");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Reads messages from the server, name required by the Runnable interface.
+     */
+    @Override
+    public void run() {
+        ByteBuffer in = ByteBuffer.allocate(4096);
+        try {
+            while(mChannel.read(in) >= 0) {
+                in.flip();
+                boolean dead = false;
+                synchronized (mState) {
+                    while(mState.read(in)) {
+                        dead |= mState.isDead();
+                    }
+                    mCamera.follow(Cell.x(mState.getHead()), Cell.y(mState.getHead()));
+                }
+                in.compact();
+
+                mOwner.setCurrentScore(mState.getPoints());
+                repaint();
+                if(dead) {
+                    SwingUtilities.invokeLater(new Runnable() {
+                        @Override
+                        public void run() {
+                            playAgainOrQuit();
+                        }
+                    });
+                }
+            }
+        } catch (IOException ex) {
+            Logger.getLogger(ClientBoard.class.getName()).log(Level.WARNING, null, ex);
+        }
+
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                JOptionPane.showMessageDialog(mOwner, "Anslutningen till servern bröts.", "Fel!", JOptionPane.ERROR_MESSAGE);
+                mOwner.dispatchEvent(new WindowEvent(mOwner, WindowEvent.WINDOW_CLOSING));
+            }
+        });
+    }
+
+    /**
+     * Lets the user choose to restart or quit, on the Swing thread.
+     */
+    private void playAgainOrQuit() {
+        String message = "Du fick " + mState.getPoints() + " poäng. Vill du spela igen?";
+        if(JOptionPane.showConfirmDialog(mOwner, message, null, JOptionPane.YES_NO_OPTION) == JOptionPane.YES_OPTION) {
+            send(Protocol.RESTART);
+        } else {
+            mOwner.dispatchEvent(new WindowEvent(mOwner, WindowEvent.WINDOW_CLOSING));
+        }
+    }
+
+    /**
+     * Sends a command to the server.
+     * @param inCommand the command
+     */
+    private void send(byte inCommand) {
+        synchronized (mOut) {
+            mOut.clear();
+            mOut.put(inCommand);
+            mOut.flip();
+            try {
+                mChannel.write(mOut);
+            } catch (IOException ex) {
+                // the reader thread tells the user
+                Logger.getLogger(ClientBoard.class.getName()).log(Level.WARNING, null, ex);
+            }
+        }
+    }
+
+    /**
+     * Handles the painting of the ClientBoard object, only the tiles
+     * in view of the camera are painted, as large as fits the panel.
+     * @param g graphics context
+     */
+    @Override
+    public void paint(Graphics g) {
+        int size = SpriteAtlas.fitTileSize(getWidth(), getHeight(), mCamera.getColumns(), mCamera.getRows());
+        if(mBackground == null || size != mTileSize) {
+            mTileSize = size;
+            mBackground = mSprites.createBackground(getGraphicsConfiguration(), size, mCamera.getColumns(), mCamera.getRows());
+        }
+        g.setColor(getBackground());
+        g.fillRect(0, 0, getWidth(), getHeight());
+        g.drawImage(mBackground, 0, 0, mCamera.getColumns() * size, mCamera.getRows() * size, this);
+
+        Image[] sprites = mSprites.getSprites(getGraphicsConfiguration(), size);
+        synchronized (mState) {
+            drawTile(g, sprites[SpriteAtlas.FOOD], mState.getFruit());
+
+            int count = mState.getCellCount();
+            for (int i = 0; i < count - 1; i++) {
+                drawTile(g, sprites[SpriteAtlas.BODY], mState.getCell(i));
+            }
+            drawTile(g, sprites[SpriteAtlas.HEAD], mState.getHead());
+        }
+    }
+
+    /**
+     * Draws an image on a tile, if the tile is in view.
+     * @param g graphics context
+     * @param inImage image to draw
+     * @param inCell packed cell of the tile on the board
+     */
+    private void drawTile(Graphics g, Image inImage, int inCell) {
+        int column = mCamera.getColumn(Cell.x(inCell));
+        int row = mCamera.getRow(Cell.y(inCell));
+        if(column >= 0 && row >= 0) {
+            g.drawImage(inImage, column * mTileSize, row * mTileSize, mTileSize, mTileSize, this);
+        }
+    }
+
+    /**
+     * Handles typed keys.
+     * @param e key event
+     */
+    @Override
+    public void keyTyped(KeyEvent e) {
+
+    }
+
+    /**
+     * Handles pressed keys, turns are sent to the server.
+     * @param e key event
+     */
+    @Override
+    public void keyPressed(KeyEvent e) {
+        int key = e.getKeyCode();
+
+        if(KeyEvent.VK_RIGHT == key) {
+            send((byte) Snake.MOVE_RIGHT);
+        }
+
+        if (KeyEvent.VK_LEFT == key) {
+            send((byte) Snake.MOVE_LEFT);
+        }
+
+        if(KeyEvent.VK_UP == key) {
+            send((byte) Snake.MOVE_UP);
+        }
+
+        if (KeyEvent.VK_DOWN == key) {
+            send((byte) Snake.MOVE_DOWN);
+        }
+    }
+
+    /**
+     * Handles releaded key events.
+     * @param e key event
+     */
+    @Override
+    public void keyReleased(KeyEvent e) {
+
+    }
+}
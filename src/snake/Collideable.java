@@ -19,10 +19,26 @@ public interface Collideable {
     
     /**
      * All locations that the object occupy.
+     * Builds a new list on every call, use getCells in the game loop.
      * @return all locations of the object
      */
     ArrayList<Point> getLocations();
     
+    /**
+     * Gets the number of tiles the object occupy.
+     * @return number of tiles
+     */
+    int getCellCount();
+    
+    /**
+     * Writes all tiles the object occupy as packed cells into an array,
+     * without allocating anything.
+     * 
+     * @param inCells array to fill, at least getCellCount() long
+     * @return number of cells written
+     */
+    int getCells(int[] inCells);
+    
     /**
      * Checks whether two objects collide.
      * 
@@ -31,4 +47,13 @@ public interface Collideable {
      */
     boolean collide(Collideable inObject);
     
+    /**
+     * Registers all locations of the object in an occupancy grid.
+     * The object keeps the grid up to date from then on,
+     * so collisions with it can be looked up per tile.
+     * 
+     * @param inGrid grid to register in
+     */
+    void register(OccupancyGrid inGrid);
+    
 }
@@ -0,0 +1,23 @@
+package snake;
+
+/**
+ * Controller is a simple interface for anything that steers a snake,
+ * like a bot playing the game without a window.
+ * 
+ * Controllers are created with their no argument constructor, one for
+ * every game, so they may keep state between steps of the same game.
+ * 
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public interface Controller {
+    
+    /**
+     * Decides which way the snake should go in the next step.
+     * 
+     * @param inEngine the game being played
+     * @return new direction, or Engine.KEEP_DIRECTION
+     */
+    int decide(Engine inEngine);
+    
+}
@@ -0,0 +1,66 @@
+package snake;
+
+/**
+ * DirtyTiles collects the tiles the game loop changed, for the Swing
+ * thread to paint one by one.
+ *
+ * Swing merges every area asked to be repainted into one rectangle, so
+ * the new head and the far away end of the tail would repaint most of
+ * the board. Instead the game loop adds the changed tiles here and asks
+ * for one paint when the first tile comes in, and the Swing thread takes
+ * all of them at once. The tiles are kept in a fixed array, when more
+ * tiles change than fit before Swing gets to them everything is painted.
+ *
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class DirtyTiles {
+
+    private final int[] mCells;
+    private int mCount;
+    private boolean mOverflow;
+
+    /**
+     * Constructor of the DirtyTiles.
+     * @param inCapacity most tiles kept before everything is painted
+     */
+    public DirtyTiles(int inCapacity) {
+        mCells = new int[inCapacity];
+    }
+
+    /**
+     * Adds a changed tile.
+     * @param inCell packed cell of the tile
+     * @return true if it is the first tile since the last drain, so a paint should be asked for
+     */
+    public synchronized boolean add(int inCell) {
+        boolean first = mCount == 0 && !mOverflow;
+        if(mCount < mCells.length) {
+            mCells[mCount++] = inCell;
+        } else {
+            mOverflow = true;
+        }
+        return first;
+    }
+
+    /**
+     * Takes all the changed tiles.
+     * @param inCells array to fill, at least getCapacity() long
+     * @return number of tiles written, or -1 if more tiles changed than fit
+     */
+    public synchronized int drain(int[] inCells) {
+        int count = mOverflow ? -1 : mCount;
+        System.arraycopy(mCells, 0, inCells, 0, mCount);
+        mCount = 0;
+        mOverflow = false;
+        return count;
+    }
+
+    /**
+     * Getter for capacity
+     * @return most tiles kept
+     */
+    public int getCapacity() {
+        return mCells.length;
+    }
+}
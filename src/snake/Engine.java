@@ -0,0 +1,333 @@
+package snake;
+
+import java.awt.Point;
+import java.nio.ByteBuffer;
+
+/**
+ * Engine holds the rules and the state of one game, without any window.
+ *
+ * The game advances one step at a time, so it can be driven by the game
+ * loop of a Board as well as run as fast as possible without a display.
+ * Besides the fruit that is always there, a game can have a number of
+ * Items that appear now and then and run out after a while.
+ *
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class Engine {
+
+    /**
+     * Direction meaning the snake keeps going the way it goes.
+     */
+    public static final int KEEP_DIRECTION = 0;
+
+    private static final int INITIAL_DIRECTION = Snake.MOVE_RIGHT;
+    private static final int SNAPSHOT_VERSION = 3;
+    private static final int LISTED_VERSION = 2;
+    private static final int ITEM_INTERVAL = 20;
+    private static final int BONUS_CHANCE = 4;
+
+    private int mWidth, mHeight;
+    private GameRandom mRandom;
+    private OccupancyGrid mGrid;
+    private Snake mPlayer;
+    private Fruit mFruit;
+    private Items mItems;
+    private int mPoints;
+    private long mTicks;
+    private boolean mDead;
+
+    /**
+     * Constructor of the Engine, the game starts out reset.
+     * @param inWidth number of tiles (x)
+     * @param inHeight number of tiles (y)
+     * @param inSeed seed for the random generator
+     */
+    public Engine(int inWidth, int inHeight, long inSeed) {
+        this(inWidth, inHeight, inSeed, 0);
+    }
+
+    /**
+     * Constructor of the Engine, the game starts out reset.
+     * @param inWidth number of tiles (x)
+     * @param inHeight number of tiles (y)
+     * @param inSeed seed for the random generator
+     * @param inItems most items on the board at once, besides the fruit
+     * @throws IllegalArgumentException if a side is less than 1 or more than Cell.MAX_SIZE
+     */
+    public Engine(int inWidth, int inHeight, long inSeed, int inItems) {
+        this(inWidth, inHeight, inSeed, inItems, false);
+    }
+
+    /**
+     * Constructor of the Engine, the game starts out reset.
+     * @param inWidth number of tiles (x)
+     * @param inHeight number of tiles (y)
+     * @param inSeed seed for the random generator
+     * @param inItems most items on the board at once, besides the fruit
+     * @param inListed true to pick free tiles like games of version 2 and older
+     * @throws IllegalArgumentException if a side is less than 1 or more than Cell.MAX_SIZE
+     */
+    public Engine(int inWidth, int inHeight, long inSeed, int inItems, boolean inListed) {
+        OccupancyGrid.checkSize(inWidth, inHeight);
+        mWidth = inWidth;
+        mHeight = inHeight;
+        mRandom = new GameRandom(inSeed);
+        mGrid = new OccupancyGrid(inWidth, inHeight, inListed);
+        mItems = new Items(inItems);
+        reset();
+    }
+
+    /**
+     * Resets the game to default starting state,
+     * the random generator continues where it was.
+     */
+    public void reset() {
+        mGrid.clear();
+        mPoints = 0;
+        mTicks = 0;
+        mDead = false;
+
+        mPlayer = new Snake(mWidth / 2, mHeight / 2, INITIAL_DIRECTION);
+        mPlayer.register(mGrid);
+
+        Point fruitLocation = mGrid.getRandomFree(mRandom);
+        mFruit = new Fruit(fruitLocation.x, fruitLocation.y);
+        mFruit.register(mGrid);
+
+        mItems.clear();
+        mItems.register(mGrid);
+    }
+
+    /**
+     * Resets the game and restarts the random generator from a seed.
+     * @param inSeed seed for the random generator
+     */
+    public void reset(long inSeed) {
+        mRandom.setSeed(inSeed);
+        reset();
+    }
+
+    /**
+     * Simulates one step of the game.
+     * @return false if the snake is dead
+     */
+    public boolean step() {
+        return step(KEEP_DIRECTION);
+    }
+
+    /**
+     * Turns the snake and simulates one step of the game.
+     * Turns straight back are ignored, just like key presses.
+     *
+     * @param inDirection new direction, or KEEP_DIRECTION
+     * @return false if the snake is dead
+     */
+    public boolean step(int inDirection) {
+        if(mDead) {
+            return false;
+        }
+
+        if(inDirection != KEEP_DIRECTION) {
+            mPlayer.setDirection(inDirection);
+        }
+
+        // the player wraps around the edges and updates the grid itself
+        mPlayer.update();
+        mTicks++;
+
+        // check if player collides with fruit
+        if(mFruit.collide(mPlayer)) {
+            mPlayer.grow();
+            mPoints++;
+
+            Point fruitLocation = mGrid.getRandomFree(mRandom);
+            if(fruitLocation != null) {
+                mFruit.setLocation(fruitLocation);
+            }
+        }
+
+        if(mItems.getCapacity() > 0) {
+            stepItems();
+        }
+
+        // check if player collides with it self
+        if(mPlayer.collide(mPlayer)) {
+            mDead = true;
+        }
+
+        return !mDead;
+    }
+
+    /**
+     * Lets the snake eat the item it ran into, takes away the items that
+     * ran out and puts a new item on the board now and then.
+     */
+    private void stepItems() {
+        mItems.clearChanged();
+        if(mPlayer.getHit() == mItems) {
+            Point head = mPlayer.getLocation();
+            int type = mItems.eat(Cell.pack(head.x, head.y));
+            mPlayer.grow();
+            mPoints += Items.getPoints(type);
+        }
+
+        mItems.expire(mTicks);
+
+        if(mTicks % ITEM_INTERVAL == 0 && mItems.getCellCount() < mItems.getCapacity()) {
+            int cell = mGrid.getRandomFreeCell(mRandom);
+            if(cell != Cell.NONE) {
+                int type = mRandom.nextInt(BONUS_CHANCE) == 0 ? Items.BONUS : Items.FRUIT;
+                mItems.spawn(type, cell, mTicks);
+            }
+        }
+    }
+
+    /**
+     * Gets the size of a snapshot of the game as it is now.
+     * @return size in bytes
+     */
+    public int getSnapshotSize() {
+        return 1 + 2 + 2 + 8 + 4 + 8 + 1 + mPlayer.getSnapshotSize() + 4 + mItems.getSnapshotSize()
+                + mGrid.getSnapshotSize();
+    }
+
+    /**
+     * Writes the whole state of the game, the random generator included,
+     * so restore continues exactly where the game was. A game that picks
+     * free tiles like version 2 writes a snapshot of that version.
+     * @param inBuffer buffer with room for getSnapshotSize bytes
+     */
+    public void snapshot(ByteBuffer inBuffer) {
+        inBuffer.put((byte) (mGrid.isListed() ? LISTED_VERSION : SNAPSHOT_VERSION));
+        inBuffer.putShort((short) mWidth);
+        inBuffer.putShort((short) mHeight);
+        inBuffer.putLong(mRandom.getState());
+        inBuffer.putInt(mPoints);
+        inBuffer.putLong(mTicks);
+        inBuffer.put((byte) (mDead ? 1 : 0));
+        mPlayer.snapshot(inBuffer);
+        inBuffer.putInt(Cell.pack(mFruit.getLocation().x, mFruit.getLocation().y));
+        mItems.snapshot(inBuffer);
+        mGrid.snapshot(inBuffer);
+    }
+
+    /**
+     * Replaces the state of the game with a snapshot. Snapshots of version 1
+     * have no items, and those of version 1 and 2 list the free tiles. A
+     * game that picks free tiles by rank goes on from them picking by rank.
+     * @param inBuffer buffer positioned at a snapshot written by snapshot
+     * @throws IllegalArgumentException if the snapshot is not of a game like this one
+     */
+    public void restore(ByteBuffer inBuffer) {
+        int version = inBuffer.get();
+        if(version < 1 || version > SNAPSHOT_VERSION) {
+            throw new IllegalArgumentException("Unknown snapshot version " + version);
+        }
+        int width = inBuffer.getShort();
+        int height = inBuffer.getShort();
+        if(width != mWidth || height != mHeight) {
+            throw new IllegalArgumentException("Snapshot of a " + width + "x" + height + " board");
+        }
+
+        mRandom.setState(inBuffer.getLong());
+        mPoints = inBuffer.getInt();
+        mTicks = inBuffer.getLong();
+        mDead = inBuffer.get() != 0;
+
+        // register in the same order as reset, so the ids are the same
+        mGrid.clear();
+        mPlayer.restore(inBuffer);
+        mPlayer.register(mGrid);
+        int fruit = inBuffer.getInt();
+        mFruit = new Fruit(Cell.x(fruit), Cell.y(fruit));
+        mFruit.register(mGrid);
+        if(version >= 2) {
+            mItems.restore(inBuffer);
+        } else {
+            mItems.clear();
+        }
+        mItems.register(mGrid);
+        mGrid.restore(inBuffer, version <= LISTED_VERSION);
+    }
+
+    /**
+     * Getter for the snake
+     * @return the snake
+     */
+    public Snake getSnake() {
+        return mPlayer;
+    }
+
+    /**
+     * Getter for the fruit
+     * @return the fruit
+     */
+    public Fruit getFruit() {
+        return mFruit;
+    }
+
+    /**
+     * Getter for the items
+     * @return the items besides the fruit
+     */
+    public Items getItems() {
+        return mItems;
+    }
+
+    /**
+     * Getter for the occupancy grid
+     * @return grid of the board
+     */
+    public OccupancyGrid getGrid() {
+        return mGrid;
+    }
+
+    /**
+     * Getter for the random generator
+     * @return random generator of the game
+     */
+    public GameRandom getRandom() {
+        return mRandom;
+    }
+
+    /**
+     * Getter for points
+     * @return points of the current game
+     */
+    public int getPoints() {
+        return mPoints;
+    }
+
+    /**
+     * Getter for the number of simulated steps
+     * @return steps since the game was reset
+     */
+    public long getTicks() {
+        return mTicks;
+    }
+
+    /**
+     * Getter for dead
+     * @return true if the snake has collided with itself
+     */
+    public boolean isDead() {
+        return mDead;
+    }
+
+    /**
+     * Getter for width
+     * @return number of tiles (x)
+     */
+    public int getWidth() {
+        return mWidth;
+    }
+
+    /**
+     * Getter for height
+     * @return number of tiles (y)
+     */
+    public int getHeight() {
+        return mHeight;
+    }
+}
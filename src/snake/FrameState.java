@@ -0,0 +1,169 @@
+package snake;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * FrameState is a copy of what is on the board after one step of the game,
+ * made by the game loop for a render thread to draw.
+ *
+ * Three states are passed around between the game loop and the render
+ * thread, so neither ever waits for the other or draws a half written
+ * state, and nothing is allocated unless the snake outgrows the cells.
+ *
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class FrameState {
+
+    private int[] mCells = new int[16];
+    private int mCellCount;
+    private int[] mItemCells = new int[0];
+    private int[] mItemTypes = new int[0];
+    private int mItemCount;
+    private int mPreviousHead, mFruit, mOrigin;
+    private long mTick, mCommitTime;
+
+    /**
+     * Copies the board of an engine.
+     * @param inEngine the game
+     * @param inPreviousHead packed cell of the head before the step
+     * @param inOrigin packed top left cell of the view
+     * @param inTick number of the step
+     */
+    void copy(Engine inEngine, int inPreviousHead, int inOrigin, long inTick) {
+        Snake snake = inEngine.getSnake();
+        if(mCells.length < snake.getCellCount()) {
+            mCells = new int[snake.getCellCount() * 2];
+        }
+
+        mCellCount = snake.getCells(mCells);
+
+        Items items = inEngine.getItems();
+        if(mItemCells.length < items.getCapacity()) {
+            mItemCells = new int[items.getCapacity()];
+            mItemTypes = new int[items.getCapacity()];
+        }
+        mItemCount = items.getCells(mItemCells);
+        items.getTypes(mItemTypes);
+        mPreviousHead = inPreviousHead;
+        mOrigin = inOrigin;
+        mFruit = Cell.pack(inEngine.getFruit().getLocation().x, inEngine.getFruit().getLocation().y);
+        mTick = inTick;
+        mCommitTime = System.nanoTime();
+    }
+
+    /**
+     * Gets the cells of the snake, the head first.
+     * @return packed cells, only the first getCellCount are valid
+     */
+    public int[] getCells() {
+        return mCells;
+    }
+
+    /**
+     * Gets the number of cells of the snake.
+     * @return number of cells
+     */
+    public int getCellCount() {
+        return mCellCount;
+    }
+
+    /**
+     * Gets the cells of the items.
+     * @return packed cells, only the first getItemCount are valid
+     */
+    public int[] getItemCells() {
+        return mItemCells;
+    }
+
+    /**
+     * Gets the types of the items, in the order of getItemCells.
+     * @return Items.FRUIT or Items.BONUS, only the first getItemCount are valid
+     */
+    public int[] getItemTypes() {
+        return mItemTypes;
+    }
+
+    /**
+     * Gets the number of items.
+     * @return number of items
+     */
+    public int getItemCount() {
+        return mItemCount;
+    }
+
+    /**
+     * Gets the cell the head was on before the step.
+     * @return packed cell
+     */
+    public int getPreviousHead() {
+        return mPreviousHead;
+    }
+
+    /**
+     * Gets the top left cell of the view the state is drawn in.
+     * @return packed cell
+     */
+    public int getOrigin() {
+        return mOrigin;
+    }
+
+    /**
+     * Gets the cell of the fruit.
+     * @return packed cell
+     */
+    public int getFruit() {
+        return mFruit;
+    }
+
+    /**
+     * Gets the number of the step, later steps have higher numbers.
+     * @return step number
+     */
+    public long getTick() {
+        return mTick;
+    }
+
+    /**
+     * Gets when the state was committed.
+     * @return System.nanoTime of the commit
+     */
+    public long getCommitTime() {
+        return mCommitTime;
+    }
+
+    /**
+     * Hands states from the game loop over to a render thread.
+     */
+    public static class Exchange {
+
+        private FrameState mWriting = new FrameState();
+        private FrameState mReading = new FrameState();
+        private AtomicReference<FrameState> mLatest = new AtomicReference<FrameState>(new FrameState());
+        private long mTicks;
+
+        /**
+         * Copies the board of an engine and makes it the latest state,
+         * only to be called by the game loop.
+         * @param inEngine the game
+         * @param inPreviousHead packed cell of the head before the step
+         * @param inOrigin packed top left cell of the view
+         */
+        public void commit(Engine inEngine, int inPreviousHead, int inOrigin) {
+            mWriting.copy(inEngine, inPreviousHead, inOrigin, ++mTicks);
+            mWriting = mLatest.getAndSet(mWriting);
+        }
+
+        /**
+         * Gets the latest committed state, only to be called by the render thread.
+         * The state stays valid until the next call.
+         * @return latest state
+         */
+        public FrameState latest() {
+            if(mLatest.get().getTick() > mReading.getTick()) {
+                mReading = mLatest.getAndSet(mReading);
+            }
+            return mReading;
+        }
+    }
+}
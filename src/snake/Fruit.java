@@ -11,6 +11,8 @@ import java.util.ArrayList;
  */
 public class Fruit implements Collideable {
     private Point mLocation;
+    private OccupancyGrid mGrid;
+    private int mId;
 
     /**
      * Constructor of the fruit class
@@ -26,6 +28,14 @@ public class Fruit implements Collideable {
      * @param inLocation new location
      */
     public void setLocation(Point inLocation) {
+        if(mGrid != null) {
+            // only free the old tile if nothing has taken it over
+            if(mGrid.getOccupantId(mLocation.x, mLocation.y) == mId) {
+                mGrid.free(mLocation.x, mLocation.y);
+            }
+            mGrid.occupy(inLocation.x, inLocation.y, mId);
+        }
+        
         this.mLocation = inLocation;
     }
     
@@ -49,14 +59,55 @@ public class Fruit implements Collideable {
         return locations;
     }
     
+    /**
+     * Gets the number of tiles the fruit occupy.
+     * @return number of tiles
+     */
+    @Override
+    public int getCellCount() {
+        return 1;
+    }
+    
+    /**
+     * Writes the tile of the fruit as a packed cell into an array.
+     * @param inCells array to fill
+     * @return number of cells written
+     */
+    @Override
+    public int getCells(int[] inCells) {
+        inCells[0] = Cell.pack(mLocation.x, mLocation.y);
+        return 1;
+    }
+    
     /**
      * Checks whether some other object collide with the fruit.
-     * 
+     * When registered in a grid this is a lookup on the tile of the object,
+     * a snake takes over the tile it moves to so it is asked what it ran into.
+     *
      * @param inObject the object that collides
      * @return true if there is a collision
      */
     @Override
     public boolean collide(Collideable inObject) {
+        if(mGrid != null) {
+            if(inObject instanceof Snake && ((Snake) inObject).getHit() == this) {
+                return true;
+            }
+            Point location = inObject.getLocation();
+            return mGrid.getOccupantId(location.x, location.y) == mId;
+        }
+
         return mLocation.equals(inObject.getLocation());
     }
+    
+    /**
+     * Registers the location of the fruit in an occupancy grid.
+     * @param inGrid grid to register in
+     */
+    @Override
+    public void register(OccupancyGrid inGrid) {
+        mGrid = inGrid;
+        mId = inGrid.register(this);
+        mGrid.occupy(mLocation.x, mLocation.y, mId);
+    }
 }
@@ -0,0 +1,198 @@
+package snake;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GameClock decides when the game should be simulated.
+ *
+ * Time is measured with System.nanoTime and collected in an accumulator,
+ * every whole tick in the accumulator is one simulation step. If the game
+ * falls behind it catches up at most a few ticks at a time and drops the
+ * rest, so a stall never turns into a burst of moves. The clock also keeps
+ * track of the actual tick and frame rates.
+ *
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class GameClock {
+
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    private long mTickNanos;
+    private int mMaxCatchUp;
+    private long mLastTime, mAccumulator;
+    private boolean mPaused;
+
+    private long mTickStatsStart, mFrameStatsStart;
+    private int mTicks, mFrames;
+    private volatile double mTickRate, mFrameRate;
+
+    /**
+     * Constructor of the GameClock.
+     * @param inTicksPerSecond number of simulation steps per second
+     * @param inMaxCatchUp maximum number of steps to catch up at once
+     */
+    public GameClock(int inTicksPerSecond, int inMaxCatchUp) {
+        mMaxCatchUp = inMaxCatchUp;
+        setTicksPerSecond(inTicksPerSecond);
+        reset();
+    }
+
+    /**
+     * Sets the number of simulation steps per second.
+     * @param inTicksPerSecond steps per second
+     */
+    public synchronized void setTicksPerSecond(int inTicksPerSecond) {
+        mTickNanos = NANOS_PER_SECOND / inTicksPerSecond;
+    }
+
+    /**
+     * Gets the number of simulation steps per second.
+     * @return steps per second
+     */
+    public synchronized int getTicksPerSecond() {
+        return (int) (NANOS_PER_SECOND / mTickNanos);
+    }
+
+    /**
+     * Gets the length of a simulation step.
+     * @return nanoseconds per step
+     */
+    public synchronized long getTickNanos() {
+        return mTickNanos;
+    }
+
+    /**
+     * Forgets all time that has passed, for example after a dialog was open.
+     */
+    public synchronized void reset() {
+        mLastTime = System.nanoTime();
+        mAccumulator = 0;
+        mTickStatsStart = mLastTime;
+        mTicks = 0;
+    }
+
+    /**
+     * Collects the time passed since the last call.
+     * @return number of simulation steps to run now
+     */
+    public synchronized int advance() {
+        long now = System.nanoTime();
+        mAccumulator += now - mLastTime;
+        mLastTime = now;
+
+        int ticks = (int) Math.min(mAccumulator / mTickNanos, mMaxCatchUp);
+        mAccumulator -= ticks * mTickNanos;
+
+        // drop what could not be caught up with
+        if(mAccumulator >= mTickNanos) {
+            mAccumulator %= mTickNanos;
+        }
+
+        mTicks += ticks;
+        if(now - mTickStatsStart >= NANOS_PER_SECOND) {
+            mTickRate = mTicks * (double) NANOS_PER_SECOND / (now - mTickStatsStart);
+            mTickStatsStart = now;
+            mTicks = 0;
+        }
+
+        return ticks;
+    }
+
+    /**
+     * Gets how far the game is between the last step and the next one.
+     * @return fraction of a step, between 0 and 1
+     */
+    public synchronized double getAlpha() {
+        return (double) mAccumulator / mTickNanos;
+    }
+
+    /**
+     * Gets the time left until the next simulation step, for loops that
+     * wait for something else in the meantime.
+     * @return nanoseconds, 0 or less if the step is due
+     */
+    public synchronized long getNanosUntilNextTick() {
+        return mTickNanos - mAccumulator - (System.nanoTime() - mLastTime);
+    }
+
+    /**
+     * Sleeps until it is time for the next simulation step.
+     * @throws InterruptedException if the thread is interrupted
+     */
+    public void sleepUntilNextTick() throws InterruptedException {
+        long remaining = getNanosUntilNextTick();
+        if(remaining > 0) {
+            TimeUnit.NANOSECONDS.sleep(remaining);
+        }
+    }
+
+    /**
+     * Pauses or resumes the clock.
+     * @param inPaused pause?
+     */
+    public synchronized void setPaused(boolean inPaused) {
+        mPaused = inPaused;
+        if(!mPaused) {
+            reset();
+            notifyAll();
+        }
+    }
+
+    /**
+     * Getter for paused
+     * @return true if the clock is paused
+     */
+    public synchronized boolean isPaused() {
+        return mPaused;
+    }
+
+    /**
+     * Blocks the calling thread, without using any CPU, while paused.
+     * @throws InterruptedException if the thread is interrupted
+     */
+    public synchronized void waitWhilePaused() throws InterruptedException {
+        while(mPaused) {
+            wait();
+        }
+    }
+
+    /**
+     * Counts one rendered frame, called by whoever does the rendering.
+     */
+    public void frameRendered() {
+        long now = System.nanoTime();
+        if(mFrames++ == 0) {
+            mFrameStatsStart = now;
+        } else if(now - mFrameStatsStart >= NANOS_PER_SECOND) {
+            mFrameRate = (mFrames - 1) * (double) NANOS_PER_SECOND / (now - mFrameStatsStart);
+            mFrameStatsStart = now;
+            mFrames = 1;
+        }
+    }
+
+    /**
+     * Gets the number of simulation steps during the last second.
+     * @return actual tick rate
+     */
+    public double getTickRate() {
+        return mTickRate;
+    }
+
+    /**
+     * Gets the number of rendered frames during the last second.
+     * @return actual frame rate
+     */
+    public double getFrameRate() {
+        return mFrameRate;
+    }
+
+    /**
+     * Returns the actual rates as a string.
+     * @return tick and frame rate
+     */
+    @Override
+    public String toString() {
+        return String.format("%.1f ticks/s, %.1f frames/s", mTickRate, mFrameRate);
+    }
+}
@@ -0,0 +1,425 @@
+package snake;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * GameMetrics records how long steps, frames, turns and saves take, and
+ * counts what happens in the games.
+ *
+ * The game loop, the renderer, the input and the high score writer each
+ * record into their own LatencyHistogram, which allocates nothing and
+ * takes no locks, so the metrics are always on. They are shown through
+ * JMX, and can be written as a line of CSV or logged now and then.
+ *
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class GameMetrics implements GameMetricsMBean {
+
+    /**
+     * Name the metrics of the process are registered under.
+     */
+    public static final String OBJECT_NAME = "snake:type=GameMetrics";
+
+    private static GameMetrics sInstance;
+
+    private final LatencyHistogram mTicks = new LatencyHistogram();
+    private final LatencyHistogram mFrames = new LatencyHistogram();
+    private final LatencyHistogram mInput = new LatencyHistogram();
+    private final LatencyHistogram mSaves = new LatencyHistogram();
+    private final AtomicLong mFruits = new AtomicLong();
+    private final AtomicLong mDeaths = new AtomicLong();
+    private volatile long mLoadNanos;
+    private volatile GameClock mClock;
+
+    /**
+     * Gets the metrics of the process, registered with the platform
+     * MBean server the first time.
+     * @return the metrics
+     */
+    public static synchronized GameMetrics getInstance() {
+        if(sInstance == null) {
+            sInstance = new GameMetrics();
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(sInstance, new ObjectName(OBJECT_NAME));
+            } catch (JMException ex) {
+                // the metrics are still recorded and can be dumped
+                Logger.getLogger(GameMetrics.class.getName()).log(Level.WARNING, "Metrics are not shown through JMX", ex);
+            }
+        }
+        return sInstance;
+    }
+
+    /**
+     * Records the time of one step of the game loop.
+     * @param inNanos time in nanoseconds
+     */
+    public void tickDone(long inNanos) {
+        mTicks.record(inNanos);
+    }
+
+    /**
+     * Records the time it took to draw one frame.
+     * @param inNanos time in nanoseconds
+     */
+    public void frameDone(long inNanos) {
+        mFrames.record(inNanos);
+    }
+
+    /**
+     * Records the time from a key press to the move it turned.
+     * @param inNanos time in nanoseconds
+     */
+    public void inputMoved(long inNanos) {
+        mInput.record(inNanos);
+    }
+
+    /**
+     * Records the time it took to save the high scores.
+     * @param inNanos time in nanoseconds
+     */
+    public void saved(long inNanos) {
+        mSaves.record(inNanos);
+    }
+
+    /**
+     * Records the time it took to load the high scores.
+     * @param inNanos time in nanoseconds
+     */
+    public void loaded(long inNanos) {
+        mLoadNanos = inNanos;
+    }
+
+    /**
+     * Sets the clock of the game loop, whose actual rates are shown.
+     * @param inClock the clock
+     */
+    public void watch(GameClock inClock) {
+        mClock = inClock;
+    }
+
+    /**
+     * Counts a fruit being eaten.
+     */
+    public void fruitEaten() {
+        mFruits.incrementAndGet();
+    }
+
+    /**
+     * Counts a game ending.
+     */
+    public void died() {
+        mDeaths.incrementAndGet();
+    }
+
+    /**
+     * Converts nanoseconds to microseconds.
+     * @param inNanos time in nanoseconds
+     * @return time in microseconds
+     */
+    private static double micros(double inNanos) {
+        return inNanos / 1e3;
+    }
+
+    /**
+     * Gets the number of simulated steps.
+     * @return number of steps
+     */
+    @Override
+    public long getTickCount() {
+        return mTicks.getCount();
+    }
+
+    /**
+     * Gets the average time a step took.
+     * @return time in microseconds
+     */
+    @Override
+    public double getTickMeanMicros() {
+        return micros(mTicks.getMean());
+    }
+
+    /**
+     * Gets the time 99 percent of the steps took at most.
+     * @return time in microseconds
+     */
+    @Override
+    public double getTickP99Micros() {
+        return micros(mTicks.getPercentile(99));
+    }
+
+    /**
+     * Gets the longest time a step took.
+     * @return time in microseconds
+     */
+    @Override
+    public double getTickMaxMicros() {
+        return micros(mTicks.getMax());
+    }
+
+    /**
+     * Gets the number of drawn frames.
+     * @return number of frames
+     */
+    @Override
+    public long getFrameCount() {
+        return mFrames.getCount();
+    }
+
+    /**
+     * Gets the average time a frame took to draw.
+     * @return time in microseconds
+     */
+    @Override
+    public double getFrameMeanMicros() {
+        return micros(mFrames.getMean());
+    }
+
+    /**
+     * Gets the time 99 percent of the frames took at most.
+     * @return time in microseconds
+     */
+    @Override
+    public double getFrameP99Micros() {
+        return micros(mFrames.getPercentile(99));
+    }
+
+    /**
+     * Gets the longest time a frame took.
+     * @return time in microseconds
+     */
+    @Override
+    public double getFrameMaxMicros() {
+        return micros(mFrames.getMax());
+    }
+
+    /**
+     * Gets the number of turns taken from key presses.
+     * @return number of turns
+     */
+    @Override
+    public long getInputCount() {
+        return mInput.getCount();
+    }
+
+    /**
+     * Gets the average time from key press to move.
+     * @return time in microseconds
+     */
+    @Override
+    public double getInputMeanMicros() {
+        return micros(mInput.getMean());
+    }
+
+    /**
+     * Gets the time from key press to move of 99 percent of the turns at most.
+     * @return time in microseconds
+     */
+    @Override
+    public double getInputP99Micros() {
+        return micros(mInput.getPercentile(99));
+    }
+
+    /**
+     * Gets the longest time from key press to move.
+     * @return time in microseconds
+     */
+    @Override
+    public double getInputMaxMicros() {
+        return micros(mInput.getMax());
+    }
+
+    /**
+     * Gets the number of times the high scores were saved.
+     * @return number of saves
+     */
+    @Override
+    public long getSaveCount() {
+        return mSaves.getCount();
+    }
+
+    /**
+     * Gets the average time saving the high scores took.
+     * @return time in microseconds
+     */
+    @Override
+    public double getSaveMeanMicros() {
+        return micros(mSaves.getMean());
+    }
+
+    /**
+     * Gets the time 99 percent of the saves took at most.
+     * @return time in microseconds
+     */
+    @Override
+    public double getSaveP99Micros() {
+        return micros(mSaves.getPercentile(99));
+    }
+
+    /**
+     * Gets the longest time a save took.
+     * @return time in microseconds
+     */
+    @Override
+    public double getSaveMaxMicros() {
+        return micros(mSaves.getMax());
+    }
+
+    /**
+     * Gets the number of steps the game clock ran during the last second.
+     * @return steps per second
+     */
+    @Override
+    public double getTickRate() {
+        GameClock clock = mClock;
+        return clock == null ? 0 : clock.getTickRate();
+    }
+
+    /**
+     * Gets the number of frames drawn during the last second.
+     * @return frames per second
+     */
+    @Override
+    public double getFrameRate() {
+        GameClock clock = mClock;
+        return clock == null ? 0 : clock.getFrameRate();
+    }
+
+    /**
+     * Gets the time loading the high scores took the last time.
+     * @return time in microseconds
+     */
+    @Override
+    public double getLoadMicros() {
+        return micros(mLoadNanos);
+    }
+
+    /**
+     * Gets the number of fruits eaten.
+     * @return number of fruits
+     */
+    @Override
+    public long getFruitsEaten() {
+        return mFruits.get();
+    }
+
+    /**
+     * Gets the number of games that ended.
+     * @return number of deaths
+     */
+    @Override
+    public long getDeaths() {
+        return mDeaths.get();
+    }
+
+    /**
+     * Gets all the metrics on one line.
+     * @return the metrics
+     */
+    @Override
+    public String getSummary() {
+        return String.format("%d ticks (mean %.1f, p99 %.1f, max %.1f us), %d frames (mean %.1f, p99 %.1f, max %.1f us), "
+                + "%d turns (mean %.1f, p99 %.1f, max %.1f us), %d saves (mean %.1f, p99 %.1f, max %.1f us), "
+                + "%.1f ticks/s, %.1f frames/s, %d fruits, %d deaths",
+                getTickCount(), getTickMeanMicros(), getTickP99Micros(), getTickMaxMicros(),
+                getFrameCount(), getFrameMeanMicros(), getFrameP99Micros(), getFrameMaxMicros(),
+                getInputCount(), getInputMeanMicros(), getInputP99Micros(), getInputMaxMicros(),
+                getSaveCount(), getSaveMeanMicros(), getSaveP99Micros(), getSaveMaxMicros(),
+                getTickRate(), getFrameRate(), getFruitsEaten(), getDeaths());
+    }
+
+    /**
+     * Forgets everything recorded so far.
+     */
+    @Override
+    public void reset() {
+        mTicks.reset();
+        mFrames.reset();
+        mInput.reset();
+        mSaves.reset();
+        mFruits.set(0);
+        mDeaths.set(0);
+    }
+
+    /**
+     * Gets the names of the columns written by toCsv.
+     * @return the column names, separated by commas
+     */
+    public static String getCsvHeader() {
+        return "time,ticks,tick_mean_us,tick_p99_us,tick_max_us,frames,frame_mean_us,frame_p99_us,frame_max_us,"
+                + "turns,input_mean_us,input_p99_us,input_max_us,saves,save_mean_us,save_p99_us,save_max_us,"
+                + "tick_rate,frame_rate,load_us,fruits,deaths";
+    }
+
+    /**
+     * Gets all the metrics as a line of CSV.
+     * @return the values, separated by commas
+     */
+    public String toCsv() {
+        return String.format(Locale.ROOT,
+                "%d,%d,%.1f,%.1f,%.1f,%d,%.1f,%.1f,%.1f,%d,%.1f,%.1f,%.1f,%d,%.1f,%.1f,%.1f,%.1f,%.1f,%.1f,%d,%d",
+                System.currentTimeMillis(),
+                getTickCount(), getTickMeanMicros(), getTickP99Micros(), getTickMaxMicros(),
+                getFrameCount(), getFrameMeanMicros(), getFrameP99Micros(), getFrameMaxMicros(),
+                getInputCount(), getInputMeanMicros(), getInputP99Micros(), getInputMaxMicros(),
+                getSaveCount(), getSaveMeanMicros(), getSaveP99Micros(), getSaveMaxMicros(),
+                getTickRate(), getFrameRate(), getLoadMicros(), getFruitsEaten(), getDeaths());
+    }
+
+    /**
+     * Starts a thread that appends a line of CSV to a file, or logs the
+     * summary, once every period for as long as the process runs.
+     * @param inFile file to append to, or null to log
+     * @param inPeriodSeconds seconds between the lines
+     */
+    public void startDump(final File inFile, final long inPeriodSeconds) {
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while(true) {
+                        TimeUnit.SECONDS.sleep(inPeriodSeconds);
+                        dump(inFile);
+                    }
+                } catch (InterruptedException ex) {
+                    Logger.getLogger(GameMetrics.class.getName()).log(Level.FINE, null, ex);
+                }
+            }
+        }, "Snake metrics");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Appends a line of CSV to a file, with the header if the file is new,
+     * or logs the summary.
+     * @param inFile file to append to, or null to log
+     */
+    void dump(File inFile) {
+        if(inFile == null) {
+            Logger.getLogger(GameMetrics.class.getName()).log(Level.INFO, getSummary());
+            return;
+        }
+
+        boolean header = !inFile.exists() || inFile.length() == 0;
+        try (Writer writer = new FileWriter(inFile, true)) {
+            if(header) {
+                writer.write(getCsvHeader() + "\n");
+            }
+            writer.write(toCsv() + "\n");
+        } catch (IOException ex) {
+            Logger.getLogger(GameMetrics.class.getName()).log(Level.WARNING, "Metrics can not be written", ex);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package snake;
+
+/**
+ * GameMetricsMBean is what GameMetrics shows through JMX, in jconsole
+ * or any other JMX client under the name snake:type=GameMetrics.
+ * Times are in microseconds.
+ *
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public interface GameMetricsMBean {
+
+    /**
+     * Gets the number of simulated steps.
+     * @return number of steps
+     */
+    long getTickCount();
+
+    /**
+     * Gets the average time a step took.
+     * @return time in microseconds
+     */
+    double getTickMeanMicros();
+
+    /**
+     * Gets the time 99 percent of the steps took at most.
+     * @return time in microseconds
+     */
+    double getTickP99Micros();
+
+    /**
+     * Gets the longest time a step took.
+     * @return time in microseconds
+     */
+    double getTickMaxMicros();
+
+    /**
+     * Gets the number of drawn frames.
+     * @return number of frames
+     */
+    long getFrameCount();
+
+    /**
+     * Gets the average time a frame took to draw.
+     * @return time in microseconds
+     */
+    double getFrameMeanMicros();
+
+    /**
+     * Gets the time 99 percent of the frames took at most.
+     * @return time in microseconds
+     */
+    double getFrameP99Micros();
+
+    /**
+     * Gets the longest time a frame took.
+     * @return time in microseconds
+     */
+    double getFrameMaxMicros();
+
+    /**
+     * Gets the number of turns taken from key presses.
+     * @return number of turns
+     */
+    long getInputCount();
+
+    /**
+     * Gets the average time from key press to move.
+     * @return time in microseconds
+     */
+    double getInputMeanMicros();
+
+    /**
+     * Gets the time from key press to move of 99 percent of the turns at most.
+     * @return time in microseconds
+     */
+    double getInputP99Micros();
+
+    /**
+     * Gets the longest time from key press to move.
+     * @return time in microseconds
+     */
+    double getInputMaxMicros();
+
+    /**
+     * Gets the number of times the high scores were saved.
+     * @return number of saves
+     */
+    long getSaveCount();
+
+    /**
+     * Gets the average time saving the high scores took.
+     * @return time in microseconds
+     */
+    double getSaveMeanMicros();
+
+    /**
+     * Gets the time 99 percent of the saves took at most.
+     * @return time in microseconds
+     */
+    double getSaveP99Micros();
+
+    /**
+     * Gets the longest time a save took.
+     * @return time in microseconds
+     */
+    double getSaveMaxMicros();
+
+    /**
+     * Gets the number of steps the game clock ran during the last second.
+     * @return steps per second
+     */
+    double getTickRate();
+
+    /**
+     * Gets the number of frames drawn during the last second.
+     * @return frames per second
+     */
+    double getFrameRate();
+
+    /**
+     * Gets the time loading the high scores took the last time.
+     * @return time in microseconds
+     */
+    double getLoadMicros();
+
+    /**
+     * Gets the number of fruits eaten.
+     * @return number of fruits
+     */
+    long getFruitsEaten();
+
+    /**
+     * Gets the number of games that ended.
+     * @return number of deaths
+     */
+    long getDeaths();
+
+    /**
+     * Gets all the metrics on one line.
+     * @return the metrics
+     */
+    String getSummary();
+
+    /**
+     * Forgets everything recorded so far.
+     */
+    void reset();
+}
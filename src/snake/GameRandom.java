@@ -0,0 +1,67 @@
+package snake;
+
+import java.util.Random;
+
+/**
+ * GameRandom is a seedable random generator whose whole state is one long.
+ *
+ * Unlike java.util.Random the state can be read and restored, so a game can
+ * be replayed or resumed exactly. Numbers are generated with SplitMix64.
+ *
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class GameRandom extends Random {
+
+    private static final long serialVersionUID = 3839271203582816726L;
+
+    private long mState;
+
+    /**
+     * Constructor of the GameRandom.
+     * @param inSeed seed
+     */
+    public GameRandom(long inSeed) {
+        super(inSeed);
+        mState = inSeed;
+    }
+
+    /**
+     * Restarts the sequence from a seed.
+     * @param inSeed seed
+     */
+    @Override
+    public synchronized void setSeed(long inSeed) {
+        mState = inSeed;
+    }
+
+    /**
+     * Gets the current state, to continue the sequence from later.
+     * @return state
+     */
+    public long getState() {
+        return mState;
+    }
+
+    /**
+     * Continues the sequence from an earlier state.
+     * @param inState state given by getState
+     */
+    public void setState(long inState) {
+        mState = inState;
+    }
+
+    /**
+     * Generates the next random bits, used by all the other methods.
+     * @param inBits number of bits
+     * @return random bits
+     */
+    @Override
+    protected int next(int inBits) {
+        long z = (mState += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+        return (int) (z >>> (64 - inBits));
+    }
+}
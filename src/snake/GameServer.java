@@ -0,0 +1,390 @@
+package snake;
+
+import java.awt.Point;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * GameServer plays games for clients connected over the network.
+ *
+ * Every connection gets its own game, run headless by an Engine. One
+ * thread does everything: it waits on a selector for connections, turns
+ * and room to write until the next step is due, and then steps all games
+ * and sends every client what changed, see Protocol. Clients that fall
+ * too far behind reading are dropped, so a slow client never makes the
+ * server buffer without limit.
+ *
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class GameServer implements Runnable {
+
+    private static final int TICKS_PER_SECOND = 20;
+    private static final int MAX_CATCH_UP = 5;
+    private static final int BUFFERED_TURNS = 3;
+    private static final int MAX_BACKLOG = 64 * 1024;
+
+    private int mWidth, mHeight;
+    private long mSeed;
+    private Selector mSelector;
+    private ServerSocketChannel mServer;
+    private GameClock mClock;
+    private ArrayList<Session> mSessions = new ArrayList();
+    private int[] mCells = new int[64];
+    private volatile boolean mRunning = true;
+    private volatile int mSessionCount;
+
+    /**
+     * Constructor of the GameServer, listens right away.
+     * @param inPort port to listen on, 0 for any free port
+     * @param inWidth number of tiles (x) of every game
+     * @param inHeight number of tiles (y) of every game
+     * @param inSeed seed of the first game, the next games count up from it
+     * @throws IOException if the port can not be listened on
+     * @throws IllegalArgumentException if a side is less than 1 or more than Cell.MAX_SIZE
+     */
+    public GameServer(int inPort, int inWidth, int inHeight, long inSeed) throws IOException {
+        OccupancyGrid.checkSize(inWidth, inHeight);
+        mWidth = inWidth;
+        mHeight = inHeight;
+        mSeed = inSeed;
+        mClock = new GameClock(TICKS_PER_SECOND, MAX_CATCH_UP);
+
+        mSelector = Selector.open();
+        mServer = ServerSocketChannel.open();
+        mServer.bind(new InetSocketAddress(inPort), 1024);
+        mServer.configureBlocking(false);
+        mServer.register(mSelector, SelectionKey.OP_ACCEPT);
+    }
+
+    /**
+     * Gets the port the server listens on.
+     * @return port number
+     */
+    public int getPort() {
+        return mServer.socket().getLocalPort();
+    }
+
+    /**
+     * Gets the number of connected clients.
+     * @return number of sessions
+     */
+    public int getSessionCount() {
+        return mSessionCount;
+    }
+
+    /**
+     * Makes the server loop close all connections and return.
+     */
+    public void stop() {
+        mRunning = false;
+        mSelector.wakeup();
+    }
+
+    /**
+     * The server loop, name required by the Runnable interface.
+     */
+    @Override
+    public void run() {
+        try {
+            mClock.reset();
+            while(mRunning) {
+                // rounded up, the last part of a millisecond would spin on selectNow
+                long nanos = mClock.getNanosUntilNextTick();
+                if(nanos > 0) {
+                    mSelector.select((nanos + 999999) / 1000000);
+                } else {
+                    mSelector.selectNow();
+                }
+
+                Iterator<SelectionKey> keys = mSelector.selectedKeys().iterator();
+                while(keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    handle(key);
+                }
+
+                int ticks = mClock.advance();
+                for (int i = 0; i < ticks; i++) {
+                    tick();
+                }
+            }
+        } catch (IOException ex) {
+            Logger.getLogger(GameServer.class.getName()).log(Level.SEVERE, null, ex);
+        } finally {
+            for (Session session : mSessions) {
+                session.close();
+            }
+            try {
+                mServer.close();
+                mSelector.close();
+            } catch (IOException ex) {
+                Logger.getLogger(GameServer.class.getName()).log(Level.WARNING, null, ex);
+            }
+        }
+    }
+
+    /**
+     * Handles a selected key.
+     * @param inKey the key
+     * @throws IOException if the server socket fails
+     */
+    private void handle(SelectionKey inKey) throws IOException {
+        if(!inKey.isValid()) {
+            return;
+        }
+
+        if(inKey.isAcceptable()) {
+            accept();
+            return;
+        }
+
+        Session session = (Session) inKey.attachment();
+        try {
+            if(inKey.isReadable()) {
+                session.read();
+            }
+            if(inKey.isValid() && inKey.isWritable()) {
+                session.flush();
+            }
+        } catch (IOException ex) {
+            // the client went away
+            session.close();
+        }
+    }
+
+    /**
+     * Accepts the waiting connections and starts a game for each.
+     * @throws IOException if the server socket fails
+     */
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while((channel = mServer.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            Session session = new Session(channel, new Engine(mWidth, mHeight, mSeed++));
+            session.mKey = channel.register(mSelector, SelectionKey.OP_READ, session);
+            mSessions.add(session);
+
+            try {
+                session.sendState();
+                session.flush();
+            } catch (IOException ex) {
+                session.close();
+            }
+        }
+        mSessionCount = mSessions.size();
+    }
+
+    /**
+     * Steps every game that is being played and sends what changed.
+     */
+    private void tick() {
+        Iterator<Session> sessions = mSessions.iterator();
+        while(sessions.hasNext()) {
+            Session session = sessions.next();
+            if(session.mClosed) {
+                sessions.remove();
+                continue;
+            }
+
+            try {
+                session.step();
+                session.flush();
+            } catch (IOException ex) {
+                session.close();
+            }
+        }
+        mSessionCount = mSessions.size();
+    }
+
+    /**
+     * One connected client and its game.
+     */
+    private class Session {
+
+        private final SocketChannel mChannel;
+        private final Engine mEngine;
+        private final InputQueue mInput = new InputQueue(BUFFERED_TURNS);
+        private final ByteBuffer mIn = ByteBuffer.allocate(64);
+        private ByteBuffer mOut = ByteBuffer.allocate(256);
+        private SelectionKey mKey;
+        private boolean mClosed;
+
+        /**
+         * Constructor of the Session.
+         * @param inChannel connection to the client
+         * @param inEngine the game of the client
+         */
+        Session(SocketChannel inChannel, Engine inEngine) {
+            mChannel = inChannel;
+            mEngine = inEngine;
+        }
+
+        /**
+         * Reads turns and restarts sent by the client.
+         * @throws IOException if the client went away
+         */
+        void read() throws IOException {
+            if(mChannel.read(mIn) < 0) {
+                throw new IOException("Closed by client");
+            }
+
+            mIn.flip();
+            while(mIn.hasRemaining()) {
+                byte command = mIn.get();
+                if(command == Protocol.RESTART && mEngine.isDead()) {
+                    mEngine.reset();
+                    mInput.clear();
+                    sendState();
+                } else if(command >= Snake.MOVE_UP && command <= Snake.MOVE_RIGHT) {
+                    mInput.offer(command);
+                }
+            }
+            mIn.clear();
+            flush();
+        }
+
+        /**
+         * Steps the game, unless the snake is dead, and queues what changed.
+         * @throws IOException if the client is too far behind
+         */
+        void step() throws IOException {
+            if(mEngine.isDead()) {
+                return;
+            }
+
+            Point fruit = mEngine.getFruit().getLocation();
+            int fruitCell = Cell.pack(fruit.x, fruit.y);
+            int points = mEngine.getPoints();
+
+            mEngine.step(mInput.poll(mEngine.getSnake().getDirection()));
+            mInput.moved();
+
+            reserve(Protocol.MAX_DELTA_SIZE);
+            Protocol.writeDelta(mEngine, fruitCell, points, mOut);
+        }
+
+        /**
+         * Queues the whole state of the game.
+         * @throws IOException if the client is too far behind
+         */
+        void sendState() throws IOException {
+            int count = mEngine.getSnake().getCellCount();
+            if(mCells.length < count) {
+                mCells = new int[count * 2];
+            }
+            reserve(Protocol.getStateSize(mEngine));
+            Protocol.writeState(mEngine, mCells, mOut);
+        }
+
+        /**
+         * Makes room in the outgoing buffer.
+         * @param inBytes number of bytes to make room for
+         * @throws IOException if the client is too far behind
+         */
+        private void reserve(int inBytes) throws IOException {
+            if(mOut.remaining() >= inBytes) {
+                return;
+            }
+
+            int needed = mOut.position() + inBytes;
+            if(needed > MAX_BACKLOG) {
+                throw new IOException("Client too far behind");
+            }
+            int capacity = mOut.capacity();
+            while(capacity < needed) {
+                capacity *= 2;
+            }
+            ByteBuffer out = ByteBuffer.allocate(capacity);
+            mOut.flip();
+            out.put(mOut);
+            mOut = out;
+        }
+
+        /**
+         * Writes as much as the connection takes, and waits for room
+         * to write the rest.
+         * @throws IOException if the client went away
+         */
+        void flush() throws IOException {
+            if(mOut.position() == 0) {
+                return;
+            }
+
+            mOut.flip();
+            mChannel.write(mOut);
+            mOut.compact();
+
+            if(mOut.position() > 0) {
+                mKey.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            } else {
+                mKey.interestOps(SelectionKey.OP_READ);
+            }
+        }
+
+        /**
+         * Closes the connection, the session is removed in the next step.
+         */
+        void close() {
+            mClosed = true;
+            if(mKey != null) {
+                mKey.cancel();
+            }
+            try {
+                mChannel.close();
+            } catch (IOException ex) {
+                Logger.getLogger(GameServer.class.getName()).log(Level.FINE, null, ex);
+            }
+        }
+    }
+
+    /**
+     * Starts a server and runs it until the process is stopped.
+     * @param args --port, --width, --height and --seed
+     * @throws IOException if the port can not be listened on
+     */
+    public static void main(String[] args) throws IOException {
+        int port = 7777;
+        int width = 30;
+        int height = 20;
+        long seed = System.nanoTime();
+
+        for (int i = 0; i < args.length; i += 2) {
+            if(i + 1 == args.length) {
+                throw new IllegalArgumentException("Missing value for option: " + args[i]);
+            }
+            String value = args[i + 1];
+            switch(args[i]) {
+                case "--port":
+                    port = Integer.parseInt(value);
+                    break;
+                case "--width":
+                    width = Integer.parseInt(value);
+                    break;
+                case "--height":
+                    height = Integer.parseInt(value);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        GameServer server = new GameServer(port, width, height, seed);
+        System.out.println("Listening on port " + server.getPort());
+        server.run();
+    }
+}
@@ -0,0 +1,32 @@
+package snake;
+
+import java.awt.Point;
+
+/**
+ * GreedyArenaController heads straight for one of the fruits, avoiding
+ * every snake. Snakes are spread over the fruits by their index, so they
+ * do not all chase the same one.
+ *
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class GreedyArenaController implements ArenaController {
+
+    /**
+     * Picks the safe direction that gets the snake closest to its fruit.
+     *
+     * @param inArena the arena
+     * @param inSnake index of the snake
+     * @return new direction, or Engine.KEEP_DIRECTION if nothing is safe
+     */
+    @Override
+    public int decide(Arena inArena, int inSnake) {
+        Fruit[] fruits = inArena.getFruits();
+        if(fruits.length == 0) {
+            return Engine.KEEP_DIRECTION;
+        }
+
+        Point fruit = fruits[inSnake % fruits.length].getLocation();
+        return GreedyController.steer(inArena.getSnake(inSnake), fruit.x, fruit.y, inArena.getGrid());
+    }
+}
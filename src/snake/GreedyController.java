@@ -0,0 +1,97 @@
+package snake;
+
+import java.awt.Point;
+
+/**
+ * GreedyController heads straight for the fruit, only avoiding tiles
+ * that the snake itself is on. It is the baseline bot of the batch mode.
+ *
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class GreedyController implements Controller {
+
+    private static final int[] DIRECTIONS = {
+        Snake.MOVE_UP, Snake.MOVE_DOWN, Snake.MOVE_LEFT, Snake.MOVE_RIGHT
+    };
+
+    /**
+     * Picks the safe direction that gets the snake closest to the fruit.
+     *
+     * @param inEngine the game being played
+     * @return new direction, or Engine.KEEP_DIRECTION if nothing is safe
+     */
+    @Override
+    public int decide(Engine inEngine) {
+        Point fruit = inEngine.getFruit().getLocation();
+        return steer(inEngine.getSnake(), fruit.x, fruit.y, inEngine.getGrid());
+    }
+
+    /**
+     * Picks the direction that gets a snake closest to a tile, without
+     * running into any snake.
+     *
+     * @param inSnake the snake
+     * @param inX horizontal position of the tile
+     * @param inY vertical position of the tile
+     * @param inGrid grid the snake is registered in
+     * @return new direction, or Engine.KEEP_DIRECTION if nothing is safe
+     */
+    static int steer(Snake inSnake, int inX, int inY, OccupancyGrid inGrid) {
+        Point head = inSnake.getLocation();
+        int width = inGrid.getWidth();
+        int height = inGrid.getHeight();
+
+        int best = Engine.KEEP_DIRECTION;
+        int bestDistance = Integer.MAX_VALUE;
+
+        for (int direction : DIRECTIONS) {
+            // turning straight back is never allowed
+            int combo = inSnake.getDirection() + direction;
+            if(combo == 3 || combo == 7) {
+                continue;
+            }
+
+            int x = head.x;
+            int y = head.y;
+            switch(direction) {
+                case Snake.MOVE_DOWN:
+                    y = (y + 1) % height;
+                    break;
+                case Snake.MOVE_LEFT:
+                    x = (x + width - 1) % width;
+                    break;
+                case Snake.MOVE_RIGHT:
+                    x = (x + 1) % width;
+                    break;
+                case Snake.MOVE_UP:
+                    y = (y + height - 1) % height;
+                    break;
+            }
+
+            if(inGrid.getOccupant(x, y) instanceof Snake) {
+                continue;
+            }
+
+            int distance = distance(x, inX, width) + distance(y, inY, height);
+            if(distance < bestDistance) {
+                bestDistance = distance;
+                best = direction;
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * Distance between two positions on an axis that wraps around.
+     * @param inFrom first position
+     * @param inTo second position
+     * @param inSize size of the axis
+     * @return number of tiles between the positions
+     */
+    private static int distance(int inFrom, int inTo, int inSize) {
+        int distance = Math.abs(inFrom - inTo);
+        return Math.min(distance, inSize - distance);
+    }
+}
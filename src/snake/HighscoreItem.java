@@ -9,6 +9,9 @@ import java.io.Serializable;
  * @vesion 2013-01-11
  */
 public class HighscoreItem implements Serializable {
+    // the id of the first version, needed to read old high score files
+    private static final long serialVersionUID = 7111982518142414538L;
+    
     // Instance variables for name and points
     private String mName;
     private int mPoints;
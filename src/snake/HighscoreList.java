@@ -1,40 +1,82 @@
 package snake;
 
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
 
 /**
  * HighscoreList represents a list of highscores.
  * 
+ * The list is the top 10 of a Leaderboard that keeps every score posted.
+ * 
+ * The list is stored in a binary snapshot file: a magic number, a format
+ * version, a generation, the names and points, and a CRC32 checksum of
+ * all of it. A save writes a temporary file, forces it to disk and renames
+ * it over the old one, so a crash never leaves a half written list behind.
+ * Files written with Java serialization by earlier versions are read
+ * and converted the first time they are loaded.
+ * 
+ * Scores added after the snapshot are appended to a journal, one small
+ * checksummed record each, so adding a score costs the same however long
+ * the list is. Loading replays the journal on top of the snapshot. A save
+ * compacts the two: it writes a snapshot of the next generation and then
+ * starts an empty journal of that generation, a journal of an older
+ * generation is already part of the snapshot and is ignored.
+ * 
  * @author Christopher Lindblom
  * @version 2013-01-11
  */
 public class HighscoreList implements Serializable {
+    // the id of the first version, needed to read old high score files
+    private static final long serialVersionUID = 4791886680195413097L;
 
-    private ArrayList<HighscoreItem> mHighscores;
+    // old files contain the top 10 as a list, nothing else is serialized
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("mHighscores", ArrayList.class)
+    };
+
+    private static final int SIZE = 10;
     private static final String FILE_NAME = "highscore.dat";
+    private static final String JOURNAL_NAME = "highscore.journal";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int MAGIC = 0x534E4B48;
+    private static final short VERSION = 2;
+    private static final int JOURNAL_MAGIC = 0x534E4B4A;
+    private static final short JOURNAL_VERSION = 1;
+    private static final int JOURNAL_HEADER = 4 + 2 + 8;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private transient Leaderboard mLeaderboard;
     private transient String mFilePath;
+    private transient long mGeneration;
+    private transient long mJournalBytes;
     
     /**
      * Constructor for HighscoreList
      * @param inFilePath path to folder
      */
     public HighscoreList(String inFilePath) {
-        mHighscores = new ArrayList();
-        
-        for (int i = 0; i < 10; i++) {
-            mHighscores.add(new HighscoreItem("", 0));
-        }
-        
+        mLeaderboard = new Leaderboard();
         mFilePath = fixFilePath(inFilePath);
     }
     
@@ -46,22 +88,135 @@ public class HighscoreList implements Serializable {
      */
     static public HighscoreList load(String inPath) {
         // load from file
-        HighscoreList highscoreList;
+        HighscoreList highscoreList = new HighscoreList(inPath);
         String filePath = fixFilePath(inPath);
         try {
-            FileInputStream fis;
-            fis = new FileInputStream(filePath + FILE_NAME);
-            ObjectInputStream ois = new ObjectInputStream(fis);
-            highscoreList = (HighscoreList) ois.readObject();
-            highscoreList.setFilePath(filePath);
-        } catch (IOException | ClassNotFoundException ex) {
+            ByteBuffer buffer = readFile(Paths.get(filePath + FILE_NAME));
+            
+            if(buffer.remaining() >= 4 && buffer.getInt(0) == MAGIC) {
+                highscoreList.decode(buffer);
+            } else {
+                // written with serialization by an earlier version, convert it
+                highscoreList = deserialize(buffer);
+                highscoreList.setFilePath(filePath);
+                highscoreList.save();
+            }
+        } catch (NoSuchFileException ex) {
+            // no high scores yet
+        } catch (IOException | ClassNotFoundException | ClassCastException ex) {
             // create a new high score list if there were a problem
+            Logger.getLogger(HighscoreList.class.getName()).log(Level.WARNING, 
+                    "Could not load high scores from " + filePath + FILE_NAME, ex);
             highscoreList = new HighscoreList(inPath);
         }
         
+        highscoreList.replayJournal();
         return highscoreList;
     }
     
+    /**
+     * Adds the scores in the journal to the list, if it belongs to the snapshot.
+     * A record that was only partly written when the program stopped is cut off.
+     */
+    private void replayJournal() {
+        Path file = Paths.get(mFilePath + JOURNAL_NAME);
+        mJournalBytes = 0;
+        try {
+            ByteBuffer buffer = readFile(file);
+            if(buffer.remaining() < JOURNAL_HEADER || buffer.getInt() != JOURNAL_MAGIC 
+                    || buffer.getShort() != JOURNAL_VERSION) {
+                throw new IOException("High score journal has a bad header");
+            }
+            
+            // an older journal is already part of the snapshot
+            if(buffer.getLong() != mGeneration) {
+                return;
+            }
+            
+            int end = buffer.position();
+            HighscoreItem item;
+            while((item = readRecord(buffer)) != null) {
+                mLeaderboard.submit(item.getName(), item.getPoints());
+                end = buffer.position();
+            }
+            
+            if(end < buffer.limit()) {
+                Logger.getLogger(HighscoreList.class.getName()).log(Level.WARNING, 
+                        "Dropped {0} bytes at the end of {1}", new Object[] {buffer.limit() - end, file});
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    channel.truncate(end);
+                }
+            }
+            mJournalBytes = end;
+        } catch (NoSuchFileException ex) {
+            // nothing added since the snapshot
+        } catch (IOException ex) {
+            // the next score starts a new journal
+            Logger.getLogger(HighscoreList.class.getName()).log(Level.WARNING, 
+                    "Could not replay high scores from " + file, ex);
+        }
+    }
+    
+    /**
+     * Reads one journal record.
+     * @param inBuffer journal, positioned at the record
+     * @return the score, or null if the record is missing or damaged
+     */
+    static private HighscoreItem readRecord(ByteBuffer inBuffer) {
+        int start = inBuffer.position();
+        if(inBuffer.remaining() < 4) {
+            return null;
+        }
+        
+        int length = inBuffer.getInt();
+        // compared this way round so a huge length can not overflow
+        if(length < 0 || length > inBuffer.remaining() - 8) {
+            return null;
+        }
+        
+        byte[] name = new byte[length];
+        inBuffer.get(name);
+        int points = inBuffer.getInt();
+        
+        CRC32 crc = new CRC32();
+        crc.update(inBuffer.array(), start, inBuffer.position() - start);
+        if(inBuffer.getInt() != (int) crc.getValue()) {
+            return null;
+        }
+        
+        return new HighscoreItem(new String(name, UTF_8), points);
+    }
+    
+    /**
+     * Reads a whole file through a file channel.
+     * @param inFile the file
+     * @return buffer with the content of the file
+     * @throws IOException if the file can not be read
+     */
+    static private ByteBuffer readFile(Path inFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(inFile, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while(buffer.hasRemaining() && channel.read(buffer) >= 0) {
+            }
+            buffer.flip();
+            return buffer;
+        }
+    }
+    
+    /**
+     * Reads a high score list written with serialization.
+     * @param inBuffer content of the file
+     * @return the high score list
+     * @throws IOException if the list can not be read
+     * @throws ClassNotFoundException if the list can not be read
+     */
+    static private HighscoreList deserialize(ByteBuffer inBuffer) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream ois = new ObjectInputStream(
+                new ByteArrayInputStream(inBuffer.array(), 0, inBuffer.limit()))) {
+            return (HighscoreList) ois.readObject();
+        }
+    }
+    
     /**
      * Removes jar file name from the path and fix special characters.
      * 
@@ -86,15 +241,249 @@ public class HighscoreList implements Serializable {
     }
     
     /**
-     * Saves high score to disk
+     * Saves high score to disk, replacing the old file in one step, and
+     * empties the journal. Only one thread at a time may save or append.
+     * 
+     * @throws IOException if the file can not be written
+     */
+    public void save() throws IOException {
+        long generation = mGeneration + 1;
+        writeAtomically(Paths.get(mFilePath + FILE_NAME), encode(generation));
+        
+        ByteBuffer header = encodeJournal(generation, new ArrayList<HighscoreItem>());
+        writeAtomically(Paths.get(mFilePath + JOURNAL_NAME), header);
+        mGeneration = generation;
+        mJournalBytes = JOURNAL_HEADER;
+    }
+    
+    /**
+     * Appends scores that are already in the list to the journal.
+     * Only one thread at a time may save or append.
      * 
-     * @throws FileNotFoundException
-     * @throws IOException 
+     * @param inItems the scores
+     * @throws IOException if the journal can not be written
+     */
+    public void append(List<HighscoreItem> inItems) throws IOException {
+        ByteBuffer buffer = encodeJournal(mGeneration, inItems);
+        
+        if(mJournalBytes == 0) {
+            // there is no usable journal, start one
+            writeAtomically(Paths.get(mFilePath + JOURNAL_NAME), buffer);
+            mJournalBytes = buffer.limit();
+            return;
+        }
+        
+        buffer.position(JOURNAL_HEADER);
+        try (FileChannel channel = FileChannel.open(Paths.get(mFilePath + JOURNAL_NAME), StandardOpenOption.WRITE)) {
+            long position = mJournalBytes;
+            while(buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            channel.force(false);
+        }
+        mJournalBytes += buffer.limit() - JOURNAL_HEADER;
+    }
+    
+    /**
+     * Gets the size of the journal, to know when it is time to save.
+     * @return size in bytes
+     */
+    public long getJournalSize() {
+        return mJournalBytes;
+    }
+    
+    /**
+     * Replaces a file in one step, with a temporary file forced to disk.
+     * @param inFile the file
+     * @param inBuffer new content
+     * @throws IOException if the file can not be written
+     */
+    static void writeAtomically(Path inFile, ByteBuffer inBuffer) throws IOException {
+        Path file = inFile.toAbsolutePath();
+        Path temp = Paths.get(file + TEMP_SUFFIX);
+        
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, 
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while(inBuffer.hasRemaining()) {
+                channel.write(inBuffer);
+            }
+            channel.force(true);
+        }
+        
+        try {
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        
+        // make the rename itself survive a crash
+        try (FileChannel folder = FileChannel.open(file.getParent(), StandardOpenOption.READ)) {
+            folder.force(true);
+        } catch (IOException ex) {
+            // folders can not be opened on all platforms
+        }
+    }
+    
+    /**
+     * Writes a journal header followed by scores.
+     * @param inGeneration generation of the snapshot the journal belongs to
+     * @param inItems the scores
+     * @return buffer ready to be written
      */
-    public void save() throws FileNotFoundException, IOException {
-        FileOutputStream fos = new FileOutputStream(mFilePath + FILE_NAME);
-        ObjectOutputStream oos = new ObjectOutputStream(fos);
-        oos.writeObject(this);
+    static private ByteBuffer encodeJournal(long inGeneration, List<HighscoreItem> inItems) {
+        byte[][] names = new byte[inItems.size()][];
+        int size = JOURNAL_HEADER;
+        for (int i = 0; i < names.length; i++) {
+            names[i] = inItems.get(i).getName().getBytes(UTF_8);
+            size += 4 + names[i].length + 4 + 4;
+        }
+        
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(JOURNAL_MAGIC);
+        buffer.putShort(JOURNAL_VERSION);
+        buffer.putLong(inGeneration);
+        CRC32 crc = new CRC32();
+        for (int i = 0; i < names.length; i++) {
+            int start = buffer.position();
+            buffer.putInt(names[i].length);
+            buffer.put(names[i]);
+            buffer.putInt(inItems.get(i).getPoints());
+            
+            crc.reset();
+            crc.update(buffer.array(), start, buffer.position() - start);
+            buffer.putInt((int) crc.getValue());
+        }
+        
+        buffer.flip();
+        return buffer;
+    }
+    
+    /**
+     * Writes the high scores in the binary file format.
+     * @param inGeneration generation of the snapshot
+     * @return buffer ready to be written
+     */
+    private ByteBuffer encode(long inGeneration) {
+        List<HighscoreItem> highscores = mLeaderboard.getTop(Integer.MAX_VALUE);
+        byte[][] names = new byte[highscores.size()][];
+        int size = 4 + 2 + 8 + 4 + 4;
+        for (int i = 0; i < names.length; i++) {
+            names[i] = highscores.get(i).getName().getBytes(UTF_8);
+            size += 4 + names[i].length + 4;
+        }
+        
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.putLong(inGeneration);
+        buffer.putInt(names.length);
+        for (int i = 0; i < names.length; i++) {
+            buffer.putInt(names[i].length);
+            buffer.put(names[i]);
+            buffer.putInt(highscores.get(i).getPoints());
+        }
+        
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        
+        buffer.flip();
+        return buffer;
+    }
+    
+    /**
+     * Reads high scores in the binary file format.
+     * @param inBuffer content of the file
+     * @throws IOException if the checksum, version or content is wrong
+     */
+    private void decode(ByteBuffer inBuffer) throws IOException {
+        int end = inBuffer.limit() - 4;
+        if(end < 4 + 2 + 4) {
+            throw new IOException("High score file is truncated");
+        }
+        
+        CRC32 crc = new CRC32();
+        crc.update(inBuffer.array(), 0, end);
+        if(inBuffer.getInt(end) != (int) crc.getValue()) {
+            throw new IOException("High score file has a bad checksum");
+        }
+        
+        try {
+            inBuffer.getInt();
+            short version = inBuffer.getShort();
+            if(version != 1 && version != VERSION) {
+                throw new IOException("High score file has unknown version " + version);
+            }
+            
+            // the first version had no journal
+            long generation = version == 1 ? 0 : inBuffer.getLong();
+            
+            int count = inBuffer.getInt();
+            Leaderboard leaderboard = new Leaderboard();
+            for (int i = 0; i < count; i++) {
+                byte[] name = new byte[inBuffer.getInt()];
+                inBuffer.get(name);
+                addLoaded(leaderboard, new HighscoreItem(new String(name, UTF_8), inBuffer.getInt()));
+            }
+            mLeaderboard = leaderboard;
+            mGeneration = generation;
+        } catch (BufferUnderflowException | NegativeArraySizeException ex) {
+            throw new IOException("High score file is truncated", ex);
+        }
+    }
+    
+    /**
+     * Writes the top of the list the way earlier versions serialized it.
+     * @param inStream the stream
+     * @throws IOException if the list can not be written
+     */
+    private void writeObject(ObjectOutputStream inStream) throws IOException {
+        inStream.putFields().put("mHighscores", new ArrayList(mLeaderboard.getTop(SIZE)));
+        inStream.writeFields();
+    }
+    
+    /**
+     * Reads a high score list written with serialization by an earlier version.
+     * @param inStream the stream
+     * @throws IOException if the list can not be read
+     * @throws ClassNotFoundException if the list can not be read
+     */
+    private void readObject(ObjectInputStream inStream) throws IOException, ClassNotFoundException {
+        ArrayList<HighscoreItem> highscores = (ArrayList<HighscoreItem>) inStream.readFields().get("mHighscores", null);
+        mLeaderboard = new Leaderboard();
+        if(highscores != null) {
+            for (HighscoreItem item : highscores) {
+                addLoaded(mLeaderboard, item);
+            }
+        }
+    }
+    
+    /**
+     * Adds a loaded score to a leaderboard, in the order they were saved.
+     * Earlier versions filled empty places with nameless zero scores, those are skipped.
+     * @param inLeaderboard the leaderboard
+     * @param inItem the score
+     */
+    static private void addLoaded(Leaderboard inLeaderboard, HighscoreItem inItem) {
+        if(inItem.getPoints() != 0 || !inItem.getName().isEmpty()) {
+            inLeaderboard.submit(inItem.getName(), inItem.getPoints());
+        }
+    }
+    
+    /**
+     * Getter for the leaderboard with every score posted
+     * @return leaderboard
+     */
+    public Leaderboard getLeaderboard() {
+        return mLeaderboard;
+    }
+    
+    /**
+     * Getter for file path
+     * @return folder the high score files are kept in
+     */
+    public String getFilePath() {
+        return mFilePath;
     }
     
     /**
@@ -110,7 +499,8 @@ public class HighscoreList implements Serializable {
      * @return highest score
      */
     public int getHighestScore() {
-        return mHighscores.get(0).getPoints();
+        HighscoreItem best = mLeaderboard.get(1);
+        return best == null ? 0 : best.getPoints();
     }
     
     /**
@@ -119,44 +509,19 @@ public class HighscoreList implements Serializable {
      * @return result
      */
     public boolean isHighscore(int inScore) {
-        return getBeaten(inScore) != null;
+        return inScore > 0 && mLeaderboard.getCountAtLeast(inScore) < SIZE;
     }
     
     
     /**
      * Adds a name and score to the high score list.
+     * Every score is kept, the list shows the best ones.
      * 
      * @param inName name of the player
      * @param inScore points
      */
     public void add(String inName, int inScore) {
-        HighscoreItem beaten = getBeaten(inScore);
-        if(beaten != null) {
-            mHighscores.add(mHighscores.indexOf(beaten), new HighscoreItem(inName, inScore));
-        }
-        
-        while(mHighscores.size() > 10) {
-            mHighscores.remove(10);
-        }
-    }
-    
-    /**
-     * Gets the first item thats beaten by the provided score.
-     * @param inScore points to compare with
-     * @return beaten high score item
-     */
-    private HighscoreItem getBeaten(int inScore) {
-        HighscoreItem beatenItem = null;
-        
-        Iterator iterator = mHighscores.iterator();
-        while(beatenItem == null && iterator.hasNext()) {
-            HighscoreItem item = (HighscoreItem)iterator.next();
-            if(item.getPoints() < inScore) {
-                beatenItem = item;
-            }
-        }
-        
-        return beatenItem;
+        mLeaderboard.submit(inName, inScore);
     }
     
     /**
@@ -166,8 +531,9 @@ public class HighscoreList implements Serializable {
     @Override
     public String toString() {
         String string = "";
-        for (int i = 0; i < mHighscores.size(); i++) {
-            HighscoreItem item = mHighscores.get(i);
+        List<HighscoreItem> highscores = mLeaderboard.getTop(SIZE);
+        for (int i = 0; i < highscores.size(); i++) {
+            HighscoreItem item = highscores.get(i);
             // only include real high scores
             if(item.getPoints() > 0) {
                 string += (i + 1) + ": " + item + "\n";
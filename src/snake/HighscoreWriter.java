@@ -0,0 +1,199 @@
+package snake;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * HighscoreWriter saves a high score list on its own thread, so nobody
+ * adding a score ever waits for the disk.
+ *
+ * New scores are queued, and only the writer puts them in the list. It
+ * takes everything queued since its last save, puts it in the list and
+ * appends all of it to the journal of the list in one write, however many
+ * scores came in while the disk was busy. When the journal has grown past
+ * a threshold the writer compacts it into a new snapshot, which then holds
+ * exactly the scores in the journal so far. Whatever is still queued when
+ * the program exits is saved before it does.
+ *
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class HighscoreWriter implements Runnable {
+
+    // tells the writer to stop after the scores queued before it
+    private static final HighscoreItem STOP = new HighscoreItem("", 0);
+    private static final long CLOSE_TIMEOUT_MILLIS = 5000;
+    private static final long COMPACT_BYTES = 1 << 20;
+
+    private final HighscoreList mHighscore;
+    private final Listener mListener;
+    private final LinkedBlockingQueue<HighscoreItem> mQueue = new LinkedBlockingQueue();
+    private final Thread mThread;
+    private final Thread mShutdownHook;
+    private final long mCompactBytes;
+    private long mAdded, mListed, mSaved;
+
+    /**
+     * Constructor of the HighscoreWriter.
+     * @param inHighscore the list to save
+     * @param inListener told about every save, on the writer thread
+     */
+    public HighscoreWriter(HighscoreList inHighscore, Listener inListener) {
+        this(inHighscore, inListener, COMPACT_BYTES);
+    }
+
+    /**
+     * Constructor of the HighscoreWriter.
+     * @param inHighscore the list to save
+     * @param inListener told about every save, on the writer thread
+     * @param inCompactBytes journal size that makes the writer compact it
+     */
+    public HighscoreWriter(HighscoreList inHighscore, Listener inListener, long inCompactBytes) {
+        mHighscore = inHighscore;
+        mListener = inListener;
+        mCompactBytes = inCompactBytes;
+
+        mThread = new Thread(this, "Highscore writer");
+        mThread.setDaemon(true);
+        mShutdownHook = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                close();
+            }
+        }, "Highscore writer shutdown");
+    }
+
+    /**
+     * Starts the writer thread, the list is saved before the program exits.
+     */
+    public void start() {
+        mThread.start();
+        Runtime.getRuntime().addShutdownHook(mShutdownHook);
+    }
+
+    /**
+     * Queues a name and score to be put in the list and saved.
+     * Never waits for the disk.
+     * @param inName name of the player
+     * @param inScore points
+     */
+    public void add(String inName, int inScore) {
+        synchronized (this) {
+            mAdded++;
+        }
+        mQueue.add(new HighscoreItem(inName, inScore));
+    }
+
+    /**
+     * Waits until every score added so far is in the list, which the
+     * writer does before it goes to the disk.
+     * @throws InterruptedException if the thread is interrupted
+     */
+    public synchronized void awaitListed() throws InterruptedException {
+        long added = mAdded;
+        while(mListed < added && mThread.isAlive()) {
+            wait(100);
+        }
+    }
+
+    /**
+     * Waits until every score added so far has been saved, or failed to be.
+     * @throws InterruptedException if the thread is interrupted
+     */
+    public synchronized void flush() throws InterruptedException {
+        long added = mAdded;
+        while(mSaved < added && mThread.isAlive()) {
+            wait(100);
+        }
+    }
+
+    /**
+     * Saves what is queued and stops the writer thread.
+     */
+    public void close() {
+        mQueue.add(STOP);
+        try {
+            mThread.join(CLOSE_TIMEOUT_MILLIS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            Runtime.getRuntime().removeShutdownHook(mShutdownHook);
+        } catch (IllegalStateException ex) {
+            // already shutting down
+        }
+    }
+
+    /**
+     * The writer loop, name required by the Runnable interface.
+     */
+    @Override
+    public void run() {
+        ArrayList<HighscoreItem> batch = new ArrayList();
+        boolean running = true;
+
+        while(running) {
+            try {
+                batch.add(mQueue.take());
+            } catch (InterruptedException ex) {
+                Logger.getLogger(HighscoreWriter.class.getName()).log(Level.SEVERE, null, ex);
+                continue;
+            }
+
+            // everything that came in while waiting is saved together
+            mQueue.drainTo(batch);
+            running = !batch.remove(STOP);
+
+            // a compaction on this thread can not catch a score half added
+            for (HighscoreItem item : batch) {
+                mHighscore.add(item.getName(), item.getPoints());
+            }
+            synchronized (this) {
+                mListed += batch.size();
+                notifyAll();
+            }
+
+            if(!batch.isEmpty()) {
+                long start = System.nanoTime();
+                try {
+                    mHighscore.append(batch);
+                    if(mHighscore.getJournalSize() >= mCompactBytes) {
+                        mHighscore.save();
+                    }
+                    mListener.saved(batch.size(), System.nanoTime() - start);
+                } catch (IOException ex) {
+                    mListener.failed(ex);
+                }
+            }
+
+            synchronized (this) {
+                mSaved += batch.size();
+                notifyAll();
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Is told how saving went.
+     */
+    public interface Listener {
+
+        /**
+         * Called after the scores were saved, and the journal compacted if needed.
+         * @param inScores number of scores added since the last save
+         * @param inNanos time it took to save
+         */
+        void saved(int inScores, long inNanos);
+
+        /**
+         * Called when the list could not be saved, the scores stay in the list.
+         * @param inException what went wrong
+         */
+        void failed(IOException inException);
+    }
+}
@@ -0,0 +1,168 @@
+package snake;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * InputQueue passes turns from the thread handling key presses to the
+ * game loop, without locks.
+ *
+ * It is a bounded ring buffer with exactly one thread putting turns in and
+ * one thread taking them out. The game loop takes at most one turn per
+ * step, so several key presses within one step are all played in order
+ * instead of only the last one. Every turn is stamped when it is put in,
+ * which gives the time from key press to move. Pausing and resuming go
+ * through the queue as well, so the game loop applies them between two
+ * steps and in order with the turns.
+ *
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class InputQueue {
+
+    /**
+     * Command that stops the snake and pauses the game loop.
+     */
+    public static final int PAUSE = -1;
+
+    /**
+     * Command that lets a paused snake move again.
+     */
+    public static final int RESUME = -2;
+
+    private final int[] mDirections;
+    private final long[] mTimes;
+    private final AtomicLong mWritten = new AtomicLong();
+    private final AtomicLong mRead = new AtomicLong();
+
+    private long mTurnTime = -1;
+    private long mMoves, mLatencyTotal, mLatencyMax;
+    private volatile long mLastLatency;
+
+    /**
+     * Constructor of the InputQueue.
+     * @param inCapacity number of turns that can be waiting
+     */
+    public InputQueue(int inCapacity) {
+        mDirections = new int[inCapacity];
+        mTimes = new long[inCapacity];
+    }
+
+    /**
+     * Puts a turn in the queue, only to be called by the input thread.
+     * @param inDirection new direction, or PAUSE or RESUME
+     * @return false if the queue was full and the turn was dropped
+     */
+    public boolean offer(int inDirection) {
+        long written = mWritten.get();
+        if(written - mRead.get() == mDirections.length) {
+            return false;
+        }
+
+        int slot = (int) (written % mDirections.length);
+        mDirections[slot] = inDirection;
+        mTimes[slot] = System.nanoTime();
+
+        // publishes the slot to the game loop
+        mWritten.lazySet(written + 1);
+        return true;
+    }
+
+    /**
+     * Takes the next turn that changes the direction of the snake, or
+     * the next command, only to be called by the game loop. Turns that
+     * keep the direction or go straight back are skipped.
+     *
+     * @param inDirection the direction the snake moved in last
+     * @return new direction, PAUSE or RESUME, or Engine.KEEP_DIRECTION if there is none
+     */
+    public int poll(int inDirection) {
+        long read = mRead.get();
+        long written = mWritten.get();
+
+        while(read < written) {
+            int slot = (int) (read % mDirections.length);
+            int direction = mDirections[slot];
+            long time = mTimes[slot];
+            read++;
+
+            if(direction < 0) {
+                mRead.lazySet(read);
+                return direction;
+            }
+
+            int combo = inDirection + direction;
+            if(direction != inDirection && combo != 3 && combo != 7) {
+                mRead.lazySet(read);
+                mTurnTime = time;
+                return direction;
+            }
+        }
+
+        mRead.lazySet(read);
+        return Engine.KEEP_DIRECTION;
+    }
+
+    /**
+     * Tells the queue the snake has moved, only to be called by the game loop.
+     * If the move was a turn from the queue its latency is recorded.
+     * @return time from key press to move in nanoseconds, or -1 if the move was not a turn
+     */
+    public long moved() {
+        if(mTurnTime < 0) {
+            return -1;
+        }
+
+        long latency = System.nanoTime() - mTurnTime;
+        mTurnTime = -1;
+
+        mMoves++;
+        mLatencyTotal += latency;
+        mLatencyMax = Math.max(mLatencyMax, latency);
+        mLastLatency = latency;
+        return latency;
+    }
+
+    /**
+     * Drops all waiting turns, only to be called by the game loop.
+     * A pause or resume is not lost, the last one is handed back.
+     * @return the last command dropped, or Engine.KEEP_DIRECTION if there was none
+     */
+    public int clear() {
+        long read = mRead.get();
+        long written = mWritten.get();
+        int command = Engine.KEEP_DIRECTION;
+        for (; read < written; read++) {
+            int direction = mDirections[(int) (read % mDirections.length)];
+            if(direction < 0) {
+                command = direction;
+            }
+        }
+        mRead.lazySet(written);
+        mTurnTime = -1;
+        return command;
+    }
+
+    /**
+     * Gets the time from key press to move of the latest turn.
+     * @return latency in nanoseconds
+     */
+    public long getLastLatencyNanos() {
+        return mLastLatency;
+    }
+
+    /**
+     * Gets the average time from key press to move, only to be called by the game loop.
+     * @return latency in nanoseconds
+     */
+    public long getAverageLatencyNanos() {
+        return mMoves == 0 ? 0 : mLatencyTotal / mMoves;
+    }
+
+    /**
+     * Gets the longest time from key press to move, only to be called by the game loop.
+     * @return latency in nanoseconds
+     */
+    public long getMaxLatencyNanos() {
+        return mLatencyMax;
+    }
+}
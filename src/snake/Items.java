@@ -0,0 +1,380 @@
+package snake;
+
+import java.awt.Point;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+/**
+ * Items are the fruits and bonuses that come and go on the board,
+ * besides the fruit that is always there.
+ *
+ * Every item has a type and runs out a number of steps after it appeared.
+ * All items are one Collideable with one id in the OccupancyGrid, and a
+ * CellIndex finds the item on a cell, so eating an item is a lookup.
+ * A TimerWheel finds the items that run out, so nothing is scanned per
+ * step. The items are kept in fixed slots and nothing is allocated
+ * while playing.
+ *
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class Items implements Collideable {
+
+    /**
+     * Type of an item that gives a point, like the fruit.
+     */
+    public static final int FRUIT = 1;
+
+    /**
+     * Type of an item that gives more points but does not stay long.
+     */
+    public static final int BONUS = 2;
+
+    private static final int[] POINTS = {0, 1, 3};
+    private static final int[] LIFETIMES = {0, 300, 60};
+    private static final int WHEEL_SLOTS = 512;
+
+    private int mCapacity;
+    private int[] mCells;
+    private int[] mTypes;
+    private int[] mActive;
+    private int[] mActiveIndex;
+    private int mCount;
+    private int[] mFreeSlots;
+    private int mFreeCount;
+    private CellIndex mIndex;
+    private TimerWheel mWheel;
+    private int[] mExpired;
+    private int[] mChanged;
+    private int mChangedCount;
+    private OccupancyGrid mGrid;
+    private int mId;
+
+    /**
+     * Constructor of the Items, there are none to begin with.
+     * @param inCapacity most items at once
+     */
+    public Items(int inCapacity) {
+        mCapacity = inCapacity;
+        mCells = new int[inCapacity];
+        mTypes = new int[inCapacity];
+        mActive = new int[inCapacity];
+        mActiveIndex = new int[inCapacity];
+        mFreeSlots = new int[inCapacity];
+        mIndex = new CellIndex(inCapacity);
+        mWheel = new TimerWheel(WHEEL_SLOTS, inCapacity);
+        mExpired = new int[inCapacity];
+        mChanged = new int[inCapacity + 2];
+        clear();
+    }
+
+    /**
+     * Removes all items, without touching the grid.
+     */
+    public void clear() {
+        mCount = 0;
+        mFreeCount = mCapacity;
+        for (int i = 0; i < mCapacity; i++) {
+            mFreeSlots[i] = mCapacity - 1 - i;
+        }
+        mIndex.clear();
+        mWheel.clear();
+        mChangedCount = 0;
+    }
+
+    /**
+     * Puts an item on a free tile.
+     * @param inType FRUIT or BONUS
+     * @param inCell packed cell of the tile
+     * @param inStep current step, the item runs out its lifetime after it
+     * @return false if there is no room for another item
+     */
+    public boolean spawn(int inType, int inCell, long inStep) {
+        if(mFreeCount == 0) {
+            return false;
+        }
+        add(inType, inCell, inStep + LIFETIMES[inType]);
+        return true;
+    }
+
+    /**
+     * Adds an item to a slot, the index, the timers and the grid.
+     * @param inType type of the item
+     * @param inCell packed cell of the item
+     * @param inDeadline step the item runs out at
+     */
+    private void add(int inType, int inCell, long inDeadline) {
+        int slot = mFreeSlots[--mFreeCount];
+        mCells[slot] = inCell;
+        mTypes[slot] = inType;
+        mActiveIndex[slot] = mCount;
+        mActive[mCount++] = slot;
+
+        mIndex.put(inCell, slot);
+        mWheel.schedule(slot, inDeadline);
+        if(mGrid != null) {
+            mGrid.occupy(Cell.x(inCell), Cell.y(inCell), mId);
+        }
+        changed(inCell);
+    }
+
+    /**
+     * Takes away the item on a tile, when the snake eats it.
+     * @param inCell packed cell of the tile
+     * @return type of the item, or 0 if there is none
+     */
+    public int eat(int inCell) {
+        int slot = mIndex.get(inCell);
+        if(slot < 0) {
+            return 0;
+        }
+        int type = mTypes[slot];
+        mWheel.cancel(slot);
+        remove(slot);
+        return type;
+    }
+
+    /**
+     * Takes away the items that run out at a step, to be called every step.
+     * Items that run out together are taken away in the order of their
+     * cells, the order in the wheel depends on the slots and a restored
+     * game gets other slots.
+     *
+     * @param inStep the step
+     * @return number of items taken away
+     */
+    public int expire(long inStep) {
+        int count = mWheel.expire(inStep, mExpired);
+        // insertion sort, seldom more than one or two
+        for (int i = 1; i < count; i++) {
+            int slot = mExpired[i];
+            int j = i - 1;
+            while(j >= 0 && mCells[mExpired[j]] > mCells[slot]) {
+                mExpired[j + 1] = mExpired[j];
+                j--;
+            }
+            mExpired[j + 1] = slot;
+        }
+        for (int i = 0; i < count; i++) {
+            remove(mExpired[i]);
+        }
+        return count;
+    }
+
+    /**
+     * Removes an item from its slot, the index and the grid.
+     * @param inSlot slot of the item
+     */
+    private void remove(int inSlot) {
+        int cell = mCells[inSlot];
+        mIndex.remove(cell);
+
+        // move the last active item into the hole
+        int hole = mActiveIndex[inSlot];
+        int last = mActive[--mCount];
+        mActive[hole] = last;
+        mActiveIndex[last] = hole;
+        mFreeSlots[mFreeCount++] = inSlot;
+
+        // only free the tile if nothing has taken it over
+        if(mGrid != null && mGrid.getOccupantId(Cell.x(cell), Cell.y(cell)) == mId) {
+            mGrid.free(Cell.x(cell), Cell.y(cell));
+        }
+        changed(cell);
+    }
+
+    /**
+     * Remembers a tile that changed, for drawing.
+     * @param inCell packed cell of the tile
+     */
+    private void changed(int inCell) {
+        if(mChangedCount < mChanged.length) {
+            mChanged[mChangedCount++] = inCell;
+        }
+    }
+
+    /**
+     * Gets the tiles where items came or went since clearChanged, which
+     * the Engine calls at the start of every step, for drawing only those tiles.
+     * @param inCells array to fill, at least getCapacity() + 2 long
+     * @return number of cells written
+     */
+    public int getChangedCells(int[] inCells) {
+        System.arraycopy(mChanged, 0, inCells, 0, mChangedCount);
+        return mChangedCount;
+    }
+
+    /**
+     * Forgets the tiles that changed.
+     */
+    public void clearChanged() {
+        mChangedCount = 0;
+    }
+
+    /**
+     * Gets the type of the item on a tile.
+     * @param inCell packed cell of the tile
+     * @return type of the item, or 0 if there is none
+     */
+    public int getType(int inCell) {
+        int slot = mIndex.get(inCell);
+        return slot < 0 ? 0 : mTypes[slot];
+    }
+
+    /**
+     * Gets the points an item is worth.
+     * @param inType type of the item
+     * @return points
+     */
+    public static int getPoints(int inType) {
+        return POINTS[inType];
+    }
+
+    /**
+     * Gets the number of steps an item stays.
+     * @param inType type of the item
+     * @return lifetime in steps
+     */
+    public static int getLifetime(int inType) {
+        return LIFETIMES[inType];
+    }
+
+    /**
+     * Writes the types of the items into an array, in the order of getCells.
+     * @param inTypes array to fill
+     * @return number of types written
+     */
+    public int getTypes(int[] inTypes) {
+        for (int i = 0; i < mCount; i++) {
+            inTypes[i] = mTypes[mActive[i]];
+        }
+        return mCount;
+    }
+
+    /**
+     * Getter for capacity
+     * @return most items at once
+     */
+    public int getCapacity() {
+        return mCapacity;
+    }
+
+    /**
+     * Gets the location of one of the items.
+     * @return location, or null if there are no items
+     */
+    @Override
+    public Point getLocation() {
+        if(mCount == 0) {
+            return null;
+        }
+        int cell = mCells[mActive[0]];
+        return new Point(Cell.x(cell), Cell.y(cell));
+    }
+
+    /**
+     * All locations of the items.
+     * @return all locations
+     */
+    @Override
+    public ArrayList<Point> getLocations() {
+        ArrayList<Point> locations = new ArrayList();
+        for (int i = 0; i < mCount; i++) {
+            int cell = mCells[mActive[i]];
+            locations.add(new Point(Cell.x(cell), Cell.y(cell)));
+        }
+        return locations;
+    }
+
+    /**
+     * Gets the number of items.
+     * @return number of items
+     */
+    @Override
+    public int getCellCount() {
+        return mCount;
+    }
+
+    /**
+     * Writes the tiles of the items as packed cells into an array.
+     * @param inCells array to fill
+     * @return number of cells written
+     */
+    @Override
+    public int getCells(int[] inCells) {
+        for (int i = 0; i < mCount; i++) {
+            inCells[i] = mCells[mActive[i]];
+        }
+        return mCount;
+    }
+
+    /**
+     * Checks whether some other object is on one of the items.
+     * @param inObject the object that collides
+     * @return true if there is a collision
+     */
+    @Override
+    public boolean collide(Collideable inObject) {
+        Point location = inObject.getLocation();
+        return mIndex.get(Cell.pack(location.x, location.y)) >= 0;
+    }
+
+    /**
+     * Registers the tiles of the items in an occupancy grid.
+     * @param inGrid grid to register in
+     */
+    @Override
+    public void register(OccupancyGrid inGrid) {
+        mGrid = inGrid;
+        mId = inGrid.register(this);
+        for (int i = 0; i < mCount; i++) {
+            int cell = mCells[mActive[i]];
+            mGrid.occupy(Cell.x(cell), Cell.y(cell), mId);
+        }
+    }
+
+    /**
+     * Gets the size of a snapshot of the items.
+     * @return size in bytes
+     */
+    int getSnapshotSize() {
+        return 4 + mCount * (4 + 1 + 8);
+    }
+
+    /**
+     * Writes the items, with the steps they run out at.
+     * @param inBuffer buffer with room for getSnapshotSize bytes
+     */
+    void snapshot(ByteBuffer inBuffer) {
+        inBuffer.putInt(mCount);
+        for (int i = 0; i < mCount; i++) {
+            int slot = mActive[i];
+            inBuffer.putInt(mCells[slot]);
+            inBuffer.put((byte) mTypes[slot]);
+            inBuffer.putLong(mWheel.getDeadline(slot));
+        }
+    }
+
+    /**
+     * Replaces the items with a snapshot, before registering in a grid.
+     * @param inBuffer buffer positioned at a snapshot written by snapshot
+     * @throws IllegalArgumentException if there are more items than fit, or of unknown types
+     */
+    void restore(ByteBuffer inBuffer) {
+        clear();
+        int count = inBuffer.getInt();
+        if(count < 0 || count > mCapacity) {
+            throw new IllegalArgumentException("Snapshot has " + count + " items, room for " + mCapacity);
+        }
+        mGrid = null;
+        for (int i = 0; i < count; i++) {
+            int cell = inBuffer.getInt();
+            int type = inBuffer.get();
+            if(type != FRUIT && type != BONUS) {
+                throw new IllegalArgumentException("Unknown item type " + type);
+            }
+            add(type, cell, inBuffer.getLong());
+        }
+        mChangedCount = 0;
+    }
+}
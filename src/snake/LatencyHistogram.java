@@ -0,0 +1,132 @@
+package snake;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * LatencyHistogram counts how long something took, in buckets that get
+ * wider as the times get longer.
+ *
+ * Every power of two is split into 16 buckets, so a time is known to
+ * within about 6 percent from a nanosecond up to the largest long. All
+ * counts are kept in a fixed array, recording a time allocates nothing
+ * and takes no locks, and the histogram can be read by another thread
+ * while it is being recorded into.
+ *
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray mCounts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong mCount = new AtomicLong();
+    private final AtomicLong mTotal = new AtomicLong();
+    private final AtomicLong mMax = new AtomicLong();
+
+    /**
+     * Records one time.
+     * @param inNanos time in nanoseconds, negative times count as 0
+     */
+    public void record(long inNanos) {
+        long nanos = Math.max(0, inNanos);
+        mCounts.incrementAndGet(bucket(nanos));
+        mCount.incrementAndGet();
+        mTotal.addAndGet(nanos);
+
+        long max = mMax.get();
+        while(nanos > max && !mMax.compareAndSet(max, nanos)) {
+            max = mMax.get();
+        }
+    }
+
+    /**
+     * Gets the bucket a time is counted in.
+     * @param inNanos time, not negative
+     * @return index of the bucket
+     */
+    static int bucket(long inNanos) {
+        if(inNanos < 2 * SUB_BUCKETS) {
+            return (int) inNanos;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(inNanos) - SUB_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (inNanos >>> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * Gets the longest time counted in a bucket.
+     * @param inBucket index of the bucket
+     * @return time in nanoseconds
+     */
+    static long highest(int inBucket) {
+        if(inBucket < 2 * SUB_BUCKETS) {
+            return inBucket;
+        }
+        int shift = inBucket / SUB_BUCKETS - 1;
+        long lowest = (long) (inBucket % SUB_BUCKETS + SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    /**
+     * Gets the number of recorded times.
+     * @return number of times
+     */
+    public long getCount() {
+        return mCount.get();
+    }
+
+    /**
+     * Gets the average recorded time.
+     * @return average in nanoseconds, 0 if nothing is recorded
+     */
+    public double getMean() {
+        long count = mCount.get();
+        return count == 0 ? 0 : (double) mTotal.get() / count;
+    }
+
+    /**
+     * Gets the longest recorded time.
+     * @return time in nanoseconds
+     */
+    public long getMax() {
+        return mMax.get();
+    }
+
+    /**
+     * Gets the time a share of the recorded times are at or below.
+     * @param inPercentile share between 0 and 100, like 99 for the 99th percentile
+     * @return time in nanoseconds, never more than getMax, 0 if nothing is recorded
+     */
+    public long getPercentile(double inPercentile) {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += mCounts.get(i);
+        }
+        long rank = Math.max(1, (long) Math.ceil(count * inPercentile / 100));
+
+        long seen = 0;
+        for (int i = 0; i < BUCKETS && count > 0; i++) {
+            seen += mCounts.get(i);
+            if(seen >= rank) {
+                return Math.min(highest(i), mMax.get());
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Forgets all recorded times. Times recorded at the same moment may
+     * be partly kept.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            mCounts.set(i, 0);
+        }
+        mCount.set(0);
+        mTotal.set(0);
+        mMax.set(0);
+    }
+}
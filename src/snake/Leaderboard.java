@@ -0,0 +1,265 @@
+package snake;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Leaderboard keeps every score ever posted, best first.
+ *
+ * The scores are kept in an indexed skip list: every link knows how many
+ * entries it jumps over, so adding a score, finding the rank of a score
+ * and finding the score at a rank all take O(log n) time. Equal scores
+ * are ranked in the order they were posted. Any number of threads can
+ * post and read at the same time, reads run in parallel and posts take
+ * turns.
+ *
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class Leaderboard {
+
+    private static final int MAX_LEVEL = 32;
+
+    private final Node mHead = new Node(null, 0, MAX_LEVEL);
+    private final ReadWriteLock mLock = new ReentrantReadWriteLock();
+    private int mLevel = 1;
+    private int mSize;
+    private long mSequence;
+
+    // reused by submit, only touched with the write lock held
+    private final Node[] mUpdate = new Node[MAX_LEVEL];
+    private final int[] mPosition = new int[MAX_LEVEL];
+
+    /**
+     * Posts a score.
+     * @param inName name of the player
+     * @param inPoints points
+     * @return rank of the score, 1 is the best
+     */
+    public int submit(String inName, int inPoints) {
+        mLock.writeLock().lock();
+        try {
+            Node node = new Node(new HighscoreItem(inName, inPoints), mSequence++, randomLevel());
+            Node[] update = mUpdate;
+            int[] position = mPosition;
+
+            // find the last node before the new one on every level
+            Node x = mHead;
+            int traversed = 0;
+            for (int level = mLevel - 1; level >= 0; level--) {
+                while(x.mNext[level] != null && x.mNext[level].isBefore(node)) {
+                    traversed += x.mWidth[level];
+                    x = x.mNext[level];
+                }
+                update[level] = x;
+                position[level] = traversed;
+            }
+
+            int levels = node.mNext.length;
+            for (int level = mLevel; level < levels; level++) {
+                update[level] = mHead;
+                position[level] = 0;
+                mHead.mWidth[level] = mSize;
+            }
+            mLevel = Math.max(mLevel, levels);
+
+            for (int level = 0; level < levels; level++) {
+                node.mNext[level] = update[level].mNext[level];
+                update[level].mNext[level] = node;
+                node.mWidth[level] = update[level].mWidth[level] - (traversed - position[level]);
+                update[level].mWidth[level] = traversed - position[level] + 1;
+            }
+
+            // links above the new node now jump over one more entry
+            for (int level = levels; level < mLevel; level++) {
+                update[level].mWidth[level]++;
+            }
+
+            mSize++;
+            return traversed + 1;
+        } finally {
+            mLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the rank of a score, equal scores share the best rank.
+     * @param inPoints points
+     * @return 1 plus the number of better scores
+     */
+    public int getRank(int inPoints) {
+        return countBefore(inPoints, false) + 1;
+    }
+
+    /**
+     * Gets the number of scores that are as good as a score or better.
+     * @param inPoints points
+     * @return number of scores
+     */
+    public int getCountAtLeast(int inPoints) {
+        return countBefore(inPoints, true);
+    }
+
+    /**
+     * Counts the scores before a score.
+     * @param inPoints points
+     * @param inEqual count equal scores as well?
+     * @return number of scores
+     */
+    private int countBefore(int inPoints, boolean inEqual) {
+        mLock.readLock().lock();
+        try {
+            Node x = mHead;
+            int traversed = 0;
+            for (int level = mLevel - 1; level >= 0; level--) {
+                while(x.mNext[level] != null && (x.mNext[level].mItem.getPoints() > inPoints
+                        || inEqual && x.mNext[level].mItem.getPoints() == inPoints)) {
+                    traversed += x.mWidth[level];
+                    x = x.mNext[level];
+                }
+            }
+            return traversed;
+        } finally {
+            mLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the score at a rank.
+     * @param inRank rank, 1 is the best
+     * @return the score, or null if there are fewer scores
+     */
+    public HighscoreItem get(int inRank) {
+        mLock.readLock().lock();
+        try {
+            Node node = find(inRank);
+            return node == null ? null : node.mItem;
+        } finally {
+            mLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the best scores.
+     * @param inCount number of scores
+     * @return at most inCount scores, best first
+     */
+    public List<HighscoreItem> getTop(int inCount) {
+        return getRange(1, inCount);
+    }
+
+    /**
+     * Gets the scores around a rank, for example the ones near a player.
+     * @param inRank rank, 1 is the best
+     * @param inBefore number of better scores to include
+     * @param inAfter number of worse scores to include
+     * @return the scores, best first
+     */
+    public List<HighscoreItem> getAround(int inRank, int inBefore, int inAfter) {
+        int first = Math.max(1, inRank - inBefore);
+        return getRange(first, inRank + inAfter - first + 1);
+    }
+
+    /**
+     * Gets scores in rank order.
+     * @param inFirst rank of the first score
+     * @param inCount number of scores
+     * @return at most inCount scores, best first
+     */
+    private List<HighscoreItem> getRange(int inFirst, int inCount) {
+        mLock.readLock().lock();
+        try {
+            List<HighscoreItem> items = new ArrayList(Math.max(0, Math.min(inCount, mSize - inFirst + 1)));
+            Node node = find(inFirst);
+            while(node != null && items.size() < inCount) {
+                items.add(node.mItem);
+                node = node.mNext[0];
+            }
+            return items;
+        } finally {
+            mLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the node at a rank, the lock must be held.
+     * @param inRank rank, 1 is the best
+     * @return the node, or null if there are fewer scores
+     */
+    private Node find(int inRank) {
+        if(inRank < 1 || inRank > mSize) {
+            return null;
+        }
+
+        Node x = mHead;
+        int traversed = 0;
+        for (int level = mLevel - 1; level >= 0; level--) {
+            while(x.mNext[level] != null && traversed + x.mWidth[level] <= inRank) {
+                traversed += x.mWidth[level];
+                x = x.mNext[level];
+            }
+        }
+        return x;
+    }
+
+    /**
+     * Gets the number of scores.
+     * @return number of scores
+     */
+    public int size() {
+        mLock.readLock().lock();
+        try {
+            return mSize;
+        } finally {
+            mLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Picks the number of levels of a new node, every level half as likely
+     * as the one below.
+     * @return number of levels
+     */
+    private static int randomLevel() {
+        int bits = ThreadLocalRandom.current().nextInt() | (1 << (MAX_LEVEL - 1));
+        return Integer.numberOfTrailingZeros(bits) + 1;
+    }
+
+    /**
+     * One score in the skip list.
+     */
+    private static class Node {
+
+        private final HighscoreItem mItem;
+        private final long mSequence;
+        private final Node[] mNext;
+        private final int[] mWidth;
+
+        /**
+         * Constructor of the Node.
+         * @param inItem the score
+         * @param inSequence order in which the score was posted
+         * @param inLevels number of levels
+         */
+        Node(HighscoreItem inItem, long inSequence, int inLevels) {
+            mItem = inItem;
+            mSequence = inSequence;
+            mNext = new Node[inLevels];
+            mWidth = new int[inLevels];
+        }
+
+        /**
+         * Checks if this score is ranked before another.
+         * @param inOther the other score
+         * @return true if this score is better, or equal and posted earlier
+         */
+        boolean isBefore(Node inOther) {
+            int points = mItem.getPoints();
+            int other = inOther.mItem.getPoints();
+            return points > other || points == other && mSequence < inOther.mSequence;
+        }
+    }
+}
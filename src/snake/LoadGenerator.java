@@ -0,0 +1,249 @@
+package snake;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Random;
+
+/**
+ * LoadGenerator connects many clients to a GameServer and plays with all
+ * of them, to see how many sessions a server can carry.
+ *
+ * All clients share one selector on one thread. Every client keeps its
+ * own RemoteState up to date from the messages it gets, which also checks
+ * that the deltas fit together, turns at random now and then and starts
+ * a new game when its snake dies. Once a second the message rate, the
+ * byte rate and the number of errors are printed.
+ *
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class LoadGenerator {
+
+    private static final long NANOS_PER_SECOND = 1000000000L;
+    private static final int TURN_ODDS = 8;
+
+    private String mHost;
+    private int mPort;
+    private int mClients;
+    private Random mRandom;
+    private long mMessages, mBytes, mErrors;
+    private int mConnected;
+
+    /**
+     * Constructor of the LoadGenerator.
+     * @param inHost host of the server
+     * @param inPort port of the server
+     * @param inClients number of clients
+     * @param inSeed seed for the random turns
+     */
+    public LoadGenerator(String inHost, int inPort, int inClients, long inSeed) {
+        mHost = inHost;
+        mPort = inPort;
+        mClients = inClients;
+        mRandom = new Random(inSeed);
+    }
+
+    /**
+     * Connects all clients and plays for a while, then disconnects them.
+     * @param inSeconds how long to play
+     * @throws IOException if the selector fails
+     */
+    public void run(int inSeconds) throws IOException {
+        try (Selector selector = Selector.open()) {
+            InetSocketAddress address = new InetSocketAddress(mHost, mPort);
+            for (int i = 0; i < mClients; i++) {
+                SocketChannel channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                channel.connect(address);
+                channel.register(selector, SelectionKey.OP_CONNECT, new Client(channel));
+            }
+
+            long start = System.nanoTime();
+            long end = start + inSeconds * NANOS_PER_SECOND;
+            long nextReport = start + NANOS_PER_SECOND;
+            long reportMessages = 0, reportBytes = 0;
+
+            while(System.nanoTime() < end) {
+                selector.select(100);
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while(keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    handle(key);
+                }
+
+                long now = System.nanoTime();
+                if(now >= nextReport) {
+                    double seconds = (now - nextReport + NANOS_PER_SECOND) / (double) NANOS_PER_SECOND;
+                    System.out.println(String.format("%d clients, %.0f messages/s, %.1f kB/s, %d errors",
+                            mConnected, (mMessages - reportMessages) / seconds,
+                            (mBytes - reportBytes) / seconds / 1024, mErrors));
+                    reportMessages = mMessages;
+                    reportBytes = mBytes;
+                    nextReport = now + NANOS_PER_SECOND;
+                }
+            }
+
+            for (SelectionKey key : selector.keys()) {
+                key.channel().close();
+            }
+        }
+    }
+
+    /**
+     * Handles a selected key.
+     * @param inKey the key
+     */
+    private void handle(SelectionKey inKey) {
+        Client client = (Client) inKey.attachment();
+        try {
+            if(inKey.isConnectable()) {
+                client.mChannel.finishConnect();
+                inKey.interestOps(SelectionKey.OP_READ);
+                mConnected++;
+            } else if(inKey.isReadable()) {
+                client.read();
+            }
+        } catch (IOException ex) {
+            // a connect that failed was never counted as connected
+            mErrors++;
+            if(client.mChannel.isConnected()) {
+                mConnected--;
+            }
+            inKey.cancel();
+            try {
+                client.mChannel.close();
+            } catch (IOException closeEx) {
+                // already broken
+            }
+        }
+    }
+
+    /**
+     * Getter for messages
+     * @return number of messages received
+     */
+    public long getMessages() {
+        return mMessages;
+    }
+
+    /**
+     * Getter for errors
+     * @return number of clients that failed
+     */
+    public long getErrors() {
+        return mErrors;
+    }
+
+    /**
+     * Getter for connected
+     * @return number of connected clients
+     */
+    public int getConnected() {
+        return mConnected;
+    }
+
+    /**
+     * One client and its copy of the game.
+     */
+    private class Client {
+
+        private final SocketChannel mChannel;
+        private final ByteBuffer mIn = ByteBuffer.allocate(4096);
+        private final ByteBuffer mOut = ByteBuffer.allocate(1);
+        private final RemoteState mState = new RemoteState();
+
+        /**
+         * Constructor of the Client.
+         * @param inChannel connection to the server
+         */
+        Client(SocketChannel inChannel) {
+            mChannel = inChannel;
+        }
+
+        /**
+         * Reads and applies messages, and answers some of them.
+         * @throws IOException if the connection or the messages fail
+         */
+        void read() throws IOException {
+            int read = mChannel.read(mIn);
+            if(read < 0) {
+                throw new IOException("Closed by server");
+            }
+            mBytes += read;
+
+            mIn.flip();
+            while(mState.read(mIn)) {
+                mMessages++;
+                if(mState.isDead()) {
+                    send(Protocol.RESTART);
+                } else if(mRandom.nextInt(TURN_ODDS) == 0) {
+                    send((byte) (Snake.MOVE_UP + mRandom.nextInt(4)));
+                }
+            }
+            mIn.compact();
+        }
+
+        /**
+         * Sends a command to the server.
+         * @param inCommand the command
+         * @throws IOException if the connection fails
+         */
+        private void send(byte inCommand) throws IOException {
+            mOut.clear();
+            mOut.put(inCommand);
+            mOut.flip();
+            mChannel.write(mOut);
+        }
+    }
+
+    /**
+     * Runs a load test against a server.
+     * @param args --host, --port, --clients, --seconds and --seed
+     * @throws IOException if the selector fails
+     */
+    public static void main(String[] args) throws IOException {
+        String host = "localhost";
+        int port = 7777;
+        int clients = 1000;
+        int seconds = 10;
+        long seed = 1;
+
+        for (int i = 0; i < args.length; i += 2) {
+            if(i + 1 == args.length) {
+                throw new IllegalArgumentException("Missing value for option: " + args[i]);
+            }
+            String value = args[i + 1];
+            switch(args[i]) {
+                case "--host":
+                    host = value;
+                    break;
+                case "--port":
+                    port = Integer.parseInt(value);
+                    break;
+                case "--clients":
+                    clients = Integer.parseInt(value);
+                    break;
+                case "--seconds":
+                    seconds = Integer.parseInt(value);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        LoadGenerator generator = new LoadGenerator(host, port, clients, seed);
+        generator.run(seconds);
+    }
+}
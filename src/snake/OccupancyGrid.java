@@ -0,0 +1,556 @@
+package snake;
+
+import java.awt.Point;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * OccupancyGrid keeps track of which tiles on the board are free,
+ * and which object occupies the others.
+ *
+ * The id of the occupant is stored per tile, in square chunks of tiles
+ * that are only created when something occupies one of their tiles and
+ * dropped again when they are empty, so memory follows the number of
+ * occupied tiles and not the size of the board. Boards can be up to
+ * Cell.MAX_SIZE tiles in each direction, a billion tiles. Every Collideable
+ * registers itself to get an id, and finding what is on a tile is a lookup.
+ *
+ * Every chunk also has a bit per tile that is set while the tile is
+ * occupied, and the number of free tiles of every chunk is kept in a
+ * Fenwick tree. A random free tile is picked by its rank, the n:th free
+ * tile counted chunk by chunk and row by row within a chunk. The chunk is
+ * found in time logarithmic in the number of chunks and the tile with at
+ * most one pass over the 64 rows of the chunk, on any size of board and
+ * however full it is. The tile picked only depends on which tiles are
+ * free and not on the order they were freed in, so a snapshot does not
+ * need to hold the free tiles. Nothing is allocated while playing, except
+ * for chunks.
+ *
+ * Games of version 2 and older picked free tiles another way, and a grid
+ * that lists its free tiles picks like they did, so their replays play out
+ * the same. Boards up to LISTED_TILES tiles then keep the free tiles in a
+ * list in the order they were freed in, together with an index of where
+ * in that list each tile is, and pick from the list. Larger boards try
+ * random tiles until one is free and pick by rank if that keeps failing.
+ * The order of the list is part of the game and is written with a snapshot.
+ *
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class OccupancyGrid {
+
+    /**
+     * Largest board that keeps a list of its free tiles when it lists them.
+     */
+    public static final int LISTED_TILES = 1 << 20;
+
+    private static final int CHUNK_SHIFT = 6;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int SPARE_CHUNKS = 8;
+    private static final int RANDOM_TRIES = 64;
+
+    private int mWidth, mHeight;
+    private int mChunksX, mChunksY;
+    private int[][] mChunks;
+    private long[][] mChunkBits;
+    private int[] mChunkCounts;
+    private int[] mChunkTree;
+    private int mTreeTop;
+    private int[][] mSpareChunks = new int[SPARE_CHUNKS][];
+    private long[][] mSpareBits = new long[SPARE_CHUNKS][];
+    private int mSpareCount;
+    private int mFreeCount;
+    private boolean mListed;
+    private int[] mFreeTiles;
+    private int[] mFreeIndex;
+    private ArrayList<Collideable> mRegistered;
+    private int[] mFreeIds = new int[8];
+    private int mFreeIdCount;
+
+    /**
+     * Constructor of the OccupancyGrid, all tiles start out free.
+     * @param inWidth number of tiles (x)
+     * @param inHeight number of tiles (y)
+     * @throws IllegalArgumentException if a side is less than 1 or more than Cell.MAX_SIZE
+     */
+    public OccupancyGrid(int inWidth, int inHeight) {
+        this(inWidth, inHeight, false);
+    }
+
+    /**
+     * Constructor of the OccupancyGrid, all tiles start out free.
+     * @param inWidth number of tiles (x)
+     * @param inHeight number of tiles (y)
+     * @param inListed true to pick free tiles from a list, like games of version 2 and older
+     * @throws IllegalArgumentException if a side is less than 1 or more than Cell.MAX_SIZE
+     */
+    public OccupancyGrid(int inWidth, int inHeight, boolean inListed) {
+        checkSize(inWidth, inHeight);
+        mWidth = inWidth;
+        mHeight = inHeight;
+        mChunksX = (inWidth + CHUNK_MASK) >> CHUNK_SHIFT;
+        mChunksY = (inHeight + CHUNK_MASK) >> CHUNK_SHIFT;
+        mChunks = new int[mChunksX * mChunksY][];
+        mChunkBits = new long[mChunks.length][];
+        mChunkCounts = new int[mChunks.length];
+        mChunkTree = new int[mChunks.length + 1];
+        mTreeTop = Integer.highestOneBit(Math.max(1, mChunks.length));
+        mListed = inListed;
+        if(inListed && (long) inWidth * inHeight <= LISTED_TILES) {
+            mFreeTiles = new int[inWidth * inHeight];
+            mFreeIndex = new int[inWidth * inHeight];
+        }
+        mRegistered = new ArrayList();
+        clear();
+    }
+
+    /**
+     * Checks that a board is of a size every position of which fits in a cell.
+     * @param inWidth number of tiles (x)
+     * @param inHeight number of tiles (y)
+     * @throws IllegalArgumentException if a side is less than 1 or more than Cell.MAX_SIZE
+     */
+    public static void checkSize(int inWidth, int inHeight) {
+        if(inWidth < 1 || inHeight < 1 || inWidth > Cell.MAX_SIZE || inHeight > Cell.MAX_SIZE) {
+            throw new IllegalArgumentException("Board of " + inWidth + "x" + inHeight 
+                    + " tiles, the sides must be 1 to " + Cell.MAX_SIZE);
+        }
+    }
+
+    /**
+     * Frees all the tiles and forgets all registered objects.
+     */
+    public void clear() {
+        for (int i = 0; i < mChunks.length; i++) {
+            if(mChunks[i] != null) {
+                Arrays.fill(mChunks[i], 0);
+                Arrays.fill(mChunkBits[i], 0);
+                releaseChunk(i);
+            }
+        }
+
+        // every tile of every chunk is free, the tree is built bottom up
+        Arrays.fill(mChunkTree, 0);
+        for (int i = 1; i < mChunkTree.length; i++) {
+            mChunkTree[i] += chunkWidth(i - 1) * chunkHeight(i - 1);
+            int parent = i + (i & -i);
+            if(parent < mChunkTree.length) {
+                mChunkTree[parent] += mChunkTree[i];
+            }
+        }
+        if(mFreeTiles != null) {
+            for (int i = 0; i < mFreeTiles.length; i++) {
+                mFreeTiles[i] = i;
+                mFreeIndex[i] = i;
+            }
+        }
+        // at most Cell.MAX_SIZE squared, which fits in an int
+        long tiles = (long) mWidth * mHeight;
+        mFreeCount = (int) tiles;
+        mRegistered.clear();
+        mFreeIdCount = 0;
+    }
+
+    /**
+     * Gets the chunk a tile is in.
+     * @param inX horizontal position
+     * @param inY vertical position
+     * @return index of the chunk
+     */
+    private int chunkIndex(int inX, int inY) {
+        return (inY >> CHUNK_SHIFT) * mChunksX + (inX >> CHUNK_SHIFT);
+    }
+
+    /**
+     * Gets where in its chunk a tile is.
+     * @param inX horizontal position
+     * @param inY vertical position
+     * @return index in the chunk
+     */
+    private static int chunkOffset(int inX, int inY) {
+        return ((inY & CHUNK_MASK) << CHUNK_SHIFT) | (inX & CHUNK_MASK);
+    }
+
+    /**
+     * Gets the number of columns of a chunk, less than CHUNK_SIZE at the right edge.
+     * @param inIndex index of the chunk
+     * @return width in tiles
+     */
+    private int chunkWidth(int inIndex) {
+        return Math.min(CHUNK_SIZE, mWidth - ((inIndex % mChunksX) << CHUNK_SHIFT));
+    }
+
+    /**
+     * Gets the number of rows of a chunk, less than CHUNK_SIZE at the bottom edge.
+     * @param inIndex index of the chunk
+     * @return height in tiles
+     */
+    private int chunkHeight(int inIndex) {
+        return Math.min(CHUNK_SIZE, mHeight - ((inIndex / mChunksX) << CHUNK_SHIFT));
+    }
+
+    /**
+     * Drops an empty chunk, keeping a few for the next chunks to be created.
+     * @param inIndex index of the chunk
+     */
+    private void releaseChunk(int inIndex) {
+        if(mSpareCount < SPARE_CHUNKS) {
+            mSpareChunks[mSpareCount] = mChunks[inIndex];
+            mSpareBits[mSpareCount++] = mChunkBits[inIndex];
+        }
+        mChunks[inIndex] = null;
+        mChunkBits[inIndex] = null;
+        mChunkCounts[inIndex] = 0;
+    }
+
+    /**
+     * Registers an object that will occupy tiles.
+     * @param inObject the object
+     * @return id to occupy tiles with, never 0
+     */
+    public int register(Collideable inObject) {
+        if(mFreeIdCount > 0) {
+            int id = mFreeIds[--mFreeIdCount];
+            mRegistered.set(id - 1, inObject);
+            return id;
+        }
+        
+        mRegistered.add(inObject);
+        return mRegistered.size();
+    }
+
+    /**
+     * Forgets a registered object, its id may be given to the next object.
+     * The object must have freed its tiles.
+     * @param inId id of the object
+     */
+    public void unregister(int inId) {
+        mRegistered.set(inId - 1, null);
+        if(mFreeIdCount == mFreeIds.length) {
+            mFreeIds = Arrays.copyOf(mFreeIds, mFreeIds.length * 2);
+        }
+        mFreeIds[mFreeIdCount++] = inId;
+    }
+
+    /**
+     * Marks a tile as occupied by an object, replacing any earlier occupant.
+     * @param inX horizontal position
+     * @param inY vertical position
+     * @param inId id of the occupying object
+     */
+    public void occupy(int inX, int inY, int inId) {
+        int index = chunkIndex(inX, inY);
+        int[] chunk = mChunks[index];
+        if(chunk == null) {
+            if(mSpareCount > 0) {
+                chunk = mSpareChunks[--mSpareCount];
+                mChunkBits[index] = mSpareBits[mSpareCount];
+            } else {
+                chunk = new int[CHUNK_SIZE * CHUNK_SIZE];
+                mChunkBits[index] = new long[CHUNK_SIZE];
+            }
+            mChunks[index] = chunk;
+        }
+
+        int offset = chunkOffset(inX, inY);
+        if(chunk[offset] == 0) {
+            mChunkCounts[index]++;
+            mFreeCount--;
+            mChunkBits[index][inY & CHUNK_MASK] |= 1L << inX;
+            countChunk(index, -1);
+
+            if(mFreeTiles != null) {
+                // move the last free tile into the hole
+                int tile = inY * mWidth + inX;
+                int hole = mFreeIndex[tile];
+                int last = mFreeTiles[mFreeCount];
+                mFreeTiles[hole] = last;
+                mFreeIndex[last] = hole;
+                mFreeIndex[tile] = -1;
+            }
+        }
+        chunk[offset] = inId;
+    }
+
+    /**
+     * Marks a tile as free, does nothing if it already is.
+     * @param inX horizontal position
+     * @param inY vertical position
+     */
+    public void free(int inX, int inY) {
+        int index = chunkIndex(inX, inY);
+        int[] chunk = mChunks[index];
+        int offset = chunkOffset(inX, inY);
+        if(chunk == null || chunk[offset] == 0) {
+            return;
+        }
+
+        chunk[offset] = 0;
+        mChunkBits[index][inY & CHUNK_MASK] &= ~(1L << inX);
+        countChunk(index, 1);
+        if(mFreeTiles != null) {
+            int tile = inY * mWidth + inX;
+            mFreeTiles[mFreeCount] = tile;
+            mFreeIndex[tile] = mFreeCount;
+        }
+        mFreeCount++;
+
+        if(--mChunkCounts[index] == 0) {
+            releaseChunk(index);
+        }
+    }
+
+    /**
+     * Checks whether a tile is free.
+     * @param inX horizontal position
+     * @param inY vertical position
+     * @return true if the tile is free
+     */
+    public boolean isFree(int inX, int inY) {
+        return getOccupantId(inX, inY) == 0;
+    }
+
+    /**
+     * Gets the id of the object occupying a tile.
+     * @param inX horizontal position
+     * @param inY vertical position
+     * @return id of the occupant, or 0 if the tile is free
+     */
+    public int getOccupantId(int inX, int inY) {
+        int[] chunk = mChunks[chunkIndex(inX, inY)];
+        return chunk == null ? 0 : chunk[chunkOffset(inX, inY)];
+    }
+
+    /**
+     * Gets the object occupying a tile.
+     * @param inX horizontal position
+     * @param inY vertical position
+     * @return the occupant, or null if the tile is free
+     */
+    public Collideable getOccupant(int inX, int inY) {
+        int id = getOccupantId(inX, inY);
+        return id == 0 ? null : getRegistered(id);
+    }
+
+    /**
+     * Gets a registered object by its id.
+     * @param inId id given by register
+     * @return the object
+     */
+    public Collideable getRegistered(int inId) {
+        return mRegistered.get(inId - 1);
+    }
+
+    /**
+     * Gets the number of free tiles.
+     * @return number of free tiles
+     */
+    public int getFreeCount() {
+        return mFreeCount;
+    }
+
+    /**
+     * Gets one random location amongst the free ones.
+     * @param inRandom random generator to use
+     * @return random free location, or null if the board is full
+     */
+    public Point getRandomFree(Random inRandom) {
+        int cell = getRandomFreeCell(inRandom);
+        return cell == Cell.NONE ? null : new Point(Cell.x(cell), Cell.y(cell));
+    }
+
+    /**
+     * Gets one random tile amongst the free ones, without allocating.
+     * @param inRandom random generator to use
+     * @return packed cell of the tile, or Cell.NONE if the board is full
+     */
+    public int getRandomFreeCell(Random inRandom) {
+        if(mFreeCount == 0) {
+            return Cell.NONE;
+        }
+        if(mListed) {
+            return getListedFreeCell(inRandom);
+        }
+        return selectFree(inRandom.nextInt(mFreeCount));
+    }
+
+    /**
+     * Gets one random free tile the way games of version 2 and older did.
+     * @param inRandom random generator to use
+     * @return packed cell of the tile, the board is not full
+     */
+    private int getListedFreeCell(Random inRandom) {
+        if(mFreeTiles != null) {
+            int tile = mFreeTiles[inRandom.nextInt(mFreeCount)];
+            return Cell.pack(tile % mWidth, tile / mWidth);
+        }
+
+        // a large board is mostly free, so a random tile almost always is
+        for (int i = 0; i < RANDOM_TRIES; i++) {
+            int x = inRandom.nextInt(mWidth);
+            int y = inRandom.nextInt(mHeight);
+            if(getOccupantId(x, y) == 0) {
+                return Cell.pack(x, y);
+            }
+        }
+        return selectFree(inRandom.nextInt(mFreeCount));
+    }
+
+    /**
+     * Changes the number of free tiles of a chunk in the tree.
+     * @param inIndex index of the chunk
+     * @param inChange tiles freed, negative for tiles taken
+     */
+    private void countChunk(int inIndex, int inChange) {
+        for (int i = inIndex + 1; i < mChunkTree.length; i += i & -i) {
+            mChunkTree[i] += inChange;
+        }
+    }
+
+    /**
+     * Finds a free tile by its rank.
+     * @param inNumber which free tile, from 0 to getFreeCount, counted
+     * chunk by chunk and row by row within a chunk
+     * @return packed cell of the tile
+     */
+    private int selectFree(int inNumber) {
+        // walk down the tree to the chunk of the tile
+        int index = 0;
+        int left = inNumber;
+        for (int step = mTreeTop; step > 0; step >>= 1) {
+            int next = index + step;
+            if(next < mChunkTree.length && mChunkTree[next] <= left) {
+                index = next;
+                left -= mChunkTree[next];
+            }
+        }
+
+        int fromX = (index % mChunksX) << CHUNK_SHIFT;
+        int fromY = (index / mChunksX) << CHUNK_SHIFT;
+        int width = chunkWidth(index);
+        long[] bits = mChunkBits[index];
+        if(bits == null) {
+            // a chunk that does not exist is all free
+            return Cell.pack(fromX + left % width, fromY + left / width);
+        }
+
+        // then down the rows of the chunk to the row and the bit
+        long columns = width == CHUNK_SIZE ? -1L : (1L << width) - 1;
+        int row = 0;
+        long free;
+        int count;
+        while(left >= (count = Long.bitCount(free = ~bits[row] & columns))) {
+            left -= count;
+            row++;
+        }
+        for (int i = 0; i < left; i++) {
+            free &= free - 1;
+        }
+        return Cell.pack(fromX + Long.numberOfTrailingZeros(free), fromY + row);
+    }
+
+    /**
+     * Gets the number of chunks of tiles that exist, for measuring memory.
+     * @return number of chunks with occupied tiles
+     */
+    public int getChunkCount() {
+        int count = 0;
+        for (int[] chunk : mChunks) {
+            if(chunk != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Gets the size of a snapshot of the free tiles.
+     * @return size in bytes
+     */
+    int getSnapshotSize() {
+        return mFreeTiles == null ? 4 : 4 + 4 * mFreeCount;
+    }
+
+    /**
+     * Writes the number of free tiles. Which tiles are free follows from
+     * the objects registered again on restore, and the tile getRandomFree
+     * picks does not depend on anything else, unless the free tiles are
+     * listed. Then the list is written too, in the order it is kept in.
+     * @param inBuffer buffer with room for getSnapshotSize bytes
+     */
+    void snapshot(ByteBuffer inBuffer) {
+        inBuffer.putInt(mFreeCount);
+        if(mFreeTiles == null) {
+            return;
+        }
+        inBuffer.asIntBuffer().put(mFreeTiles, 0, mFreeCount);
+        inBuffer.position(inBuffer.position() + 4 * mFreeCount);
+    }
+
+    /**
+     * Checks a snapshot against the tiles occupied again. The objects
+     * must already occupy the tiles they occupied when it was taken.
+     * A list of free tiles in the snapshot is put back if this grid lists
+     * them too, and skipped if it picks by rank.
+     * @param inBuffer buffer positioned at the snapshot
+     * @param inListed true if the snapshot was taken of a grid that listed its free tiles
+     * @throws IllegalArgumentException if the snapshot does not match the occupied tiles,
+     * or has no list for a grid that lists its free tiles
+     */
+    void restore(ByteBuffer inBuffer, boolean inListed) {
+        int count = inBuffer.getInt();
+        if(count != mFreeCount) {
+            throw new IllegalArgumentException("Snapshot does not match the occupied tiles");
+        }
+        if(mListed && !inListed) {
+            throw new IllegalArgumentException("Snapshot has no list of the free tiles");
+        }
+        if(!inListed || (long) mWidth * mHeight > LISTED_TILES) {
+            return;
+        }
+        if(mFreeTiles == null) {
+            inBuffer.position(inBuffer.position() + 4 * count);
+            return;
+        }
+        inBuffer.asIntBuffer().get(mFreeTiles, 0, count);
+        inBuffer.position(inBuffer.position() + 4 * count);
+
+        // every free tile must be in the list once
+        Arrays.fill(mFreeIndex, -1);
+        for (int i = 0; i < count; i++) {
+            int tile = mFreeTiles[i];
+            if(tile < 0 || tile >= mFreeTiles.length || mFreeIndex[tile] != -1
+                    || getOccupantId(tile % mWidth, tile / mWidth) != 0) {
+                throw new IllegalArgumentException("Snapshot does not match the occupied tiles");
+            }
+            mFreeIndex[tile] = i;
+        }
+    }
+
+    /**
+     * Checks whether the grid picks free tiles from a list.
+     * @return true if it picks like games of version 2 and older
+     */
+    public boolean isListed() {
+        return mListed;
+    }
+
+    /**
+     * Getter for width
+     * @return number of tiles (x)
+     */
+    public int getWidth() {
+        return mWidth;
+    }
+
+    /**
+     * Getter for height
+     * @return number of tiles (y)
+     */
+    public int getHeight() {
+        return mHeight;
+    }
+}
@@ -0,0 +1,142 @@
+package snake;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Protocol describes what the game server and its clients send each other.
+ *
+ * Clients send single bytes: a direction to turn, or RESTART after the
+ * snake died. The server sends the whole state of a game once, when the
+ * client connects and after every restart, and after that only what
+ * changed in every step: the new head, the tile the tail left, the new
+ * place of the fruit and the points. Tiles are packed cells.
+ *
+ * <pre>
+ * STATE  'S' width:short height:short points:int fruit:int count:int cells:int*count
+ * DELTA  'D' flags:byte head:int [tail:int] [fruit:int] [points:int]
+ * </pre>
+ *
+ * The cells of a state start with the end of the tail and end with the head.
+ *
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public final class Protocol {
+
+    /**
+     * Client command to start a new game after dying.
+     */
+    public static final byte RESTART = 0x10;
+
+    /**
+     * Message with the whole state of a game.
+     */
+    public static final byte STATE = 'S';
+
+    /**
+     * Message with what changed during one step.
+     */
+    public static final byte DELTA = 'D';
+
+    /**
+     * Delta flag, the end of the tail left a tile.
+     */
+    public static final int TAIL_REMOVED = 1;
+
+    /**
+     * Delta flag, the fruit moved.
+     */
+    public static final int FRUIT_MOVED = 2;
+
+    /**
+     * Delta flag, the points changed.
+     */
+    public static final int POINTS_CHANGED = 4;
+
+    /**
+     * Delta flag, the snake died.
+     */
+    public static final int DEAD = 8;
+
+    /**
+     * Largest delta message in bytes.
+     */
+    public static final int MAX_DELTA_SIZE = 1 + 1 + 4 + 4 + 4 + 4;
+
+    /**
+     * Only static methods, no instances.
+     */
+    private Protocol() {
+    }
+
+    /**
+     * Gets the size of the state message of a game.
+     * @param inEngine the game
+     * @return size in bytes
+     */
+    public static int getStateSize(Engine inEngine) {
+        return 1 + 2 + 2 + 4 + 4 + 4 + 4 * inEngine.getSnake().getCellCount();
+    }
+
+    /**
+     * Writes the whole state of a game.
+     * @param inEngine the game
+     * @param inCells array to copy the snake through, at least as long as the snake
+     * @param inBuffer buffer with room for getStateSize bytes
+     */
+    public static void writeState(Engine inEngine, int[] inCells, ByteBuffer inBuffer) {
+        Snake snake = inEngine.getSnake();
+        int count = snake.getCells(inCells);
+
+        inBuffer.put(STATE);
+        inBuffer.putShort((short) inEngine.getWidth());
+        inBuffer.putShort((short) inEngine.getHeight());
+        inBuffer.putInt(inEngine.getPoints());
+        inBuffer.putInt(Cell.pack(inEngine.getFruit().getLocation().x, inEngine.getFruit().getLocation().y));
+        inBuffer.putInt(count);
+        for (int i = 1; i < count; i++) {
+            inBuffer.putInt(inCells[i]);
+        }
+        inBuffer.putInt(inCells[0]);
+    }
+
+    /**
+     * Writes what changed during the last step of a game.
+     * @param inEngine the game
+     * @param inFruit packed cell of the fruit before the step
+     * @param inPoints points before the step
+     * @param inBuffer buffer with room for MAX_DELTA_SIZE bytes
+     */
+    public static void writeDelta(Engine inEngine, int inFruit, int inPoints, ByteBuffer inBuffer) {
+        Snake snake = inEngine.getSnake();
+        int vacated = snake.getVacatedCell();
+        int fruit = Cell.pack(inEngine.getFruit().getLocation().x, inEngine.getFruit().getLocation().y);
+
+        int flags = 0;
+        if(vacated != Cell.NONE) {
+            flags |= TAIL_REMOVED;
+        }
+        if(fruit != inFruit) {
+            flags |= FRUIT_MOVED;
+        }
+        if(inEngine.getPoints() != inPoints) {
+            flags |= POINTS_CHANGED;
+        }
+        if(inEngine.isDead()) {
+            flags |= DEAD;
+        }
+
+        inBuffer.put(DELTA);
+        inBuffer.put((byte) flags);
+        inBuffer.putInt(Cell.pack(snake.getLocation().x, snake.getLocation().y));
+        if((flags & TAIL_REMOVED) != 0) {
+            inBuffer.putInt(vacated);
+        }
+        if((flags & FRUIT_MOVED) != 0) {
+            inBuffer.putInt(fruit);
+        }
+        if((flags & POINTS_CHANGED) != 0) {
+            inBuffer.putInt(inEngine.getPoints());
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package snake;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * RemoteState is the copy of a game that a client builds from the
+ * messages of the game server.
+ *
+ * The snake is kept as a ring of packed cells, from the end of the tail
+ * to the head, so a delta only adds a cell at one end and removes one
+ * at the other.
+ *
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class RemoteState {
+
+    private int mWidth, mHeight;
+    private int[] mCells = new int[16];
+    private int mStart, mSize;
+    private int mFruit = Cell.NONE;
+    private int mPoints;
+    private boolean mDead;
+    private long mTicks;
+
+    /**
+     * Reads one message if all of it has arrived, and applies it.
+     * @param inBuffer received bytes, positioned at the message
+     * @return true if a message was read, false if more bytes are needed
+     * @throws IOException if the message is not valid or does not fit the state
+     */
+    public boolean read(ByteBuffer inBuffer) throws IOException {
+        if(!inBuffer.hasRemaining()) {
+            return false;
+        }
+
+        int start = inBuffer.position();
+        byte type = inBuffer.get(start);
+        if(type == Protocol.STATE) {
+            return readState(inBuffer, start);
+        } else if(type == Protocol.DELTA) {
+            return readDelta(inBuffer, start);
+        }
+        throw new IOException("Unknown message " + type);
+    }
+
+    /**
+     * Reads a state message.
+     * @param inBuffer received bytes
+     * @param inStart position of the message
+     * @return true if the whole message was there
+     */
+    private boolean readState(ByteBuffer inBuffer, int inStart) {
+        int header = 1 + 2 + 2 + 4 + 4 + 4;
+        if(inBuffer.remaining() < header) {
+            return false;
+        }
+        int count = inBuffer.getInt(inStart + header - 4);
+        if(inBuffer.remaining() < header + 4 * count) {
+            return false;
+        }
+
+        inBuffer.get();
+        mWidth = inBuffer.getShort();
+        mHeight = inBuffer.getShort();
+        mPoints = inBuffer.getInt();
+        mFruit = inBuffer.getInt();
+        inBuffer.getInt();
+
+        if(mCells.length < count) {
+            mCells = new int[Integer.highestOneBit(count) * 2];
+        }
+        mStart = 0;
+        mSize = 0;
+        for (int i = 0; i < count; i++) {
+            addHead(inBuffer.getInt());
+        }
+        mDead = false;
+        mTicks = 0;
+        return true;
+    }
+
+    /**
+     * Reads a delta message.
+     * @param inBuffer received bytes
+     * @param inStart position of the message
+     * @return true if the whole message was there
+     * @throws IOException if the tail does not match the state
+     */
+    private boolean readDelta(ByteBuffer inBuffer, int inStart) throws IOException {
+        if(inBuffer.remaining() < 2) {
+            return false;
+        }
+        int flags = inBuffer.get(inStart + 1);
+        int size = 1 + 1 + 4 + 4 * Integer.bitCount(flags & (Protocol.TAIL_REMOVED
+                | Protocol.FRUIT_MOVED | Protocol.POINTS_CHANGED));
+        if(inBuffer.remaining() < size) {
+            return false;
+        }
+
+        inBuffer.position(inStart + 2);
+        addHead(inBuffer.getInt());
+        if((flags & Protocol.TAIL_REMOVED) != 0) {
+            int tail = inBuffer.getInt();
+            if(mSize == 0 || mCells[mStart] != tail) {
+                throw new IOException("Tail out of sync");
+            }
+            mStart = (mStart + 1) % mCells.length;
+            mSize--;
+        }
+        if((flags & Protocol.FRUIT_MOVED) != 0) {
+            mFruit = inBuffer.getInt();
+        }
+        if((flags & Protocol.POINTS_CHANGED) != 0) {
+            mPoints = inBuffer.getInt();
+        }
+        mDead = (flags & Protocol.DEAD) != 0;
+        mTicks++;
+        return true;
+    }
+
+    /**
+     * Adds a cell after the head, making it the new head.
+     * @param inCell packed cell
+     */
+    private void addHead(int inCell) {
+        if(mSize == mCells.length) {
+            int[] cells = new int[mCells.length * 2];
+            for (int i = 0; i < mSize; i++) {
+                cells[i] = getCell(i);
+            }
+            mCells = cells;
+            mStart = 0;
+        }
+        mCells[(mStart + mSize) % mCells.length] = inCell;
+        mSize++;
+    }
+
+    /**
+     * Gets one cell of the snake.
+     * @param inIndex index of the cell, 0 is the end of the tail
+     * @return packed cell
+     */
+    public int getCell(int inIndex) {
+        return mCells[(mStart + inIndex) % mCells.length];
+    }
+
+    /**
+     * Gets the number of cells of the snake.
+     * @return number of cells, the head included
+     */
+    public int getCellCount() {
+        return mSize;
+    }
+
+    /**
+     * Gets the head of the snake.
+     * @return packed cell, or Cell.NONE before the first state
+     */
+    public int getHead() {
+        return mSize == 0 ? Cell.NONE : getCell(mSize - 1);
+    }
+
+    /**
+     * Getter for the fruit
+     * @return packed cell of the fruit
+     */
+    public int getFruit() {
+        return mFruit;
+    }
+
+    /**
+     * Getter for points
+     * @return points of the current game
+     */
+    public int getPoints() {
+        return mPoints;
+    }
+
+    /**
+     * Getter for dead
+     * @return true if the snake has died
+     */
+    public boolean isDead() {
+        return mDead;
+    }
+
+    /**
+     * Getter for the number of steps
+     * @return steps received since the last state
+     */
+    public long getTicks() {
+        return mTicks;
+    }
+
+    /**
+     * Getter for width
+     * @return number of tiles (x)
+     */
+    public int getWidth() {
+        return mWidth;
+    }
+
+    /**
+     * Getter for height
+     * @return number of tiles (y)
+     */
+    public int getHeight() {
+        return mHeight;
+    }
+}
@@ -0,0 +1,330 @@
+package snake;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Replay is a recorded game, which it plays again as a Controller.
+ *
+ * A replay file starts with a header and is followed by one record for
+ * every turn. Ticks are counted from the previous record and written as
+ * variable length numbers, seven bits per byte.
+ *
+ * <pre>
+ * header  magic:int version:byte seed:long width:short height:short items:short
+ * turn    ticks:varint direction:byte
+ * end     ticks:varint 0:byte points:int
+ * </pre>
+ *
+ * A file without an end was cut off, it plays up to its last turn.
+ * Files of version 1 have no items in the header, they were played
+ * without. Files of version 1 and 2 were played with free tiles picked
+ * from a list, and are played again by an engine that picks like that.
+ *
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class Replay implements Controller {
+
+    /**
+     * File name ending of replay files.
+     */
+    public static final String SUFFIX = ".replay";
+
+    /**
+     * Magic number every replay file starts with, "SNKR".
+     */
+    static final int MAGIC = 0x534E4B52;
+
+    /**
+     * Version of the file format.
+     */
+    static final int VERSION = 3;
+
+    /**
+     * First version of the file format played with free tiles picked by rank.
+     */
+    static final int RANK_VERSION = 3;
+
+    /**
+     * Direction marking the end of the game.
+     */
+    static final int END = 0;
+
+    private int mVersion;
+    private long mSeed;
+    private int mWidth, mHeight, mItems;
+    private long[] mTicks = new long[16];
+    private byte[] mDirections = new byte[16];
+    private int mCount;
+    private boolean mComplete;
+    private long mLength;
+    private int mPoints;
+    private int mNext;
+
+    /**
+     * Reads a replay file.
+     * @param inFile the file
+     * @return the replay
+     * @throws IOException if the file can not be read or is not a replay
+     */
+    public static Replay read(File inFile) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(inFile)))) {
+            if(in.readInt() != MAGIC) {
+                throw new IOException("Not a replay: " + inFile);
+            }
+            int version = in.readUnsignedByte();
+            if(version < 1 || version > VERSION) {
+                throw new IOException("Unknown replay version " + version + ": " + inFile);
+            }
+
+            Replay replay = new Replay();
+            replay.mVersion = version;
+            replay.mSeed = in.readLong();
+            replay.mWidth = in.readUnsignedShort();
+            replay.mHeight = in.readUnsignedShort();
+            if(version >= 2) {
+                replay.mItems = in.readUnsignedShort();
+            }
+
+            long tick = 0;
+            try {
+                while(true) {
+                    tick += readTicks(in);
+                    int direction = in.readUnsignedByte();
+                    if(direction == END) {
+                        replay.mPoints = in.readInt();
+                        replay.mLength = tick;
+                        replay.mComplete = true;
+                        break;
+                    }
+                    replay.add(tick, direction);
+                }
+            } catch (EOFException ex) {
+                // the game was not finished, keep the turns that were written
+                replay.mLength = tick;
+            }
+            return replay;
+        }
+    }
+
+    /**
+     * Reads a variable length number of ticks.
+     * @param inStream stream to read from
+     * @return number of ticks
+     * @throws IOException if the number can not be read
+     */
+    private static long readTicks(DataInputStream inStream) throws IOException {
+        long ticks = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = inStream.readUnsignedByte();
+            ticks |= (long) (b & 0x7F) << shift;
+            if((b & 0x80) == 0) {
+                return ticks;
+            }
+        }
+        throw new IOException("Bad tick count");
+    }
+
+    /**
+     * Adds a turn.
+     * @param inTick step of the turn
+     * @param inDirection direction of the turn
+     */
+    private void add(long inTick, int inDirection) {
+        if(mCount == mTicks.length) {
+            mTicks = Arrays.copyOf(mTicks, mCount * 2);
+            mDirections = Arrays.copyOf(mDirections, mCount * 2);
+        }
+        mTicks[mCount] = inTick;
+        mDirections[mCount] = (byte) inDirection;
+        mCount++;
+    }
+
+    /**
+     * Creates a game set up like the recorded one, picking free tiles the
+     * way the version of the file did.
+     * @return a new engine
+     */
+    public Engine createEngine() {
+        return new Engine(mWidth, mHeight, mSeed, mItems, mVersion < RANK_VERSION);
+    }
+
+    /**
+     * Gives the recorded turn of the step the engine is at,
+     * the engine must be played from the start.
+     * @param inEngine the game being played
+     * @return recorded direction, or Engine.KEEP_DIRECTION
+     */
+    @Override
+    public int decide(Engine inEngine) {
+        long tick = inEngine.getTicks();
+        while(mNext < mCount && mTicks[mNext] < tick) {
+            mNext++;
+        }
+        if(mNext < mCount && mTicks[mNext] == tick) {
+            return mDirections[mNext++];
+        }
+        return Engine.KEEP_DIRECTION;
+    }
+
+    /**
+     * Makes decide start from the first turn again.
+     */
+    public void rewind() {
+        mNext = 0;
+    }
+
+    /**
+     * Plays the whole game at full speed, without a window.
+     * @return the engine after the last step
+     */
+    public Engine play() {
+        rewind();
+        Engine engine = createEngine();
+        while(engine.getTicks() < mLength && engine.step(decide(engine))) {
+        }
+        return engine;
+    }
+
+    /**
+     * Plays the game and checks it ends like it was recorded.
+     * @return true if the game was complete and ended with the same points and steps
+     */
+    public boolean verify() {
+        Engine engine = play();
+        return mComplete && engine.isDead() && engine.getPoints() == mPoints
+                && engine.getTicks() == mLength;
+    }
+
+    /**
+     * Getter for version
+     * @return version of the file format the game was recorded in
+     */
+    public int getVersion() {
+        return mVersion;
+    }
+
+    /**
+     * Getter for seed
+     * @return seed of the game
+     */
+    public long getSeed() {
+        return mSeed;
+    }
+
+    /**
+     * Getter for width
+     * @return number of tiles (x)
+     */
+    public int getWidth() {
+        return mWidth;
+    }
+
+    /**
+     * Getter for height
+     * @return number of tiles (y)
+     */
+    public int getHeight() {
+        return mHeight;
+    }
+
+    /**
+     * Getter for items
+     * @return most items on the board at once
+     */
+    public int getItems() {
+        return mItems;
+    }
+
+    /**
+     * Getter for the number of turns
+     * @return recorded turns
+     */
+    public int getTurnCount() {
+        return mCount;
+    }
+
+    /**
+     * Getter for the length
+     * @return steps of the game, or up to the last turn if it was cut off
+     */
+    public long getLength() {
+        return mLength;
+    }
+
+    /**
+     * Getter for points
+     * @return recorded points, 0 if the game was cut off
+     */
+    public int getPoints() {
+        return mPoints;
+    }
+
+    /**
+     * Getter for complete
+     * @return true if the end of the game was recorded
+     */
+    public boolean isComplete() {
+        return mComplete;
+    }
+
+    /**
+     * Adds replay files, and the replay files in directories, to a list.
+     * @param inFile file or directory
+     * @param inFiles list to add to
+     */
+    private static void collect(File inFile, ArrayList<File> inFiles) {
+        if(inFile.isDirectory()) {
+            File[] files = inFile.listFiles();
+            if(files != null) {
+                Arrays.sort(files);
+                for (File file : files) {
+                    collect(file, inFiles);
+                }
+            }
+        } else if(inFile.getName().endsWith(SUFFIX)) {
+            inFiles.add(inFile);
+        }
+    }
+
+    /**
+     * Plays replays at full speed and checks they end like they were recorded.
+     * @param args replay files and directories
+     * @throws IOException if a replay can not be read
+     */
+    public static void main(String[] args) throws IOException {
+        ArrayList<File> files = new ArrayList();
+        for (String arg : args) {
+            collect(new File(arg), files);
+        }
+
+        int verified = 0, failed = 0, incomplete = 0;
+        long ticks = 0;
+        long start = System.nanoTime();
+        for (File file : files) {
+            Replay replay = read(file);
+            if(!replay.isComplete()) {
+                incomplete++;
+            } else if(replay.verify()) {
+                verified++;
+            } else {
+                failed++;
+                System.out.println("Mismatch: " + file);
+            }
+            ticks += replay.getLength();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.println(String.format("%d replays, %d verified, %d failed, %d incomplete",
+                files.size(), verified, failed, incomplete));
+        System.out.println(String.format("%.3f s, %.1f replays/s, %.0f ticks/s",
+                seconds, files.size() / seconds, ticks / seconds));
+    }
+}
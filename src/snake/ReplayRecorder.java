@@ -0,0 +1,136 @@
+package snake;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * ReplayRecorder writes the games played to replay files, see Replay.
+ *
+ * Since the Engine only depends on its seed and the turns it is given, a
+ * game is stored as the seed, the size of the board and every turn with
+ * the step it was taken in. The header and every turn are flushed to
+ * the file as soon as they are recorded, a few bytes a few times a
+ * second, so a game that is cut off by a crash can still be read up to
+ * its last turn.
+ *
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class ReplayRecorder {
+
+    private File mDirectory;
+    private DataOutputStream mOut;
+    private long mLastTick;
+
+    /**
+     * Constructor of the ReplayRecorder.
+     * @param inDirectory directory for the replay files, created when needed
+     */
+    public ReplayRecorder(File inDirectory) {
+        mDirectory = inDirectory;
+    }
+
+    /**
+     * Starts recording a new game, ending the one being recorded.
+     * @param inSeed seed of the game
+     * @param inWidth number of tiles (x)
+     * @param inHeight number of tiles (y)
+     * @return the new replay file
+     * @throws IOException if the file can not be created
+     */
+    public File start(long inSeed, int inWidth, int inHeight) throws IOException {
+        return start(inSeed, inWidth, inHeight, 0);
+    }
+
+    /**
+     * Starts recording a new game, ending the one being recorded.
+     * @param inSeed seed of the game
+     * @param inWidth number of tiles (x)
+     * @param inHeight number of tiles (y)
+     * @param inItems most items on the board at once
+     * @return the new replay file
+     * @throws IOException if the file can not be created
+     */
+    public File start(long inSeed, int inWidth, int inHeight, int inItems) throws IOException {
+        close();
+
+        if(!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+            throw new IOException("Can not create " + mDirectory);
+        }
+        File file = new File(mDirectory, String.format("%d-%016x%s",
+                System.currentTimeMillis(), inSeed, Replay.SUFFIX));
+
+        mOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        mOut.writeInt(Replay.MAGIC);
+        mOut.writeByte(Replay.VERSION);
+        mOut.writeLong(inSeed);
+        mOut.writeShort(inWidth);
+        mOut.writeShort(inHeight);
+        mOut.writeShort(inItems);
+        mOut.flush();
+        mLastTick = 0;
+        return file;
+    }
+
+    /**
+     * Records a turn and flushes it to the file.
+     * @param inTick step the turn is taken in, Engine.getTicks before the step
+     * @param inDirection the direction given to the Engine
+     * @throws IOException if the turn can not be written
+     */
+    public void turn(long inTick, int inDirection) throws IOException {
+        if(mOut == null) {
+            return;
+        }
+        writeTick(inTick);
+        mOut.writeByte(inDirection);
+        mOut.flush();
+    }
+
+    /**
+     * Records the end of the game and flushes it to the file.
+     * @param inTicks number of steps of the game
+     * @param inPoints points of the game
+     * @throws IOException if the end can not be written
+     */
+    public void end(long inTicks, int inPoints) throws IOException {
+        if(mOut == null) {
+            return;
+        }
+        writeTick(inTicks);
+        mOut.writeByte(Replay.END);
+        mOut.writeInt(inPoints);
+        close();
+    }
+
+    /**
+     * Writes the steps since the last record as a variable length number,
+     * so most records take two bytes.
+     * @param inTick step of the record
+     * @throws IOException if the tick can not be written
+     */
+    private void writeTick(long inTick) throws IOException {
+        long delta = inTick - mLastTick;
+        mLastTick = inTick;
+        while((delta & ~0x7FL) != 0) {
+            mOut.writeByte((int) (delta & 0x7F) | 0x80);
+            delta >>>= 7;
+        }
+        mOut.writeByte((int) delta);
+    }
+
+    /**
+     * Flushes and closes the file of the game being recorded, if any.
+     * @throws IOException if the file can not be written
+     */
+    public void close() throws IOException {
+        if(mOut != null) {
+            DataOutputStream out = mOut;
+            mOut = null;
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package snake;
+
+import java.nio.ByteBuffer;
+
+/**
+ * RewindBuffer keeps the last snapshots of a game, so it can be taken
+ * back a number of snapshots at once.
+ *
+ * The buffers of the snapshots are reused when the window rolls over,
+ * they only grow when the snake has grown past them, so saving a
+ * snapshot every step allocates nothing while playing.
+ *
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class RewindBuffer {
+
+    private ByteBuffer[] mSnapshots;
+    private long[] mTicks;
+    private int mNewest = -1;
+    private int mSize;
+
+    /**
+     * Constructor of the RewindBuffer.
+     * @param inCapacity number of snapshots to keep
+     */
+    public RewindBuffer(int inCapacity) {
+        mSnapshots = new ByteBuffer[inCapacity];
+        mTicks = new long[inCapacity];
+    }
+
+    /**
+     * Saves a snapshot of a game, replacing the oldest one when full.
+     * @param inEngine the game
+     */
+    public void save(Engine inEngine) {
+        mNewest = (mNewest + 1) % mSnapshots.length;
+
+        int size = inEngine.getSnapshotSize();
+        ByteBuffer snapshot = mSnapshots[mNewest];
+        if(snapshot == null || snapshot.capacity() < size) {
+            snapshot = ByteBuffer.allocate(Math.max(size, snapshot == null ? 0 : snapshot.capacity() * 2));
+            mSnapshots[mNewest] = snapshot;
+        }
+
+        snapshot.clear();
+        inEngine.snapshot(snapshot);
+        snapshot.flip();
+        mTicks[mNewest] = inEngine.getTicks();
+        mSize = Math.min(mSize + 1, mSnapshots.length);
+    }
+
+    /**
+     * Takes a game back to an earlier snapshot, the snapshots after it are dropped.
+     * @param inEngine the game
+     * @param inBack 0 for the newest snapshot, 1 for the one before it and so on
+     * @return false if there are not that many snapshots
+     */
+    public boolean rewind(Engine inEngine, int inBack) {
+        if(inBack < 0 || inBack >= mSize) {
+            return false;
+        }
+
+        mNewest = (mNewest - inBack + mSnapshots.length) % mSnapshots.length;
+        mSize -= inBack;
+
+        ByteBuffer snapshot = mSnapshots[mNewest];
+        inEngine.restore(snapshot);
+        snapshot.rewind();
+        return true;
+    }
+
+    /**
+     * Gets the step an earlier snapshot was taken at.
+     * @param inBack 0 for the newest snapshot, 1 for the one before it and so on
+     * @return Engine.getTicks at the snapshot
+     */
+    public long getTicks(int inBack) {
+        if(inBack < 0 || inBack >= mSize) {
+            throw new IndexOutOfBoundsException("No snapshot " + inBack + " back");
+        }
+        return mTicks[(mNewest - inBack + mSnapshots.length) % mSnapshots.length];
+    }
+
+    /**
+     * Gets the number of snapshots kept.
+     * @return number of snapshots
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Drops all snapshots, the buffers are kept for reuse.
+     */
+    public void clear() {
+        mNewest = -1;
+        mSize = 0;
+    }
+}
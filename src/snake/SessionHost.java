@@ -0,0 +1,644 @@
+package snake;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SessionHost plays a great many headless games in one process, for
+ * players that are connected some other way and mostly do nothing.
+ *
+ * Instead of a thread per game, like the Board has, the sessions are
+ * spread over a few shards, and each shard is one thread that steps all
+ * its games on a shared GameClock. A session whose client has sent
+ * nothing for a while, neither a turn nor a ping, or whose snake is dead,
+ * is parked: its Engine is written to a small snapshot and handed back to
+ * a pool, and it is not stepped until the client is heard from again. A
+ * game that is going straight has no turns, so a client that is still
+ * there pings. New sessions start out parked and the game begins with the
+ * first turn. A parked session that stays idle until the timeout is
+ * closed. A step never looks at the parked sessions: a turn, ping or
+ * close puts a parked session in the wake queue of its shard, and one
+ * that times out is found by the step it times out at. So memory follows
+ * the number of sessions times the size of a snapshot, and time follows
+ * the number of active sessions.
+ *
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class SessionHost {
+
+    /**
+     * Number of steps every active game takes per second.
+     */
+    public static final int TICKS_PER_SECOND = 20;
+
+    private static final int MAX_CATCH_UP = 5;
+    private static final int SPARE_ENGINES = 64;
+
+    private final int mWidth, mHeight;
+    private final int mParkTicks, mTimeoutTicks;
+    private final AtomicLong mSeed;
+    private final Shard[] mShards;
+    private final AtomicInteger mNextShard = new AtomicInteger();
+    private final LatencyHistogram mTickTimes = new LatencyHistogram();
+    private Thread[] mThreads;
+    private volatile boolean mRunning;
+
+    /**
+     * Constructor of the SessionHost, no threads are started until start.
+     * @param inWidth number of tiles (x) of every game
+     * @param inHeight number of tiles (y) of every game
+     * @param inSeed seed of the first game, the next games count up from it
+     * @param inShards number of threads stepping the games
+     * @param inParkTicks steps without a turn or ping after which a game is parked
+     * @param inTimeoutTicks steps without a turn or ping after which a session is closed
+     * @throws IllegalArgumentException if a side is less than 1 or more than Cell.MAX_SIZE
+     */
+    public SessionHost(int inWidth, int inHeight, long inSeed, int inShards, int inParkTicks, int inTimeoutTicks) {
+        // the games are only created when played, a bad size would show up on a shard
+        OccupancyGrid.checkSize(inWidth, inHeight);
+        mWidth = inWidth;
+        mHeight = inHeight;
+        mSeed = new AtomicLong(inSeed);
+        mParkTicks = inParkTicks;
+        mTimeoutTicks = inTimeoutTicks;
+        mShards = new Shard[inShards];
+        for (int i = 0; i < inShards; i++) {
+            mShards[i] = new Shard();
+        }
+    }
+
+    /**
+     * Starts one thread per shard that steps its games until stop.
+     */
+    public synchronized void start() {
+        mRunning = true;
+        mThreads = new Thread[mShards.length];
+        for (int i = 0; i < mShards.length; i++) {
+            mThreads[i] = new Thread(mShards[i], "Snake sessions " + i);
+            mThreads[i].start();
+        }
+    }
+
+    /**
+     * Stops the threads and waits for them to finish their step.
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public synchronized void stop() throws InterruptedException {
+        mRunning = false;
+        if(mThreads != null) {
+            for (Thread thread : mThreads) {
+                thread.join();
+            }
+            mThreads = null;
+        }
+    }
+
+    /**
+     * Creates a session with a new game, it starts parked and begins with
+     * the first turn, so opening a session only takes a few bytes.
+     * @return the session
+     */
+    public Session open() {
+        int shard = (mNextShard.getAndIncrement() & Integer.MAX_VALUE) % mShards.length;
+        Session session = new Session(mSeed.getAndIncrement(), mShards[shard]);
+        // the shard takes in new sessions the way it wakes parked ones
+        session.wake();
+        return session;
+    }
+
+    /**
+     * Steps every shard once on the calling thread, for hosts that are not started.
+     */
+    void tick() {
+        for (Shard shard : mShards) {
+            shard.tick();
+        }
+    }
+
+    /**
+     * Gets the number of open sessions, as of the last step.
+     * @return number of sessions
+     */
+    public int getSessionCount() {
+        int count = 0;
+        for (Shard shard : mShards) {
+            count += shard.mSessionCount;
+        }
+        return count;
+    }
+
+    /**
+     * Gets the number of sessions that are not parked, as of the last step.
+     * @return number of sessions
+     */
+    public int getActiveCount() {
+        int count = 0;
+        for (Shard shard : mShards) {
+            count += shard.mActiveCount;
+        }
+        return count;
+    }
+
+    /**
+     * Gets the times the shards took for a step.
+     * @return the recorded times
+     */
+    public LatencyHistogram getTickTimes() {
+        return mTickTimes;
+    }
+
+    /**
+     * Gets the part of the time between steps that the slowest 1 percent
+     * of the steps of a shard took.
+     * @return 1 when the shards just keep up, more when they fall behind
+     */
+    public double getLoad() {
+        return (double) mTickTimes.getPercentile(99) * TICKS_PER_SECOND / TimeUnit.SECONDS.toNanos(1);
+    }
+
+    /**
+     * Gets the number of sessions the host could hold, going by the memory
+     * the sessions use now and how busy the shards are, if the share of
+     * active sessions stays the same.
+     * @param inBytesPerSession memory one session takes, on average
+     * @return number of sessions
+     */
+    public long getCapacity(long inBytesPerSession) {
+        long byMemory = Runtime.getRuntime().maxMemory() / Math.max(1, inBytesPerSession);
+        double load = getLoad();
+        long byTime = load > 0 ? (long) (getSessionCount() / load) : Long.MAX_VALUE;
+        return Math.min(byMemory, byTime);
+    }
+
+    /**
+     * One game, with the turn it takes on the next step. Everything but
+     * turn, ping and close is called by the thread stepping the game, the
+     * getters can be called by any thread.
+     */
+    public static class Session {
+
+        // one updater for all sessions, an AtomicBoolean each would double their size when parked
+        private static final AtomicIntegerFieldUpdater<Session> QUEUED =
+                AtomicIntegerFieldUpdater.newUpdater(Session.class, "mQueued");
+
+        private final AtomicInteger mTurn = new AtomicInteger(Engine.KEEP_DIRECTION);
+        private final long mSeed;
+        private final Shard mShard;
+        private Engine mEngine;
+        private byte[] mSnapshot;
+        private boolean mAttached;
+        private long mLastHeard;
+        private long mDeadline;
+        private volatile int mQueued;
+        private volatile boolean mHeard;
+        private volatile boolean mParked = true;
+        private volatile boolean mClosed;
+        private volatile int mPoints;
+        private volatile long mTicks;
+        private volatile boolean mDead;
+
+        /**
+         * Constructor of the Session.
+         * @param inSeed seed of the game
+         * @param inShard shard that steps the game
+         */
+        Session(long inSeed, Shard inShard) {
+            mSeed = inSeed;
+            mShard = inShard;
+        }
+
+        /**
+         * Turns the snake on the next step, and wakes a parked game.
+         * A turn in a game that is over starts a new game.
+         * @param inDirection new direction
+         */
+        public void turn(int inDirection) {
+            mTurn.set(inDirection);
+            mHeard = true;
+            wake();
+        }
+
+        /**
+         * Tells that the client is still there without turning, so the
+         * game is not parked, and wakes a parked game that has begun and
+         * is not over.
+         */
+        public void ping() {
+            mHeard = true;
+            wake();
+        }
+
+        /**
+         * Closes the session, it is dropped on the next step.
+         */
+        public void close() {
+            mClosed = true;
+            wake();
+        }
+
+        /**
+         * Puts a parked session in the wake queue of its shard, once.
+         */
+        void wake() {
+            if(mParked && QUEUED.compareAndSet(this, 0, 1)) {
+                mShard.mWake.add(this);
+            }
+        }
+
+        /**
+         * Takes the turn of the step, if there is one.
+         * @return the direction, or Engine.KEEP_DIRECTION
+         */
+        int takeTurn() {
+            // most sessions have no turn, reading is cheaper than swapping
+            if(mTurn.get() == Engine.KEEP_DIRECTION) {
+                return Engine.KEEP_DIRECTION;
+            }
+            return mTurn.getAndSet(Engine.KEEP_DIRECTION);
+        }
+
+        /**
+         * Takes whether the client was heard from since the last step.
+         * @return true if there was a turn or a ping
+         */
+        boolean takeHeard() {
+            if(!mHeard) {
+                return false;
+            }
+            mHeard = false;
+            return true;
+        }
+
+        /**
+         * Steps the game and publishes its state.
+         * @param inDirection new direction, or Engine.KEEP_DIRECTION
+         */
+        void step(int inDirection) {
+            mEngine.step(inDirection);
+            mPoints = mEngine.getPoints();
+            mTicks = mEngine.getTicks();
+            mDead = mEngine.isDead();
+        }
+
+        /**
+         * Checks whether the session is closed.
+         * @return true if closed or timed out
+         */
+        public boolean isClosed() {
+            return mClosed;
+        }
+
+        /**
+         * Checks whether the game is parked.
+         * @return true if the game is not being stepped
+         */
+        public boolean isParked() {
+            return mParked;
+        }
+
+        /**
+         * Getter for the points
+         * @return the points of the game
+         */
+        public int getPoints() {
+            return mPoints;
+        }
+
+        /**
+         * Getter for the ticks
+         * @return number of steps of the game
+         */
+        public long getTicks() {
+            return mTicks;
+        }
+
+        /**
+         * Checks whether the snake is dead.
+         * @return true if the game is over
+         */
+        public boolean isDead() {
+            return mDead;
+        }
+
+        /**
+         * Gets the memory the parked game takes.
+         * @return size of the snapshot in bytes, or 0 if not parked
+         */
+        public int getSnapshotSize() {
+            byte[] snapshot = mSnapshot;
+            return mParked && snapshot != null ? snapshot.length : 0;
+        }
+    }
+
+    /**
+     * Some of the sessions, and the thread stepping them. Only the active
+     * sessions are in the list that is stepped. A parked session is woken
+     * through the wake queue by its client, and found when it times out
+     * by the slot of its deadline in a ring of slots, one per step up to
+     * the timeout.
+     */
+    private class Shard implements Runnable {
+
+        private final ConcurrentLinkedQueue<Session> mWake = new ConcurrentLinkedQueue();
+        private final ArrayList<Session> mSessions = new ArrayList();
+        private final ArrayList<Session>[] mTimeouts = new ArrayList[Math.max(1, mTimeoutTicks + 1)];
+        private final Engine[] mSpareEngines = new Engine[SPARE_ENGINES];
+        private int mSpareCount;
+        private long mTick;
+        private int mParkedCount;
+        private volatile int mSessionCount;
+        private volatile int mActiveCount;
+
+        /**
+         * The loop of the shard, name required by the Runnable interface.
+         */
+        @Override
+        public void run() {
+            GameClock clock = new GameClock(TICKS_PER_SECOND, MAX_CATCH_UP);
+            try {
+                while(mRunning) {
+                    clock.sleepUntilNextTick();
+                    int ticks = clock.advance();
+                    for (int i = 0; i < ticks; i++) {
+                        long start = System.nanoTime();
+                        tick();
+                        mTickTimes.record(System.nanoTime() - start);
+                    }
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Steps the active games and parks the idle ones, then wakes the
+         * sessions that were heard from and closes the ones that timed out.
+         */
+        void tick() {
+            mTick++;
+            for (int i = 0; i < mSessions.size(); i++) {
+                Session session = mSessions.get(i);
+                int turn = session.takeTurn();
+                if(session.takeHeard() || turn != Engine.KEEP_DIRECTION) {
+                    session.mLastHeard = mTick;
+                }
+                long idle = mTick - session.mLastHeard;
+
+                if(session.mClosed || idle >= mTimeoutTicks) {
+                    session.mClosed = true;
+                    session.mAttached = false;
+                    release(session.mEngine);
+                    session.mEngine = null;
+                } else {
+                    session.step(turn);
+                    if(!session.mDead && idle < mParkTicks) {
+                        continue;
+                    }
+                    park(session);
+                }
+
+                // move the last session into the hole
+                Session last = mSessions.remove(mSessions.size() - 1);
+                if(last != session) {
+                    mSessions.set(i--, last);
+                }
+            }
+
+            Session woken;
+            while((woken = mWake.poll()) != null) {
+                woken.mQueued = 0;
+                wake(woken);
+            }
+
+            ArrayList<Session> timeouts = mTimeouts[(int) (mTick % mTimeouts.length)];
+            if(timeouts != null) {
+                for (Session session : timeouts) {
+                    // a session woken or heard from since has another deadline
+                    if(session.mAttached && session.mParked && session.mDeadline == mTick) {
+                        drop(session);
+                    }
+                }
+                timeouts.clear();
+            }
+
+            mSessionCount = mSessions.size() + mParkedCount;
+            mActiveCount = mSessions.size();
+        }
+
+        /**
+         * Takes in a new session, drops a closed one, or steps a parked game
+         * that its client has turned or pinged and makes it active again.
+         * @param inSession a session from the wake queue
+         */
+        private void wake(Session inSession) {
+            if(inSession.mClosed) {
+                if(inSession.mAttached && inSession.mParked) {
+                    drop(inSession);
+                }
+                return;
+            }
+            if(!inSession.mAttached) {
+                inSession.mAttached = true;
+                inSession.mLastHeard = mTick;
+                mParkedCount++;
+                schedule(inSession);
+            }
+            if(!inSession.mParked) {
+                return;
+            }
+
+            int turn = inSession.takeTurn();
+            if(!inSession.takeHeard() && turn == Engine.KEEP_DIRECTION) {
+                return;
+            }
+            inSession.mLastHeard = mTick;
+
+            // a ping wakes a game, only a turn begins one or starts it again
+            boolean started = inSession.mSnapshot != null && !inSession.mDead;
+            if(!started && turn == Engine.KEEP_DIRECTION) {
+                schedule(inSession);
+                return;
+            }
+
+            unpark(inSession);
+            if(inSession.mDead) {
+                inSession.mEngine.reset();
+            }
+            inSession.step(turn);
+            if(inSession.mDead) {
+                park(inSession);
+            } else {
+                mSessions.add(inSession);
+            }
+        }
+
+        /**
+         * Puts a parked session in the slot of the step it times out at.
+         * @param inSession the session
+         */
+        private void schedule(Session inSession) {
+            inSession.mDeadline = inSession.mLastHeard + mTimeoutTicks;
+            int slot = (int) (inSession.mDeadline % mTimeouts.length);
+            if(mTimeouts[slot] == null) {
+                mTimeouts[slot] = new ArrayList();
+            }
+            mTimeouts[slot].add(inSession);
+        }
+
+        /**
+         * Closes a parked session and lets go of its snapshot.
+         * @param inSession the session
+         */
+        private void drop(Session inSession) {
+            inSession.mClosed = true;
+            inSession.mAttached = false;
+            inSession.mSnapshot = null;
+            mParkedCount--;
+        }
+
+        /**
+         * Writes the game of a session to a snapshot and lets go of the Engine.
+         * @param inSession the session
+         */
+        private void park(Session inSession) {
+            Engine engine = inSession.mEngine;
+            byte[] snapshot = new byte[engine.getSnapshotSize()];
+            engine.snapshot(ByteBuffer.wrap(snapshot));
+            inSession.mSnapshot = snapshot;
+            inSession.mEngine = null;
+            inSession.mParked = true;
+            mParkedCount++;
+            release(engine);
+            schedule(inSession);
+
+            // a client that turned just before the game was parked did not wake it
+            if(inSession.mHeard || inSession.mTurn.get() != Engine.KEEP_DIRECTION) {
+                inSession.wake();
+            }
+        }
+
+        /**
+         * Restores the game of a parked session into a spare Engine, or
+         * starts it if it has not been played yet.
+         * @param inSession the session
+         */
+        private void unpark(Session inSession) {
+            Engine engine = mSpareCount > 0 ? mSpareEngines[--mSpareCount] : new Engine(mWidth, mHeight, 0);
+            if(inSession.mSnapshot == null) {
+                engine.reset(inSession.mSeed);
+            } else {
+                engine.restore(ByteBuffer.wrap(inSession.mSnapshot));
+            }
+            inSession.mEngine = engine;
+            inSession.mSnapshot = null;
+            inSession.mParked = false;
+            mParkedCount--;
+        }
+
+        /**
+         * Keeps an Engine that is no longer used for the next game to be unparked.
+         * @param inEngine the engine
+         */
+        private void release(Engine inEngine) {
+            if(mSpareCount < SPARE_ENGINES) {
+                mSpareEngines[mSpareCount++] = inEngine;
+            }
+        }
+    }
+
+    /**
+     * Opens many sessions that mostly do nothing, lets some of them play,
+     * and reports how many sessions the process could hold.
+     * @param args --sessions, --playing (number of sessions that are heard from), --width,
+     * --height, --threads, --park and --timeout (seconds) and --seconds to run
+     * @throws InterruptedException if interrupted while running
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int sessions = 100000;
+        int playing = 1000;
+        int width = 30;
+        int height = 20;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int park = 5;
+        int timeout = 600;
+        int seconds = 30;
+
+        for (int i = 0; i < args.length; i += 2) {
+            if(i + 1 == args.length) {
+                throw new IllegalArgumentException("Missing value for option: " + args[i]);
+            }
+            String value = args[i + 1];
+            switch(args[i]) {
+                case "--sessions":
+                    sessions = Integer.parseInt(value);
+                    break;
+                case "--playing":
+                    playing = Integer.parseInt(value);
+                    break;
+                case "--width":
+                    width = Integer.parseInt(value);
+                    break;
+                case "--height":
+                    height = Integer.parseInt(value);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(value);
+                    break;
+                case "--park":
+                    park = Integer.parseInt(value);
+                    break;
+                case "--timeout":
+                    timeout = Integer.parseInt(value);
+                    break;
+                case "--seconds":
+                    seconds = Integer.parseInt(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long before = runtime.totalMemory() - runtime.freeMemory();
+
+        SessionHost host = new SessionHost(width, height, 1, threads,
+                park * TICKS_PER_SECOND, timeout * TICKS_PER_SECOND);
+        Session[] opened = new Session[sessions];
+        for (int i = 0; i < sessions; i++) {
+            opened[i] = host.open();
+        }
+        host.start();
+
+        // the players ping a few times a second and turn now and then, the others send nothing
+        Random random = new Random(1);
+        int[] directions = {Snake.MOVE_UP, Snake.MOVE_RIGHT, Snake.MOVE_DOWN, Snake.MOVE_LEFT};
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        while(System.nanoTime() < end) {
+            for (int i = 0; i < playing; i++) {
+                if(random.nextInt(4) == 0) {
+                    opened[i].turn(directions[random.nextInt(4)]);
+                } else {
+                    opened[i].ping();
+                }
+            }
+            TimeUnit.MILLISECONDS.sleep(250);
+        }
+
+        System.gc();
+        long bytesPerSession = (runtime.totalMemory() - runtime.freeMemory() - before) / Math.max(1, sessions);
+        LatencyHistogram times = host.getTickTimes();
+        System.out.printf("%d sessions, %d active, %d shards%n", host.getSessionCount(), host.getActiveCount(), threads);
+        System.out.printf("%d bytes per session, step of a shard mean %.1f us, p99 %.1f us, load %.3f%n",
+                bytesPerSession, times.getMean() / 1e3, times.getPercentile(99) / 1e3, host.getLoad());
+        System.out.printf("Capacity about %d sessions in %d MB%n", host.getCapacity(bytesPerSession), runtime.maxMemory() >> 20);
+        host.stop();
+    }
+}
@@ -1,6 +1,7 @@
 package snake;
 
 import java.awt.Point;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 
 /**
@@ -16,13 +17,14 @@ public class Snake implements Collideable {
     public final static int MOVE_RIGHT = 4;
     
     private final static int INITIAL_LENGTH = 3;
-    private final static int INITIAL_SPEED = 50;
     
-    private boolean mStopped = false;
-    private int mDirection, mNextDirection, mMoveEvery, mLength;
+    private volatile boolean mStopped = false;
+    private int mDirection, mNextDirection, mLength;
     private Point mLocation;
-    private ArrayList<Point> mTail;
-    private long mLastMove;
+    private int[] mTail;
+    private int mTailStart, mTailSize, mVacated;
+    private OccupancyGrid mGrid;
+    private int mId, mHitId;
     
     /**
      * Construcor for the Snake class
@@ -33,10 +35,9 @@ public class Snake implements Collideable {
     public Snake(int inX, int inY, int inInitialDirection) {
         mLocation = new Point(inX,inY);
         mDirection = mNextDirection = inInitialDirection;
-        mMoveEvery = 100 - INITIAL_SPEED;
         mLength = INITIAL_LENGTH;
-        mTail = new ArrayList();
-        mLastMove = System.currentTimeMillis();
+        mTail = new int[INITIAL_LENGTH];
+        mVacated = Cell.NONE;
     }
     
     /**
@@ -63,14 +64,36 @@ public class Snake implements Collideable {
      */
     public void grow() {
         mLength++;
+        
+        if(mLength > mTail.length) {
+            growTail(mTail.length * 2);
+        }
+    }
+    
+    /**
+     * Gets the length the tail grows to, one more for every fruit eaten.
+     * @return length of the tail when fully grown
+     */
+    public int getLength() {
+        return mLength;
+    }
+    
+    /**
+     * Gets the number of tail tiles.
+     * @return length of the tail
+     */
+    public int getTailLength() {
+        return mTailSize;
     }
     
     /**
-     * Get the tail
-     * @return tail
+     * Gets one tile of the tail, without copying the tail.
+     * @param inIndex index of the tile, 0 is the end of the tail
+     * @return packed cell of the tile
      */
-    public Point[] getTail() {
-        return mTail.toArray(new Point[0]);
+    public int getTailCell(int inIndex) {
+        int[] tail = mTail;
+        return tail[(mTailStart + inIndex) % tail.length];
     }
     
     /**
@@ -84,6 +107,14 @@ public class Snake implements Collideable {
         }
     }
     
+    /**
+     * Getter for direction
+     * @return the direction the snake moved in last
+     */
+    public int getDirection() {
+        return mDirection;
+    }
+    
     /**
      * Setter for stopped
      * @param inStopped stop?
@@ -101,35 +132,72 @@ public class Snake implements Collideable {
     }
     
     /**
-     * Updates the state of the snake.
-     * Usually called once per iteration in the game loop.
+     * Gets the tile the end of the tail left during the last move.
+     * @return packed cell of vacated tile, or Cell.NONE if the snake grew instead
      */
-    public void update() {
-        long delta = System.currentTimeMillis() - mLastMove;
-        if( mMoveEvery < delta) {
-            mLastMove = System.currentTimeMillis();
-            
-            if(!mStopped) {
-                updateTail();
+    public int getVacatedCell() {
+        return mVacated;
+    }
+    
+    /**
+     * Updates the state of the snake, moving it one tile unless it is stopped.
+     * Called once per simulation step, how often is up to the game clock.
+     * When registered in a grid the snake also wraps around the edges
+     * of the grid and keeps its tiles in the grid up to date.
+     * @return true if the snake moved
+     */
+    public boolean update() {
+        boolean moved = moveTail();
+        if(moved) {
+            moveHead();
+        }
+        return moved;
+    }
+    
+    /**
+     * First half of a move: the old head becomes tail and the end of the
+     * tail leaves its tile. When many snakes move at once all of them do
+     * this before any of them moves its head, so a head may follow a tail.
+     * @return true if the snake moves, false if it is stopped
+     */
+    boolean moveTail() {
+        mDirection = mNextDirection;
+        mHitId = 0;
+        if(mStopped) {
+            return false;
+        }
+        
+        updateTail();
+        if(mGrid != null && mVacated != Cell.NONE) {
+            mGrid.free(Cell.x(mVacated), Cell.y(mVacated));
+        }
+        return true;
+    }
+    
+    /**
+     * Second half of a move: the head moves one tile and, when registered,
+     * occupies it, remembering what it ran into.
+     */
+    void moveHead() {
+        switch(mDirection) {
+            case MOVE_DOWN:
+                mLocation.y++;
+                break;
+            case MOVE_LEFT:
+                mLocation.x--;
+                break;
+            case MOVE_RIGHT:
+                mLocation.x++;
+                break;
 
-                switch(mDirection) {
-                    case MOVE_DOWN:
-                        mLocation.y++;
-                        break;
-                    case MOVE_LEFT:
-                        mLocation.x--;
-                        break;
-                    case MOVE_RIGHT:
-                        mLocation.x++;
-                        break;
+            case MOVE_UP:
+                mLocation.y--;
+                break;
+        }
 
-                    case MOVE_UP:
-                        mLocation.y--;
-                        break;
-                }
-            }
-            
-            mDirection = mNextDirection;
+        if(mGrid != null) {
+            wormHole();
+            updateGrid();
         }
     }
     
@@ -137,25 +205,94 @@ public class Snake implements Collideable {
      * Updates the tail.
      */
     private void updateTail() {
-        mTail.add(new Point(mLocation.x, mLocation.y));
-            
-        if(mTail.size() > mLength) {
-            mTail.remove(0);
+        mVacated = Cell.NONE;
+        
+        if(mTailSize == mLength) {
+            // reuse the slot of the end of the tail
+            mVacated = mTail[mTailStart];
+            mTailStart = (mTailStart + 1) % mTail.length;
+            mTailSize--;
+        }
+        
+        mTail[(mTailStart + mTailSize) % mTail.length] = Cell.pack(mLocation.x, mLocation.y);
+        mTailSize++;
+    }
+    
+    /**
+     * Makes the snake go from one side of the grid to the other, if necessary.
+     */
+    private void wormHole() {
+        if(mLocation.x >= mGrid.getWidth()) {
+            mLocation.x = 0;
+        }
+
+        if(mLocation.x < 0) {
+            mLocation.x = mGrid.getWidth() - 1;
+        }
+
+        if(mLocation.y >= mGrid.getHeight()) {
+            mLocation.y = 0;
+        }
+
+        if(mLocation.y < 0) {
+            mLocation.y = mGrid.getHeight() - 1;
+        }
+    }
+    
+    /**
+     * Occupies the new head tile, remembering what the head ran into.
+     * A head that runs into a snake leaves the tile to that snake.
+     */
+    private void updateGrid() {
+        mHitId = mGrid.getOccupantId(mLocation.x, mLocation.y);
+        if(mHitId == 0 || !(mGrid.getRegistered(mHitId) instanceof Snake)) {
+            mGrid.occupy(mLocation.x, mLocation.y, mId);
+        }
+    }
+    
+    /**
+     * Gets the object the head ran into during the last move.
+     * @return the object, or null if the head moved to a free tile
+     */
+    public Collideable getHit() {
+        return mHitId == 0 ? null : mGrid.getRegistered(mHitId);
+    }
+    
+    /**
+     * Moves the tail to a larger buffer, keeping it in order.
+     * @param inCapacity new capacity
+     */
+    private void growTail(int inCapacity) {
+        int[] tail = new int[inCapacity];
+        for (int i = 0; i < mTailSize; i++) {
+            tail[i] = getTailCell(i);
         }
+        mTail = tail;
+        mTailStart = 0;
     }
 
     /**
      * Checks whether some other object collide with the snake.
+     * When registered in a grid this is a lookup on the tile of the object,
+     * the snake collides with itself if its head ran into its own tail.
      * 
      * @param inObject the object that collides
      * @return true if there is a collision
      */
     @Override
     public boolean collide(Collideable inObject) {
+        if(mGrid != null) {
+            if(inObject == this) {
+                return mHitId == mId;
+            }
+            return mGrid.getOccupantId(inObject.getLocation().x, inObject.getLocation().y) == mId;
+        }
+        
         boolean collided = false;
+        int cell = Cell.pack(inObject.getLocation().x, inObject.getLocation().y);
         
-        for(int i = 0; !collided && i < mTail.size() - 1; i++) {
-            if(mTail.get(i).equals(inObject.getLocation())) {
+        for(int i = 0; !collided && i < mTailSize - 1; i++) {
+            if(getTailCell(i) == cell) {
                 collided = true;
             }
         }
@@ -165,13 +302,133 @@ public class Snake implements Collideable {
     
     /**
      * All locations that the snake occupy.
+     * Builds a new list on every call, use getCells in the game loop.
      * @return all locations of the snake
      */
     @Override
     public ArrayList<Point> getLocations() {
         ArrayList<Point> locations = new ArrayList();
         locations.add(mLocation);
-        locations.addAll(mTail);
+        for (int i = 0; i < mTailSize; i++) {
+            int cell = getTailCell(i);
+            locations.add(new Point(Cell.x(cell), Cell.y(cell)));
+        }
         return locations;
     }
+    
+    /**
+     * Gets the number of tiles the snake occupy.
+     * @return number of tiles, the head included
+     */
+    @Override
+    public int getCellCount() {
+        return mTailSize + 1;
+    }
+    
+    /**
+     * Writes the head and then the tail, from the end of the tail,
+     * as packed cells into an array.
+     * @param inCells array to fill
+     * @return number of cells written
+     */
+    @Override
+    public int getCells(int[] inCells) {
+        inCells[0] = Cell.pack(mLocation.x, mLocation.y);
+        
+        // the tail wraps around the end of the buffer, copy it in two parts
+        int first = Math.min(mTailSize, mTail.length - mTailStart);
+        System.arraycopy(mTail, mTailStart, inCells, 1, first);
+        System.arraycopy(mTail, 0, inCells, 1 + first, mTailSize - first);
+        return mTailSize + 1;
+    }
+    
+    /**
+     * Gets the size of a snapshot of the snake.
+     * @return size in bytes
+     */
+    int getSnapshotSize() {
+        return 4 + 1 + 1 + 1 + 4 + 4 + 4 + 4 * mTailSize;
+    }
+    
+    /**
+     * Writes the state of the snake, the tail from its end to the head.
+     * @param inBuffer buffer with room for getSnapshotSize bytes
+     */
+    void snapshot(ByteBuffer inBuffer) {
+        inBuffer.putInt(Cell.pack(mLocation.x, mLocation.y));
+        inBuffer.put((byte) mDirection);
+        inBuffer.put((byte) mNextDirection);
+        inBuffer.put((byte) (mStopped ? 1 : 0));
+        inBuffer.putInt(mLength);
+        inBuffer.putInt(mVacated);
+        inBuffer.putInt(mTailSize);
+        for (int i = 0; i < mTailSize; i++) {
+            inBuffer.putInt(getTailCell(i));
+        }
+    }
+    
+    /**
+     * Replaces the state of the snake with a snapshot. The snake has to be
+     * registered in a grid again afterwards.
+     * @param inBuffer buffer positioned at the snapshot
+     */
+    void restore(ByteBuffer inBuffer) {
+        int head = inBuffer.getInt();
+        mLocation.x = Cell.x(head);
+        mLocation.y = Cell.y(head);
+        mDirection = inBuffer.get();
+        mNextDirection = inBuffer.get();
+        mStopped = inBuffer.get() != 0;
+        mLength = inBuffer.getInt();
+        mVacated = inBuffer.getInt();
+        mTailSize = inBuffer.getInt();
+        if(mTailSize > mLength || mLength < 0) {
+            throw new IllegalArgumentException("Snapshot has a tail longer than the snake");
+        }
+        
+        if(mTail.length < mLength) {
+            mTail = new int[Integer.highestOneBit(mLength) * 2];
+        }
+        mTailStart = 0;
+        for (int i = 0; i < mTailSize; i++) {
+            mTail[i] = inBuffer.getInt();
+        }
+        mGrid = null;
+    }
+    
+    /**
+     * Frees the tiles of the snake and gives its id back to the grid,
+     * for example when it dies among other snakes.
+     */
+    public void unregister() {
+        if(mGrid.getOccupantId(mLocation.x, mLocation.y) == mId) {
+            mGrid.free(mLocation.x, mLocation.y);
+        }
+        for (int i = 0; i < mTailSize; i++) {
+            int cell = getTailCell(i);
+            if(mGrid.getOccupantId(Cell.x(cell), Cell.y(cell)) == mId) {
+                mGrid.free(Cell.x(cell), Cell.y(cell));
+            }
+        }
+        
+        mGrid.unregister(mId);
+        mGrid = null;
+    }
+    
+    /**
+     * Registers the head and tail of the snake in an occupancy grid.
+     * @param inGrid grid to register in
+     */
+    @Override
+    public void register(OccupancyGrid inGrid) {
+        mGrid = inGrid;
+        mId = inGrid.register(this);
+        mHitId = 0;
+        
+        mGrid.occupy(mLocation.x, mLocation.y, mId);
+        for (int i = 0; i < mTailSize; i++) {
+            int cell = getTailCell(i);
+            mGrid.occupy(Cell.x(cell), Cell.y(cell), mId);
+        }
+    }
 }
@@ -2,6 +2,9 @@ package snake;
 
 import java.awt.BorderLayout;
 import java.awt.GridLayout;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
@@ -28,6 +31,71 @@ public class SnakeGame extends JFrame {
      * @param inHeight number of vertical tiles 
      */
     public SnakeGame(int inWidth, int inHeight) {
+        this(inWidth, inHeight, false);
+    }
+    
+    /**
+     * Constructor for the snake game.
+     * @param inWidth number of horizontal tiles
+     * @param inHeight number of vertical tiles 
+     * @param inActive true to draw the board with a render thread
+     */
+    public SnakeGame(int inWidth, int inHeight, boolean inActive) {
+        this(inWidth, inHeight, inActive, null);
+    }
+    
+    /**
+     * Constructor for the snake game.
+     * @param inWidth number of horizontal tiles
+     * @param inHeight number of vertical tiles 
+     * @param inActive true to draw the board with a render thread
+     * @param inController bot that plays instead of the user, or null
+     */
+    public SnakeGame(int inWidth, int inHeight, boolean inActive, Controller inController) {
+        this(inWidth, inHeight, inActive, inController, SpriteAtlas.SOURCE_SIZE);
+    }
+    
+    /**
+     * Constructor for the snake game.
+     * @param inWidth number of horizontal tiles
+     * @param inHeight number of vertical tiles 
+     * @param inActive true to draw the board with a render thread
+     * @param inController bot that plays instead of the user, or null
+     * @param inTileSize size of a tile in pixels when the window opens
+     */
+    public SnakeGame(int inWidth, int inHeight, boolean inActive, Controller inController, int inTileSize) {
+        addScorePanel();
+        add(new Board(inWidth, inHeight, this, inActive, inController, inTileSize), BorderLayout.CENTER);
+        showWindow();
+    }
+    
+    /**
+     * Constructor for the snake game playing a recorded game.
+     * @param inReplay the recorded game
+     * @param inActive true to draw the board with a render thread
+     */
+    public SnakeGame(Replay inReplay, boolean inActive) {
+        addScorePanel();
+        add(new Board(inReplay, this, inActive), BorderLayout.CENTER);
+        showWindow();
+    }
+    
+    /**
+     * Constructor for the snake game played on a server.
+     * @param inHost host of the server
+     * @param inPort port of the server
+     * @throws IOException if the server can not be reached
+     */
+    public SnakeGame(String inHost, int inPort) throws IOException {
+        addScorePanel();
+        add(new ClientBoard(inHost, inPort, this), BorderLayout.CENTER);
+        showWindow();
+    }
+    
+    /**
+     * Creates the score labels, before the board that updates them.
+     */
+    private void addScorePanel() {
         setLayout(new BorderLayout());
         
         JPanel scorePanel = new JPanel(new GridLayout(1, 2));
@@ -41,15 +109,18 @@ public class SnakeGame extends JFrame {
         scorePanel.add(mCurrentScore);
         scorePanel.add(mHighscore);
         
-        add(new Board(inWidth, inHeight, this), BorderLayout.CENTER);
-        
         add(scorePanel, BorderLayout.SOUTH);
-        
+    }
+    
+    /**
+     * Sizes and shows the window, the tiles follow the size of the window.
+     */
+    private void showWindow() {
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setLocationRelativeTo(null);
         setTitle("Snake");
         pack();
-        setResizable(false);
+        setResizable(true);
         setVisible(true);
     }
     
@@ -71,9 +142,101 @@ public class SnakeGame extends JFrame {
     
     /**
      * main method for starting
-     * @param args the command line arguments
+     * @param args the command line arguments, --batch plays games without a window,
+     * --server runs a game server, --load connects many clients to a server,
+     * --host plays many idle sessions headless and reports the capacity,
+     * --connect host:port plays on a server, --replay file shows a recorded game,
+     * --verify plays recorded games without a window, otherwise a game is
+     * played in a window with the options of play
+     * @throws ClassNotFoundException if a batch controller can not be found
+     * @throws IOException if the server can not be started or reached
+     * @throws InterruptedException if interrupted while hosting sessions
      */
-    public static void main(String[] args) {
-        new SnakeGame(30, 20);
+    public static void main(String[] args) throws ClassNotFoundException, IOException, InterruptedException {
+        String mode = args.length > 0 ? args[0] : "";
+        String[] rest = args.length > 0 ? Arrays.copyOfRange(args, 1, args.length) : args;
+        switch(mode) {
+            case "--batch":
+                BatchSimulator.main(rest);
+                break;
+            case "--server":
+                GameServer.main(rest);
+                break;
+            case "--load":
+                LoadGenerator.main(rest);
+                break;
+            case "--host":
+                SessionHost.main(rest);
+                break;
+            case "--replay":
+                new SnakeGame(Replay.read(new File(rest[0])), Arrays.asList(rest).contains("--active"));
+                break;
+            case "--verify":
+                Replay.main(rest);
+                break;
+            case "--connect":
+                String address = rest[0];
+                int colon = address.lastIndexOf(':');
+                new SnakeGame(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)));
+                break;
+            default:
+                play(args);
+        }
+    }
+    
+    /**
+     * Plays a game in a window.
+     * @param args --width and --height of the board, --autopilot lets a bot
+     * play as a demo, --active draws the board with a render thread,
+     * --tile-size sets the size of a tile in pixels, --metrics-csv file
+     * appends the metrics to a file and --metrics-log logs them, every
+     * --metrics-period seconds
+     */
+    private static void play(String[] args) {
+        int width = 30;
+        int height = 20;
+        int tileSize = SpriteAtlas.SOURCE_SIZE;
+        boolean active = false;
+        Controller autopilot = null;
+        boolean metrics = false;
+        File metricsFile = null;
+        long metricsPeriod = 10;
+        
+        for (int i = 0; i < args.length; i++) {
+            switch(args[i]) {
+                case "--width":
+                    width = Integer.parseInt(args[++i]);
+                    break;
+                case "--height":
+                    height = Integer.parseInt(args[++i]);
+                    break;
+                case "--tile-size":
+                    tileSize = Integer.parseInt(args[++i]);
+                    break;
+                case "--active":
+                    active = true;
+                    break;
+                case "--autopilot":
+                    autopilot = new AutopilotController();
+                    break;
+                case "--metrics-csv":
+                    metrics = true;
+                    metricsFile = new File(args[++i]);
+                    break;
+                case "--metrics-log":
+                    metrics = true;
+                    break;
+                case "--metrics-period":
+                    metricsPeriod = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        
+        if(metrics) {
+            GameMetrics.getInstance().startDump(metricsFile, metricsPeriod);
+        }
+        new SnakeGame(width, height, active, autopilot, tileSize);
     }
 }
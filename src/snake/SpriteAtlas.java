@@ -0,0 +1,196 @@
+package snake;
+
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import javax.imageio.ImageIO;
+
+/**
+ * SpriteAtlas holds all the images of the game, packed side by side in
+ * one image file, and hands them out scaled for the screen.
+ *
+ * Scaled copies are made once, in the format of the screen and at the
+ * number of pixels a tile really covers on it, which is more than the
+ * tile size on a high DPI screen. Drawing a copy into a tile is then a
+ * plain copy of pixels that Java 2D can keep on the graphics card.
+ * Only the copies for the latest tile size and screen are kept, the
+ * others are flushed when the size changes.
+ *
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class SpriteAtlas {
+
+    /**
+     * Sprite of an empty tile.
+     */
+    public static final int TILE = 0;
+
+    /**
+     * Sprite of the head of the snake.
+     */
+    public static final int HEAD = 1;
+
+    /**
+     * Sprite of the body of the snake.
+     */
+    public static final int BODY = 2;
+
+    /**
+     * Sprite of a fruit.
+     */
+    public static final int FOOD = 3;
+
+    /**
+     * Sprite of a bonus item.
+     */
+    public static final int BONUS = 4;
+
+    /**
+     * Size of a tile the sprites are drawn for, in pixels.
+     */
+    public static final int SOURCE_SIZE = 20;
+
+    private static final String RESOURCE = "sprites.png";
+
+    private BufferedImage mAtlas;
+    private int mCount;
+    private Image[] mSprites;
+    private GraphicsConfiguration mConfiguration;
+    private int mTileSize;
+
+    /**
+     * Constructor of the SpriteAtlas.
+     * @param inAtlas square sprites of SOURCE_SIZE pixels in one row
+     */
+    public SpriteAtlas(BufferedImage inAtlas) {
+        mAtlas = inAtlas;
+        mCount = inAtlas.getWidth() / SOURCE_SIZE;
+    }
+
+    /**
+     * Loads the sprites of the game.
+     * @return the atlas
+     */
+    public static SpriteAtlas load() {
+        try {
+            return new SpriteAtlas(ImageIO.read(SpriteAtlas.class.getResource(RESOURCE)));
+        } catch (IOException ex) {
+            throw new IllegalStateException("Can not read " + RESOURCE, ex);
+        }
+    }
+
+    /**
+     * Gets the sprites scaled for a tile size on a screen, made the first
+     * time they are asked for.
+     * @param inConfiguration the screen
+     * @param inTileSize size of a tile, in the units of the screen
+     * @return the sprites, indexed by TILE, HEAD, BODY, FOOD and BONUS
+     */
+    public synchronized Image[] getSprites(GraphicsConfiguration inConfiguration, int inTileSize) {
+        if(mSprites != null && inConfiguration == mConfiguration && inTileSize == mTileSize) {
+            return mSprites;
+        }
+        flush();
+
+        int pixels = getPixels(inConfiguration, inTileSize);
+        mSprites = new Image[mCount];
+        for (int i = 0; i < mCount; i++) {
+            mSprites[i] = scale(inConfiguration, i, pixels);
+        }
+        mConfiguration = inConfiguration;
+        mTileSize = inTileSize;
+        return mSprites;
+    }
+
+    /**
+     * Makes a copy of one sprite in the format of a screen.
+     * @param inConfiguration the screen
+     * @param inSprite index of the sprite
+     * @param inPixels size of the copy in pixels
+     * @return the copy
+     */
+    private BufferedImage scale(GraphicsConfiguration inConfiguration, int inSprite, int inPixels) {
+        BufferedImage image = inConfiguration.createCompatibleImage(inPixels, inPixels, mAtlas.getTransparency());
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, inPixels < SOURCE_SIZE
+                ? RenderingHints.VALUE_INTERPOLATION_BILINEAR : RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+        g.drawImage(mAtlas, 0, 0, inPixels, inPixels,
+                inSprite * SOURCE_SIZE, 0, (inSprite + 1) * SOURCE_SIZE, SOURCE_SIZE, null);
+        g.dispose();
+        return image;
+    }
+
+    /**
+     * Paints a view full of empty tiles into one image in the format of a screen.
+     * The image is the size of the view in pixels, draw it at the size of
+     * the view in the units of the screen.
+     * @param inConfiguration the screen
+     * @param inTileSize size of a tile, in the units of the screen
+     * @param inColumns number of tiles (x)
+     * @param inRows number of tiles (y)
+     * @return the image
+     */
+    public BufferedImage createBackground(GraphicsConfiguration inConfiguration, int inTileSize, int inColumns, int inRows) {
+        int pixels = getPixels(inConfiguration, inTileSize);
+        Image tile = getSprites(inConfiguration, inTileSize)[TILE];
+
+        BufferedImage background = inConfiguration.createCompatibleImage(inColumns * pixels, inRows * pixels, Transparency.OPAQUE);
+        Graphics2D g = background.createGraphics();
+        for (int x = 0; x < inColumns; x++) {
+            for (int y = 0; y < inRows; y++) {
+                g.drawImage(tile, x * pixels, y * pixels, null);
+            }
+        }
+        g.dispose();
+        return background;
+    }
+
+    /**
+     * Drops the scaled copies.
+     */
+    public synchronized void flush() {
+        if(mSprites != null) {
+            for (Image sprite : mSprites) {
+                sprite.flush();
+            }
+        }
+        mSprites = null;
+        mConfiguration = null;
+    }
+
+    /**
+     * Gets the number of pixels a tile covers on a screen.
+     * @param inConfiguration the screen
+     * @param inTileSize size of a tile, in the units of the screen
+     * @return size of the tile in pixels
+     */
+    public static int getPixels(GraphicsConfiguration inConfiguration, int inTileSize) {
+        double scale = inConfiguration.getDefaultTransform().getScaleX();
+        return Math.max(1, (int) Math.ceil(inTileSize * scale));
+    }
+
+    /**
+     * Gets the largest tile size that fits a view into an area.
+     * @param inWidth width of the area
+     * @param inHeight height of the area
+     * @param inColumns number of tiles in the view (x)
+     * @param inRows number of tiles in the view (y)
+     * @return size of a tile, at least 1
+     */
+    public static int fitTileSize(int inWidth, int inHeight, int inColumns, int inRows) {
+        return Math.max(1, Math.min(inWidth / inColumns, inHeight / inRows));
+    }
+
+    /**
+     * Getter for the number of sprites
+     * @return number of sprites in the atlas
+     */
+    public int getCount() {
+        return mCount;
+    }
+}
@@ -0,0 +1,132 @@
+package snake;
+
+import java.util.Arrays;
+
+/**
+ * TimerWheel finds what runs out at each step, without going through
+ * everything that is waiting.
+ *
+ * Timers are numbered handles put in the slot of the step they run out
+ * at, modulo the number of slots, in a linked list through plain int
+ * arrays. Starting and cancelling a timer is constant time, and each
+ * step only looks at the timers in its own slot. A timer further away
+ * than the number of slots stays in its slot until the wheel has come
+ * round enough times. Nothing is allocated after construction.
+ *
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class TimerWheel {
+
+    private static final int NONE = -1;
+
+    private final int[] mHeads;
+    private final int[] mNext;
+    private final int[] mPrevious;
+    private final long[] mDeadlines;
+    private final boolean[] mScheduled;
+    private final int mMask;
+
+    /**
+     * Constructor of the TimerWheel.
+     * @param inSlots number of slots, rounded up to a power of two
+     * @param inCapacity number of handles, from 0 to inCapacity - 1
+     */
+    public TimerWheel(int inSlots, int inCapacity) {
+        int slots = Integer.highestOneBit(Math.max(1, inSlots) * 2 - 1);
+        mHeads = new int[slots];
+        mMask = slots - 1;
+        mNext = new int[inCapacity];
+        mPrevious = new int[inCapacity];
+        mDeadlines = new long[inCapacity];
+        mScheduled = new boolean[inCapacity];
+        clear();
+    }
+
+    /**
+     * Starts a timer, or moves it if it was already started.
+     * @param inHandle number of the timer
+     * @param inDeadline step the timer runs out at, after the current step
+     */
+    public void schedule(int inHandle, long inDeadline) {
+        cancel(inHandle);
+
+        int slot = (int) (inDeadline & mMask);
+        mDeadlines[inHandle] = inDeadline;
+        mPrevious[inHandle] = NONE;
+        mNext[inHandle] = mHeads[slot];
+        if(mHeads[slot] != NONE) {
+            mPrevious[mHeads[slot]] = inHandle;
+        }
+        mHeads[slot] = inHandle;
+        mScheduled[inHandle] = true;
+    }
+
+    /**
+     * Stops a timer, does nothing if it is not started.
+     * @param inHandle number of the timer
+     */
+    public void cancel(int inHandle) {
+        if(!mScheduled[inHandle]) {
+            return;
+        }
+
+        int next = mNext[inHandle];
+        int previous = mPrevious[inHandle];
+        if(previous == NONE) {
+            mHeads[(int) (mDeadlines[inHandle] & mMask)] = next;
+        } else {
+            mNext[previous] = next;
+        }
+        if(next != NONE) {
+            mPrevious[next] = previous;
+        }
+        mScheduled[inHandle] = false;
+    }
+
+    /**
+     * Stops the timers that run out at a step, to be called for every step.
+     * @param inStep the step
+     * @param inExpired array to fill with the handles, at least as long as the capacity
+     * @return number of handles written
+     */
+    public int expire(long inStep, int[] inExpired) {
+        int count = 0;
+        int handle = mHeads[(int) (inStep & mMask)];
+        while(handle != NONE) {
+            int next = mNext[handle];
+            if(mDeadlines[handle] <= inStep) {
+                cancel(handle);
+                inExpired[count++] = handle;
+            }
+            handle = next;
+        }
+        return count;
+    }
+
+    /**
+     * Checks whether a timer is started.
+     * @param inHandle number of the timer
+     * @return true if it has not run out or been cancelled
+     */
+    public boolean isScheduled(int inHandle) {
+        return mScheduled[inHandle];
+    }
+
+    /**
+     * Gets the step a started timer runs out at.
+     * @param inHandle number of the timer
+     * @return the step
+     */
+    public long getDeadline(int inHandle) {
+        return mDeadlines[inHandle];
+    }
+
+    /**
+     * Stops all timers.
+     */
+    public void clear() {
+        Arrays.fill(mHeads, NONE);
+        Arrays.fill(mScheduled, false);
+    }
+}
@@ -0,0 +1,93 @@
+package snake;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Test class for Arena
+ * 
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class ArenaTest {
+    
+    private Arena instance;
+    
+    public ArenaTest() {
+        instance = new Arena(40, 40, 20, 1);
+    }
+
+    /**
+     * Test of step method, of class Arena.
+     */
+    @Test
+    public void testStep() {
+        for (int i = 0; i < 50; i++) {
+            instance.addSnake(new GreedyArenaController());
+        }
+        
+        int deaths = 0;
+        for (int tick = 0; tick < 500; tick++) {
+            instance.step();
+            
+            // every snake and fruit tile is taken exactly once
+            OccupancyGrid grid = instance.getGrid();
+            assertTrue(grid.getFreeCount() == 40 * 40 - instance.getSegmentCount() - 20);
+        }
+        
+        for (int i = 0; i < instance.getSnakeCount(); i++) {
+            deaths += instance.getDeaths(i);
+        }
+        assertTrue(instance.getTicks() == 500);
+        assertTrue(deaths > 0);
+    }
+    
+    /**
+     * Test of step method with two heads meeting, of class Arena.
+     */
+    @Test
+    public void testHeadOn() {
+        Arena arena = new Arena(10, 10, 0, 1);
+        int left = arena.addSnake(null, 2, 5, Snake.MOVE_RIGHT);
+        int right = arena.addSnake(null, 4, 5, Snake.MOVE_LEFT);
+        
+        arena.step();
+        assertTrue(arena.getDeaths(left) == 1);
+        assertTrue(arena.getDeaths(right) == 1);
+        assertNull(arena.getSnake(left));
+        assertTrue(arena.getGrid().getFreeCount() == 100);
+        
+        // they come back in the next step
+        arena.step();
+        assertNotNull(arena.getSnake(left));
+        assertNotNull(arena.getSnake(right));
+    }
+    
+    /**
+     * Test of step method with a head following a tail, of class Arena.
+     */
+    @Test
+    public void testFollowTail() {
+        Arena arena = new Arena(10, 10, 0, 1);
+        int first = arena.addSnake(null, 1, 5, Snake.MOVE_RIGHT);
+        for (int i = 0; i < 5; i++) {
+            arena.step();
+        }
+        
+        // right behind the end of the tail, which moves away in every step
+        int second = arena.addSnake(null, 2, 5, Snake.MOVE_RIGHT);
+        for (int i = 0; i < 20; i++) {
+            arena.step();
+        }
+        assertTrue(arena.getDeaths(first) == 0);
+        assertTrue(arena.getDeaths(second) == 0);
+        
+        // running into the side of a snake kills only the one running
+        int head = arena.getSnake(first).getLocation().x;
+        int third = arena.addSnake(null, (head + 9) % 10, 6, Snake.MOVE_UP);
+        arena.step();
+        assertTrue(arena.getDeaths(third) == 1);
+        assertTrue(arena.getDeaths(first) == 0);
+        assertTrue(arena.getGrid().getFreeCount() == 100 - arena.getSegmentCount());
+    }
+}
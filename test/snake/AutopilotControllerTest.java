@@ -0,0 +1,67 @@
+package snake;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Test class for AutopilotController
+ * 
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class AutopilotControllerTest {
+    
+    private AutopilotController instance;
+    
+    public AutopilotControllerTest() {
+        instance = new AutopilotController();
+    }
+
+    /**
+     * Test of decide method, of class AutopilotController.
+     */
+    @Test
+    public void testDecide() {
+        Engine engine = new Engine(12, 8, 5);
+        while(!engine.isDead() && engine.getTicks() < 100000) {
+            engine.step(instance.decide(engine));
+        }
+        
+        // the snake fills most of the board before anything goes wrong
+        assertTrue(engine.getPoints() > 12 * 8 / 2);
+        
+        // the same controller plays a board of another size
+        engine = new Engine(9, 9, 5);
+        for (int i = 0; i < 200; i++) {
+            assertTrue(engine.step(instance.decide(engine)));
+        }
+    }
+    
+    /**
+     * Test of createCycle method, of class AutopilotController.
+     */
+    @Test
+    public void testCreateCycle() {
+        int[][] sizes = {{6, 4}, {5, 4}, {4, 5}, {2, 2}};
+        for (int[] size : sizes) {
+            int width = size[0], height = size[1];
+            int[] cycle = AutopilotController.createCycle(width, height);
+            
+            // every step goes to a tile next to it and all tiles are visited once
+            boolean[] visited = new boolean[width * height];
+            int tile = 0;
+            for (int i = 0; i < width * height; i++) {
+                assertFalse(visited[tile]);
+                visited[tile] = true;
+                int next = cycle[tile];
+                int dx = Math.abs(next % width - tile % width);
+                int dy = Math.abs(next / width - tile / width);
+                assertTrue(dx + dy == 1);
+                tile = next;
+            }
+            assertTrue(tile == 0);
+        }
+        
+        assertNull(AutopilotController.createCycle(5, 5));
+    }
+}
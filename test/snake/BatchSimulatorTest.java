@@ -0,0 +1,46 @@
+package snake;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Test class for BatchSimulator
+ * 
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class BatchSimulatorTest {
+
+    /**
+     * Test of run method, of class BatchSimulator.
+     */
+    @Test
+    public void testRun() {
+        BatchSimulator first = new BatchSimulator(40, 12, 8, 3, 5000, GreedyController.class, 4);
+        BatchSimulator second = new BatchSimulator(40, 12, 8, 3, 5000, GreedyController.class, 1);
+        first.run();
+        second.run();
+        
+        assertTrue(first.getScores().length == 40);
+        assertArrayEquals(first.getScores(), second.getScores());
+        assertTrue(first.getTotalTicks() == second.getTotalTicks());
+        assertTrue(first.getTotalTicks() > 0);
+    }
+    
+    /**
+     * Test of the constructor with no games, of class BatchSimulator.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoGames() {
+        new BatchSimulator(0, 12, 8, 3, 5000, GreedyController.class, 1);
+    }
+    
+    /**
+     * Test of main method with an option without a value, of class BatchSimulator.
+     * @throws ClassNotFoundException if the controller can not be found
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingValue() throws ClassNotFoundException {
+        BatchSimulator.main(new String[] {"--games", "1", "--seed"});
+    }
+}
@@ -0,0 +1,86 @@
+package snake;
+
+import java.awt.Point;
+import java.util.HashSet;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Test class for Board
+ *
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class BoardTest {
+
+    private Engine instance;
+
+    public BoardTest() {
+        instance = new Engine(30, 20, 11, 3);
+    }
+
+    /**
+     * Gets what is drawn on every tile of a game.
+     * @param inEngine the game
+     * @return sprite of every tile, -1 for an empty tile
+     */
+    private static int[] sprites(Engine inEngine) {
+        OccupancyGrid grid = inEngine.getGrid();
+        Point head = inEngine.getSnake().getLocation();
+        int[] sprites = new int[grid.getWidth() * grid.getHeight()];
+        for (int x = 0; x < grid.getWidth(); x++) {
+            for (int y = 0; y < grid.getHeight(); y++) {
+                Collideable occupant = grid.getOccupant(x, y);
+                int sprite = -1;
+                if(occupant == inEngine.getSnake()) {
+                    sprite = head.x == x && head.y == y ? SpriteAtlas.HEAD : SpriteAtlas.BODY;
+                } else if(occupant == inEngine.getFruit()) {
+                    sprite = SpriteAtlas.FOOD;
+                } else if(occupant == inEngine.getItems()) {
+                    sprite = inEngine.getItems().getType(Cell.pack(x, y)) == Items.BONUS ? SpriteAtlas.BONUS : SpriteAtlas.FOOD;
+                }
+                sprites[y * grid.getWidth() + x] = sprite;
+            }
+        }
+        return sprites;
+    }
+
+    /**
+     * Test of addChangedTiles method, of class Board.
+     */
+    @Test
+    public void testAddChangedTiles() {
+        GreedyController controller = new GreedyController();
+        DirtyTiles dirty = new DirtyTiles(64);
+        int[] changedCells = new int[instance.getItems().getCapacity() + 2];
+        int[] cells = new int[dirty.getCapacity()];
+        int steps = 0;
+
+        // the painted tiles are exactly the tiles that look different
+        while(!instance.isDead() && steps++ < 2000) {
+            int[] before = sprites(instance);
+            Point head = instance.getSnake().getLocation();
+            Point fruit = instance.getFruit().getLocation();
+            int headX = head.x, headY = head.y, fruitX = fruit.x, fruitY = fruit.y;
+            instance.step(controller.decide(instance));
+            int[] after = sprites(instance);
+
+            Board.addChangedTiles(instance, headX, headY, fruitX, fruitY, changedCells, dirty);
+            HashSet<Integer> painted = new HashSet();
+            int count = dirty.drain(cells);
+            for (int i = 0; i < count; i++) {
+                painted.add(Cell.y(cells[i]) * 30 + Cell.x(cells[i]));
+            }
+            HashSet<Integer> changed = new HashSet();
+            for (int i = 0; i < after.length; i++) {
+                if(before[i] != after[i]) {
+                    changed.add(i);
+                }
+            }
+            assertTrue(painted.containsAll(changed));
+            painted.removeAll(changed);
+            assertTrue(painted.isEmpty());
+        }
+        assertTrue(steps > 100);
+    }
+}
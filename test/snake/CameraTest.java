@@ -0,0 +1,53 @@
+package snake;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Test class for Camera
+ * 
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class CameraTest {
+    
+    private Camera instance;
+    
+    public CameraTest() {
+        instance = new Camera(1000, 500, 40, 30);
+    }
+
+    /**
+     * Test of follow method, of class Camera.
+     */
+    @Test
+    public void testFollow() {
+        instance.center(500, 250);
+        assertTrue(instance.getOrigin() == Cell.pack(480, 235));
+        
+        // within the margin nothing moves
+        assertFalse(instance.follow(509, 250));
+        
+        // past it the view moves along
+        assertTrue(instance.follow(510, 250));
+        assertTrue(instance.getColumn(510) == 29);
+        assertTrue(instance.getColumn(480) == -1);
+        
+        // the view stays on the board
+        assertTrue(instance.follow(999, 0));
+        assertTrue(instance.getOrigin() == Cell.pack(960, 0));
+        assertTrue(instance.getRow(0) == 0);
+    }
+    
+    /**
+     * Test of the size of the view, of class Camera.
+     */
+    @Test
+    public void testSmallBoard() {
+        Camera camera = new Camera(30, 20, 40, 30);
+        assertTrue(camera.getColumns() == 30);
+        assertTrue(camera.getRows() == 20);
+        assertFalse(camera.follow(29, 19));
+        assertTrue(camera.getColumn(29) == 29);
+    }
+}
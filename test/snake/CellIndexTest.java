@@ -0,0 +1,77 @@
+package snake;
+
+import java.util.HashMap;
+import java.util.Random;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Test class for CellIndex
+ *
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class CellIndexTest {
+
+    private CellIndex instance;
+
+    public CellIndexTest() {
+        instance = new CellIndex(16);
+    }
+
+    /**
+     * Test of put and get methods, of class CellIndex.
+     */
+    @Test
+    public void testPutAndGet() {
+        assertTrue(instance.get(Cell.pack(1, 2)) == -1);
+        instance.put(Cell.pack(1, 2), 7);
+        instance.put(Cell.pack(2, 1), 8);
+        assertTrue(instance.get(Cell.pack(1, 2)) == 7);
+        assertTrue(instance.get(Cell.pack(2, 1)) == 8);
+        assertTrue(instance.size() == 2);
+
+        // putting a cell again replaces the value
+        instance.put(Cell.pack(1, 2), 9);
+        assertTrue(instance.get(Cell.pack(1, 2)) == 9);
+        assertTrue(instance.size() == 2);
+    }
+
+    /**
+     * Test of remove method, of class CellIndex.
+     */
+    @Test
+    public void testRemove() {
+        // a full index has long runs, every lookup must still find its cell
+        Random random = new Random(3);
+        HashMap<Integer, Integer> expected = new HashMap();
+        for (int i = 0; i < 10000; i++) {
+            int cell = Cell.pack(random.nextInt(8), random.nextInt(8));
+            if(expected.containsKey(cell)) {
+                assertTrue(instance.remove(cell) == expected.remove(cell));
+            } else if(expected.size() < 16) {
+                instance.put(cell, i);
+                expected.put(cell, i);
+            }
+            assertTrue(instance.size() == expected.size());
+        }
+        for (int x = 0; x < 8; x++) {
+            for (int y = 0; y < 8; y++) {
+                Integer value = expected.get(Cell.pack(x, y));
+                assertTrue(instance.get(Cell.pack(x, y)) == (value == null ? -1 : value));
+            }
+        }
+        assertTrue(instance.remove(Cell.pack(100, 100)) == -1);
+    }
+
+    /**
+     * Test of clear method, of class CellIndex.
+     */
+    @Test
+    public void testClear() {
+        instance.put(Cell.pack(0, 0), 1);
+        instance.clear();
+        assertTrue(instance.size() == 0);
+        assertTrue(instance.get(Cell.pack(0, 0)) == -1);
+    }
+}
@@ -0,0 +1,49 @@
+package snake;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Test class for DirtyTiles
+ *
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class DirtyTilesTest {
+
+    private DirtyTiles instance;
+
+    public DirtyTilesTest() {
+        instance = new DirtyTiles(3);
+    }
+
+    /**
+     * Test of add and drain methods, of class DirtyTiles.
+     */
+    @Test
+    public void testDrain() {
+        int[] cells = new int[instance.getCapacity()];
+        assertTrue(instance.add(Cell.pack(1, 1)));
+        assertFalse(instance.add(Cell.pack(2, 1)));
+        assertTrue(instance.drain(cells) == 2);
+        assertTrue(cells[0] == Cell.pack(1, 1));
+        assertTrue(cells[1] == Cell.pack(2, 1));
+        assertTrue(instance.drain(cells) == 0);
+
+        // the next tile asks for a paint again
+        assertTrue(instance.add(Cell.pack(3, 1)));
+    }
+
+    /**
+     * Test of drain method when more tiles changed than fit, of class DirtyTiles.
+     */
+    @Test
+    public void testOverflow() {
+        int[] cells = new int[instance.getCapacity()];
+        for (int i = 0; i < 5; i++) {
+            instance.add(Cell.pack(i, 0));
+        }
+        assertTrue(instance.drain(cells) == -1);
+        assertTrue(instance.drain(cells) == 0);
+    }
+}
@@ -0,0 +1,240 @@
+package snake;
+
+import java.awt.Point;
+import java.nio.ByteBuffer;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Test class for Engine
+ * 
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class EngineTest {
+    
+    private Engine instance;
+    
+    public EngineTest() {
+        instance = new Engine(30, 20, 42);
+    }
+
+    /**
+     * Test of step method, of class Engine.
+     */
+    @Test
+    public void testStep() {
+        instance.getFruit().setLocation(new Point(0, 0));
+        assertTrue(instance.step());
+        assertEquals(new Point(16, 10), instance.getSnake().getLocation());
+        assertTrue(instance.step(Snake.MOVE_DOWN));
+        assertEquals(new Point(16, 11), instance.getSnake().getLocation());
+        assertTrue(instance.getTicks() == 2);
+    }
+    
+    /**
+     * Test of the constructor with a board without tiles, of class Engine.
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testNoTiles() {
+        new Engine(30, 0, 1);
+    }
+    
+    /**
+     * Test of eating a fruit, of class Engine.
+     */
+    @Test
+    public void testEatFruit() {
+        instance.getFruit().setLocation(new Point(16, 10));
+        assertTrue(instance.step());
+        assertTrue(instance.getPoints() == 1);
+        assertFalse(instance.getFruit().getLocation().equals(new Point(16, 10)));
+    }
+    
+    /**
+     * Test of dying, of class Engine.
+     */
+    @Test
+    public void testDeath() {
+        instance.getFruit().setLocation(new Point(0, 0));
+        instance.getSnake().grow();
+        instance.getSnake().grow();
+        int[] directions = {Snake.MOVE_RIGHT, Snake.MOVE_RIGHT, Snake.MOVE_RIGHT,
+            Snake.MOVE_DOWN, Snake.MOVE_LEFT};
+        for (int direction : directions) {
+            assertTrue(instance.step(direction));
+        }
+        assertFalse(instance.step(Snake.MOVE_UP));
+        assertTrue(instance.isDead());
+    }
+    
+    /**
+     * Test that the same seed plays the same game, of class Engine.
+     */
+    @Test
+    public void testSeed() {
+        Engine other = new Engine(30, 20, 42);
+        assertEquals(instance.getFruit().getLocation(), other.getFruit().getLocation());
+        instance.reset(7);
+        other.reset(7);
+        assertEquals(instance.getFruit().getLocation(), other.getFruit().getLocation());
+    }
+    
+    /**
+     * Plays some steps with a GreedyController.
+     * @param inEngine the game
+     * @param inSteps number of steps
+     * @return head and fruit of every step, packed
+     */
+    private int[] play(Engine inEngine, int inSteps) {
+        GreedyController controller = new GreedyController();
+        int[] cells = new int[inSteps * 2];
+        for (int i = 0; i < inSteps; i++) {
+            inEngine.step(controller.decide(inEngine));
+            Point head = inEngine.getSnake().getLocation();
+            Point fruit = inEngine.getFruit().getLocation();
+            cells[i * 2] = Cell.pack(head.x, head.y);
+            cells[i * 2 + 1] = Cell.pack(fruit.x, fruit.y);
+        }
+        return cells;
+    }
+    
+    /**
+     * Test of snapshot and restore methods, of class Engine.
+     */
+    @Test
+    public void testSnapshotAndRestore() {
+        play(instance, 300);
+        ByteBuffer buffer = ByteBuffer.allocate(instance.getSnapshotSize());
+        instance.snapshot(buffer);
+        assertFalse(buffer.hasRemaining());
+        buffer.flip();
+        int points = instance.getPoints();
+        long ticks = instance.getTicks();
+        
+        // the game continues the same way after a restore
+        int[] expected = play(instance, 300);
+        instance.restore(buffer);
+        assertTrue(instance.getPoints() == points);
+        assertTrue(instance.getTicks() == ticks);
+        assertArrayEquals(expected, play(instance, 300));
+        
+        // also in another engine
+        Engine other = new Engine(30, 20, 1);
+        buffer.rewind();
+        other.restore(buffer);
+        assertArrayEquals(expected, play(other, 300));
+    }
+    
+    /**
+     * Test of eating an item, of class Engine.
+     */
+    @Test
+    public void testEatItem() {
+        Engine engine = new Engine(30, 20, 42, 3);
+        engine.getFruit().setLocation(new Point(0, 0));
+        assertTrue(engine.getItems().spawn(Items.BONUS, Cell.pack(16, 10), 0));
+        assertTrue(engine.step());
+        assertTrue(engine.getPoints() == Items.getPoints(Items.BONUS));
+        assertTrue(engine.getItems().getType(Cell.pack(16, 10)) == 0);
+        assertTrue(engine.getGrid().getOccupant(16, 10) == engine.getSnake());
+    }
+    
+    /**
+     * Test of snapshot and restore methods with items, of class Engine.
+     */
+    @Test
+    public void testSnapshotWithItems() {
+        Engine engine = new Engine(30, 20, 5, 3);
+        play(engine, 200);
+        assertTrue(engine.getItems().getCellCount() > 0);
+        ByteBuffer buffer = ByteBuffer.allocate(engine.getSnapshotSize());
+        engine.snapshot(buffer);
+        buffer.flip();
+        
+        Engine other = new Engine(30, 20, 1, 3);
+        other.restore(buffer);
+        int[] cells = new int[3];
+        int[] otherCells = new int[3];
+        int count = engine.getItems().getCells(cells);
+        assertTrue(other.getItems().getCells(otherCells) == count);
+        assertArrayEquals(cells, otherCells);
+        assertTrue(other.getGrid().getFreeCount() == engine.getGrid().getFreeCount());
+        assertArrayEquals(play(engine, 300), play(other, 300));
+    }
+
+    /**
+     * Test of snapshot and restore methods of a game listing its free tiles, of class Engine.
+     */
+    @Test
+    public void testRestoreListed() {
+        Engine engine = new Engine(30, 20, 1, 3, true);
+        play(engine, 300);
+        ByteBuffer buffer = ByteBuffer.allocate(engine.getSnapshotSize());
+        engine.snapshot(buffer);
+        assertFalse(buffer.hasRemaining());
+        buffer.flip();
+        assertTrue(buffer.get(0) == 2);
+        
+        // another listed game goes on the same way
+        Engine listed = new Engine(30, 20, 7, 3, true);
+        listed.restore(buffer);
+        
+        // a game picking by rank reads the same state and goes on by rank
+        Engine other = new Engine(30, 20, 7, 3);
+        buffer.rewind();
+        other.restore(buffer);
+        assertFalse(buffer.hasRemaining());
+        assertTrue(other.getPoints() == engine.getPoints());
+        assertTrue(other.getTicks() == engine.getTicks());
+        assertTrue(other.getSnake().getLocation().equals(engine.getSnake().getLocation()));
+        assertTrue(other.getFruit().getLocation().equals(engine.getFruit().getLocation()));
+        assertTrue(other.getGrid().getFreeCount() == engine.getGrid().getFreeCount());
+        
+        assertArrayEquals(play(engine, 300), play(listed, 300));
+    }
+    
+    /**
+     * Test of restore method of a game listing its free tiles from a snapshot without a list, of class Engine.
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testRestoreListedUnlisted() {
+        play(instance, 100);
+        ByteBuffer buffer = ByteBuffer.allocate(instance.getSnapshotSize());
+        instance.snapshot(buffer);
+        buffer.flip();
+        new Engine(30, 20, 1, 0, true).restore(buffer);
+    }
+
+    /**
+     * Test of restore method at many steps with items, of class Engine.
+     */
+    @Test
+    public void testRestoreWithItemsEverywhere() {
+        // with many items a fruit and a bonus often run out at the same step
+        int[] cells = new int[18];
+        int[] otherCells = new int[18];
+        for (long seed = 1; seed <= 5; seed++) {
+            Engine engine = new Engine(30, 20, seed, 16);
+            Engine other = new Engine(30, 20, seed, 16);
+            for (int i = 0; i < 2000 && !engine.isDead(); i++) {
+                if(i % 7 == 0) {
+                    // a new engine every time, so the items land in other slots
+                    ByteBuffer buffer = ByteBuffer.allocate(other.getSnapshotSize());
+                    other.snapshot(buffer);
+                    buffer.flip();
+                    other = new Engine(30, 20, 1, 16);
+                    other.restore(buffer);
+                }
+                assertArrayEquals(play(engine, 1), play(other, 1));
+                int count = engine.getItems().getCells(cells);
+                assertTrue(other.getItems().getCells(otherCells) == count);
+                assertArrayEquals(cells, otherCells);
+                count = engine.getItems().getChangedCells(cells);
+                assertTrue(other.getItems().getChangedCells(otherCells) == count);
+                assertArrayEquals(cells, otherCells);
+                assertTrue(other.getPoints() == engine.getPoints());
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package snake;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Test class for FrameState
+ * 
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class FrameStateTest {
+
+    /**
+     * Test of commit and latest methods, of class FrameState.Exchange.
+     */
+    @Test
+    public void testExchange() {
+        Engine engine = new Engine(30, 20, 1);
+        FrameState.Exchange exchange = new FrameState.Exchange();
+        
+        exchange.commit(engine, Cell.NONE, Cell.pack(0, 0));
+        engine.step();
+        exchange.commit(engine, Cell.pack(15, 10), Cell.pack(1, 0));
+        
+        FrameState state = exchange.latest();
+        assertTrue(state.getTick() == 2);
+        assertTrue(state.getCellCount() == 2);
+        assertTrue(state.getCells()[0] == Cell.pack(16, 10));
+        assertTrue(state.getPreviousHead() == Cell.pack(15, 10));
+        assertTrue(state.getOrigin() == Cell.pack(1, 0));
+        
+        // nothing new committed, the same state is kept
+        assertSame(state, exchange.latest());
+    }
+}
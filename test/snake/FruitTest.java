@@ -0,0 +1,57 @@
+package snake;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Test class for Fruit
+ *
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class FruitTest {
+
+    private Fruit instance;
+    private OccupancyGrid grid;
+
+    public FruitTest() {
+        instance = new Fruit(6, 5);
+        grid = new OccupancyGrid(30, 20);
+    }
+
+    /**
+     * Test of collide method, of class Fruit.
+     */
+    @Test
+    public void testCollide() {
+        Snake snake = new Snake(5, 5, Snake.MOVE_RIGHT);
+        assertFalse(instance.collide(snake));
+        assertTrue(instance.collide(new Fruit(6, 5)));
+
+        snake.register(grid);
+        instance.register(grid);
+        assertTrue(instance.collide(new Fruit(6, 5)));
+        assertFalse(instance.collide(snake));
+
+        // the head takes over the tile of the fruit
+        snake.update();
+        assertTrue(grid.getOccupant(6, 5) == snake);
+        assertTrue(instance.collide(snake));
+
+        // a stopped snake does not run into it again
+        snake.setStopped(true);
+        snake.update();
+        assertFalse(instance.collide(snake));
+    }
+
+    /**
+     * Test of getCells and getCellCount methods, of class Fruit.
+     */
+    @Test
+    public void testGetCells() {
+        int[] cells = new int[1];
+        assertTrue(instance.getCellCount() == 1);
+        assertTrue(instance.getCells(cells) == 1);
+        assertTrue(cells[0] == Cell.pack(6, 5));
+    }
+}
@@ -0,0 +1,84 @@
+package snake;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Test class for GameMetrics
+ * 
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class GameMetricsTest {
+    
+    private GameMetrics instance;
+    
+    public GameMetricsTest() {
+        instance = new GameMetrics();
+    }
+
+    /**
+     * Test of dump method, of class GameMetrics.
+     * @throws IOException if the file can not be read
+     */
+    @Test
+    public void testDump() throws IOException {
+        instance.tickDone(2000);
+        instance.fruitEaten();
+        instance.died();
+        
+        File file = File.createTempFile("metrics", ".csv");
+        file.deleteOnExit();
+        instance.dump(file);
+        instance.dump(file);
+        
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        assertTrue(lines.size() == 3);
+        assertEquals(GameMetrics.getCsvHeader(), lines.get(0));
+        String[] values = lines.get(1).split(",");
+        assertTrue(values.length == GameMetrics.getCsvHeader().split(",").length);
+        assertEquals("1", values[1]);
+        assertEquals("2.0", values[4]);
+        assertEquals("1", values[values.length - 1]);
+    }
+    
+    /**
+     * Test of getInstance method, of class GameMetrics.
+     * @throws JMException if the metrics are not registered
+     */
+    @Test
+    public void testGetInstance() throws JMException {
+        GameMetrics metrics = GameMetrics.getInstance();
+        assertSame(metrics, GameMetrics.getInstance());
+        
+        metrics.reset();
+        metrics.died();
+        Object deaths = ManagementFactory.getPlatformMBeanServer().getAttribute(new ObjectName(GameMetrics.OBJECT_NAME), "Deaths");
+        assertEquals(1L, deaths);
+    }
+    
+    /**
+     * Test of watch method, of class GameMetrics.
+     * @throws JMException if the metrics are not registered
+     */
+    @Test
+    public void testWatch() throws JMException {
+        assertTrue(instance.getTickRate() == 0);
+        GameClock clock = new GameClock(20, 5);
+        instance.watch(clock);
+        assertTrue(instance.getTickRate() == clock.getTickRate());
+        assertTrue(instance.getFrameRate() == clock.getFrameRate());
+        
+        GameMetrics.getInstance();
+        Object rate = ManagementFactory.getPlatformMBeanServer().getAttribute(new ObjectName(GameMetrics.OBJECT_NAME), "FrameRate");
+        assertTrue(rate instanceof Double);
+    }
+}
@@ -0,0 +1,59 @@
+package snake;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Test class for GameServer
+ * 
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class GameServerTest {
+    
+    private GameServer instance;
+    
+    public GameServerTest() throws Exception {
+        instance = new GameServer(0, 30, 20, 42);
+    }
+
+    /**
+     * Test of run method, of class GameServer.
+     */
+    @Test
+    public void testRun() throws Exception {
+        Thread thread = new Thread(instance);
+        thread.start();
+        
+        RemoteState state = new RemoteState();
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress("localhost", instance.getPort()))) {
+            while(state.getTicks() < 5 && !state.isDead()) {
+                assertTrue(channel.read(buffer) > 0);
+                buffer.flip();
+                while(state.read(buffer)) {
+                }
+                buffer.compact();
+            }
+            assertTrue(state.getWidth() == 30);
+            assertTrue(state.getHeight() == 20);
+            assertTrue(state.getHead() != Cell.NONE);
+            assertTrue(instance.getSessionCount() == 1);
+        } finally {
+            instance.stop();
+            thread.join();
+        }
+    }
+
+    /**
+     * Test of main method with an option without a value, of class GameServer.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingValue() throws IOException {
+        GameServer.main(new String[] {"--port", "0", "--seed"});
+    }
+}
@@ -1,5 +1,11 @@
 package snake;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
 import static org.junit.Assert.*;
 import org.junit.Test;
 
@@ -35,4 +41,139 @@ public class HighscoreListTest {
         instance.add("Christopher", 5);
         assertTrue(instance.getHighestScore() == 5);
     }
+    
+    /**
+     * Creates an empty folder for high score files.
+     * @return path of the folder, ending with a separator
+     * @throws IOException 
+     */
+    private String createFolder() throws IOException {
+        File folder = Files.createTempDirectory("highscore").toFile();
+        folder.deleteOnExit();
+        return folder.getPath() + File.separator;
+    }
+    
+    /**
+     * Test of save and load methods, of class HighscoreList.
+     */
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        String folder = createFolder();
+        instance.setFilePath(folder);
+        instance.add("Christopher", 5);
+        instance.add("Åsa", 12);
+        instance.save();
+        
+        HighscoreList loaded = HighscoreList.load(folder);
+        assertEquals(instance.toString(), loaded.toString());
+        assertTrue(loaded.getHighestScore() == 12);
+        assertFalse(new File(folder + "highscore.dat.tmp").exists());
+    }
+    
+    /**
+     * Test of load method with a damaged file, of class HighscoreList.
+     */
+    @Test
+    public void testLoadCorrupt() throws IOException {
+        String folder = createFolder();
+        instance.setFilePath(folder);
+        instance.add("Christopher", 5);
+        instance.save();
+        
+        try (RandomAccessFile file = new RandomAccessFile(folder + "highscore.dat", "rw")) {
+            file.seek(file.length() - 6);
+            file.write(0x7F);
+        }
+        
+        assertTrue(HighscoreList.load(folder).getHighestScore() == 0);
+    }
+    
+    /**
+     * Test of load method with a file from an earlier version, of class HighscoreList.
+     */
+    @Test
+    public void testLoadSerialized() throws IOException {
+        String folder = createFolder();
+        instance.add("Christopher", 5);
+        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(folder + "highscore.dat"))) {
+            oos.writeObject(instance);
+        }
+        
+        HighscoreList loaded = HighscoreList.load(folder);
+        assertTrue(loaded.getHighestScore() == 5);
+        
+        // converted on load
+        try (RandomAccessFile file = new RandomAccessFile(folder + "highscore.dat", "r")) {
+            assertTrue(file.readInt() == 0x534E4B48);
+        }
+    }
+    
+    /**
+     * Test of append method, of class HighscoreList.
+     */
+    @Test
+    public void testAppend() throws IOException {
+        String folder = createFolder();
+        instance.setFilePath(folder);
+        instance.add("Christopher", 5);
+        instance.save();
+        
+        instance.add("Åsa", 12);
+        instance.add("Kim", 3);
+        instance.append(instance.getLeaderboard().getAround(1, 0, 0));
+        instance.append(instance.getLeaderboard().getAround(3, 0, 0));
+        
+        HighscoreList loaded = HighscoreList.load(folder);
+        assertEquals(instance.toString(), loaded.toString());
+        
+        // compacting moves the journal into the snapshot, without doubling it
+        loaded.save();
+        assertTrue(loaded.getJournalSize() == 14);
+        assertTrue(HighscoreList.load(folder).getLeaderboard().size() == 3);
+    }
+    
+    /**
+     * Test of load method with a partly written journal record, of class HighscoreList.
+     */
+    @Test
+    public void testLoadTornJournal() throws IOException {
+        String folder = createFolder();
+        instance.setFilePath(folder);
+        instance.add("Christopher", 5);
+        instance.add("Kim", 3);
+        instance.append(instance.getLeaderboard().getTop(2));
+        
+        try (RandomAccessFile file = new RandomAccessFile(folder + "highscore.journal", "rw")) {
+            file.setLength(file.length() - 2);
+        }
+        
+        HighscoreList loaded = HighscoreList.load(folder);
+        assertTrue(loaded.getLeaderboard().size() == 1);
+        
+        // the next record goes where the damaged one was
+        loaded.add("Åsa", 12);
+        loaded.append(loaded.getLeaderboard().getTop(1));
+        assertTrue(HighscoreList.load(folder).getHighestScore() == 12);
+    }
+    
+    /**
+     * Test of load method with a journal record of a huge length, of class HighscoreList.
+     */
+    @Test
+    public void testLoadCorruptLength() throws IOException {
+        String folder = createFolder();
+        instance.setFilePath(folder);
+        instance.add("Christopher", 5);
+        instance.add("Kim", 3);
+        instance.append(instance.getLeaderboard().getTop(2));
+        
+        try (RandomAccessFile file = new RandomAccessFile(folder + "highscore.journal", "rw")) {
+            file.seek(file.length());
+            file.writeInt(Integer.MAX_VALUE - 4);
+            file.writeInt(0);
+        }
+        
+        HighscoreList loaded = HighscoreList.load(folder);
+        assertTrue(loaded.getLeaderboard().size() == 2);
+    }
 }
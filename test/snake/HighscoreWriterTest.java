@@ -0,0 +1,128 @@
+package snake;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Test class for HighscoreWriter
+ * 
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class HighscoreWriterTest {
+    
+    private int mSaves, mSaved, mFailures;
+    
+    private HighscoreWriter.Listener mListener = new HighscoreWriter.Listener() {
+        @Override
+        public synchronized void saved(int inScores, long inNanos) {
+            mSaves++;
+            mSaved += inScores;
+        }
+
+        @Override
+        public synchronized void failed(IOException inException) {
+            mFailures++;
+        }
+    };
+    
+    /**
+     * Test of add and flush methods, of class HighscoreWriter.
+     */
+    @Test
+    public void testAddAndFlush() throws IOException, InterruptedException {
+        File folder = Files.createTempDirectory("highscore").toFile();
+        String path = folder.getPath() + File.separator;
+        HighscoreList list = new HighscoreList(path);
+        HighscoreWriter instance = new HighscoreWriter(list, mListener);
+        instance.start();
+        
+        for (int i = 1; i <= 100; i++) {
+            instance.add("Player " + i, i);
+        }
+        // the list changes before the file does
+        instance.awaitListed();
+        assertTrue(list.getHighestScore() == 100);
+        instance.flush();
+        
+        synchronized (mListener) {
+            assertTrue(mSaved == 100);
+            assertTrue(mSaves >= 1 && mSaves <= 100);
+            assertTrue(mFailures == 0);
+        }
+        assertTrue(HighscoreList.load(path).getLeaderboard().size() == 100);
+        instance.close();
+    }
+    
+    /**
+     * Test of adding while the writer compacts, of class HighscoreWriter.
+     */
+    @Test
+    public void testAddWhileCompacting() throws IOException, InterruptedException {
+        File folder = Files.createTempDirectory("highscore").toFile();
+        String path = folder.getPath() + File.separator;
+        // a small threshold compacts every few writes, with scores still queued
+        final HighscoreWriter instance = new HighscoreWriter(new HighscoreList(path), mListener, 2048);
+        instance.start();
+        
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            final int player = i;
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 1; j <= 500; j++) {
+                        instance.add("Player " + player, j);
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        instance.close();
+        
+        // every score exactly once, none in both the snapshot and the journal
+        assertTrue(HighscoreList.load(path).getLeaderboard().size() == 2000);
+        synchronized (mListener) {
+            assertTrue(mFailures == 0);
+        }
+    }
+    
+    /**
+     * Test of close method, of class HighscoreWriter.
+     */
+    @Test
+    public void testClose() throws IOException {
+        File folder = Files.createTempDirectory("highscore").toFile();
+        String path = folder.getPath() + File.separator;
+        HighscoreWriter instance = new HighscoreWriter(new HighscoreList(path), mListener);
+        instance.start();
+        
+        instance.add("Christopher", 5);
+        instance.close();
+        assertTrue(HighscoreList.load(path).getHighestScore() == 5);
+    }
+    
+    /**
+     * Test of saving to a folder that does not exist, of class HighscoreWriter.
+     */
+    @Test
+    public void testFailure() throws IOException, InterruptedException {
+        File folder = Files.createTempDirectory("highscore").toFile();
+        String path = folder.getPath() + File.separator + "missing" + File.separator;
+        HighscoreWriter instance = new HighscoreWriter(new HighscoreList(path), mListener);
+        instance.start();
+        
+        instance.add("Christopher", 5);
+        instance.flush();
+        synchronized (mListener) {
+            assertTrue(mFailures == 1);
+        }
+        instance.close();
+    }
+}
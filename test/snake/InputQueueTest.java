@@ -0,0 +1,98 @@
+package snake;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Test class for InputQueue
+ * 
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class InputQueueTest {
+    
+    private InputQueue instance;
+    
+    public InputQueueTest() {
+        instance = new InputQueue(3);
+    }
+
+    /**
+     * Test of offer method, of class InputQueue.
+     */
+    @Test
+    public void testOffer() {
+        assertTrue(instance.offer(Snake.MOVE_UP));
+        assertTrue(instance.offer(Snake.MOVE_LEFT));
+        assertTrue(instance.offer(Snake.MOVE_DOWN));
+        assertFalse(instance.offer(Snake.MOVE_RIGHT));
+        
+        instance.poll(Snake.MOVE_RIGHT);
+        assertTrue(instance.offer(Snake.MOVE_RIGHT));
+    }
+    
+    /**
+     * Test of poll method, of class InputQueue.
+     */
+    @Test
+    public void testPoll() {
+        // two quick turns are played one step each
+        instance.offer(Snake.MOVE_UP);
+        instance.offer(Snake.MOVE_LEFT);
+        assertTrue(instance.poll(Snake.MOVE_RIGHT) == Snake.MOVE_UP);
+        assertTrue(instance.poll(Snake.MOVE_UP) == Snake.MOVE_LEFT);
+        assertTrue(instance.poll(Snake.MOVE_LEFT) == Engine.KEEP_DIRECTION);
+        
+        // turning back or keeping the direction is skipped
+        instance.offer(Snake.MOVE_RIGHT);
+        instance.offer(Snake.MOVE_LEFT);
+        instance.offer(Snake.MOVE_DOWN);
+        assertTrue(instance.poll(Snake.MOVE_LEFT) == Snake.MOVE_DOWN);
+    }
+    
+    /**
+     * Test of pausing and resuming through the queue, of class InputQueue.
+     */
+    @Test
+    public void testCommands() {
+        // commands are never skipped and keep their place among the turns
+        instance.offer(Snake.MOVE_RIGHT);
+        instance.offer(InputQueue.PAUSE);
+        instance.offer(Snake.MOVE_UP);
+        assertTrue(instance.poll(Snake.MOVE_RIGHT) == InputQueue.PAUSE);
+        assertTrue(instance.poll(Snake.MOVE_RIGHT) == Snake.MOVE_UP);
+        
+        instance.offer(Snake.MOVE_DOWN);
+        instance.offer(InputQueue.RESUME);
+        instance.offer(Snake.MOVE_LEFT);
+        assertTrue(instance.poll(Snake.MOVE_RIGHT) == Snake.MOVE_DOWN);
+        assertTrue(instance.poll(Snake.MOVE_DOWN) == InputQueue.RESUME);
+    }
+    
+    /**
+     * Test of clear method, of class InputQueue.
+     */
+    @Test
+    public void testClear() {
+        instance.offer(InputQueue.PAUSE);
+        instance.offer(InputQueue.RESUME);
+        instance.offer(Snake.MOVE_UP);
+        assertTrue(instance.clear() == InputQueue.RESUME);
+        assertTrue(instance.poll(Snake.MOVE_RIGHT) == Engine.KEEP_DIRECTION);
+        
+        instance.offer(Snake.MOVE_UP);
+        assertTrue(instance.clear() == Engine.KEEP_DIRECTION);
+    }
+    
+    /**
+     * Test of moved method, of class InputQueue.
+     */
+    @Test
+    public void testMoved() {
+        instance.offer(Snake.MOVE_UP);
+        instance.poll(Snake.MOVE_RIGHT);
+        instance.moved();
+        assertTrue(instance.getLastLatencyNanos() > 0);
+        assertTrue(instance.getMaxLatencyNanos() == instance.getLastLatencyNanos());
+    }
+}
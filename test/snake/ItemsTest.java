@@ -0,0 +1,80 @@
+package snake;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Test class for Items
+ *
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class ItemsTest {
+
+    private Items instance;
+    private OccupancyGrid grid;
+
+    public ItemsTest() {
+        instance = new Items(3);
+        grid = new OccupancyGrid(10, 10);
+        instance.register(grid);
+    }
+
+    /**
+     * Test of spawn method, of class Items.
+     */
+    @Test
+    public void testSpawn() {
+        assertTrue(instance.spawn(Items.FRUIT, Cell.pack(1, 1), 0));
+        assertTrue(instance.spawn(Items.BONUS, Cell.pack(2, 1), 0));
+        assertTrue(instance.spawn(Items.FRUIT, Cell.pack(3, 1), 0));
+        assertFalse(instance.spawn(Items.FRUIT, Cell.pack(4, 1), 0));
+        assertTrue(instance.getCellCount() == 3);
+        assertTrue(instance.getType(Cell.pack(2, 1)) == Items.BONUS);
+        assertTrue(instance.getType(Cell.pack(4, 1)) == 0);
+        assertTrue(grid.getOccupant(1, 1) == instance);
+        assertTrue(grid.isFree(4, 1));
+        assertTrue(grid.getFreeCount() == 97);
+    }
+
+    /**
+     * Test of eat method, of class Items.
+     */
+    @Test
+    public void testEat() {
+        instance.spawn(Items.FRUIT, Cell.pack(1, 1), 0);
+        instance.spawn(Items.BONUS, Cell.pack(2, 1), 0);
+        assertTrue(instance.eat(Cell.pack(2, 1)) == Items.BONUS);
+        assertTrue(instance.eat(Cell.pack(2, 1)) == 0);
+        assertTrue(instance.getCellCount() == 1);
+        assertTrue(grid.isFree(2, 1));
+
+        // an eaten item does not run out later
+        assertTrue(instance.expire(Items.getLifetime(Items.BONUS)) == 0);
+        assertTrue(instance.getType(Cell.pack(1, 1)) == Items.FRUIT);
+    }
+
+    /**
+     * Test of expire method, of class Items.
+     */
+    @Test
+    public void testExpire() {
+        instance.spawn(Items.FRUIT, Cell.pack(1, 1), 10);
+        instance.spawn(Items.BONUS, Cell.pack(2, 1), 10);
+        instance.clearChanged();
+        assertTrue(instance.expire(10 + Items.getLifetime(Items.BONUS)) == 1);
+        assertTrue(instance.getType(Cell.pack(2, 1)) == 0);
+        assertTrue(grid.isFree(2, 1));
+
+        int[] changed = new int[instance.getCapacity() + 2];
+        assertTrue(instance.getChangedCells(changed) == 1);
+        assertTrue(changed[0] == Cell.pack(2, 1));
+
+        // a tile taken over by something else stays taken
+        int other = grid.register(new Fruit(10, 10));
+        grid.occupy(1, 1, other);
+        assertTrue(instance.expire(10 + Items.getLifetime(Items.FRUIT)) == 1);
+        assertTrue(grid.getOccupantId(1, 1) == other);
+        assertTrue(instance.getCellCount() == 0);
+    }
+}
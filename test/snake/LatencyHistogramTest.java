@@ -0,0 +1,58 @@
+package snake;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Test class for LatencyHistogram
+ * 
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class LatencyHistogramTest {
+    
+    private LatencyHistogram instance;
+    
+    public LatencyHistogramTest() {
+        instance = new LatencyHistogram();
+    }
+
+    /**
+     * Test of record and getPercentile methods, of class LatencyHistogram.
+     */
+    @Test
+    public void testGetPercentile() {
+        assertTrue(instance.getPercentile(99) == 0);
+        for (int i = 1; i <= 1000; i++) {
+            instance.record(i * 1000L);
+        }
+        
+        assertTrue(instance.getCount() == 1000);
+        assertTrue(instance.getMax() == 1000000);
+        assertTrue(instance.getMean() == 500500);
+        
+        // within the width of a bucket, about 6 percent
+        long median = instance.getPercentile(50);
+        assertTrue(median >= 500000 && median < 500000 * 1.07);
+        long p99 = instance.getPercentile(99);
+        assertTrue(p99 >= 990000 && p99 <= 1000000);
+        assertTrue(instance.getPercentile(100) == 1000000);
+        
+        instance.reset();
+        assertTrue(instance.getCount() == 0);
+        assertTrue(instance.getMax() == 0);
+    }
+    
+    /**
+     * Test of bucket and highest methods, of class LatencyHistogram.
+     */
+    @Test
+    public void testBucket() {
+        long[] times = {0, 1, 31, 32, 33, 1000, 123456789, Long.MAX_VALUE};
+        for (long time : times) {
+            int bucket = LatencyHistogram.bucket(time);
+            assertTrue(time <= LatencyHistogram.highest(bucket));
+            assertTrue(bucket == 0 || time > LatencyHistogram.highest(bucket - 1));
+        }
+    }
+}
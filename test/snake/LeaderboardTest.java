@@ -0,0 +1,97 @@
+package snake;
+
+import java.util.List;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Test class for Leaderboard
+ * 
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class LeaderboardTest {
+    
+    private Leaderboard instance;
+    
+    public LeaderboardTest() {
+        instance = new Leaderboard();
+    }
+
+    /**
+     * Test of submit method, of class Leaderboard.
+     */
+    @Test
+    public void testSubmit() {
+        assertTrue(instance.submit("A", 10) == 1);
+        assertTrue(instance.submit("B", 30) == 1);
+        assertTrue(instance.submit("C", 20) == 2);
+        // equal scores are ranked in the order they were posted
+        assertTrue(instance.submit("D", 20) == 3);
+        assertTrue(instance.size() == 4);
+        assertEquals("D", instance.get(3).getName());
+        assertNull(instance.get(5));
+    }
+    
+    /**
+     * Test of getRank method, of class Leaderboard.
+     */
+    @Test
+    public void testGetRank() {
+        for (int i = 0; i < 1000; i++) {
+            instance.submit("Player " + i, i);
+        }
+        assertTrue(instance.getRank(999) == 1);
+        assertTrue(instance.getRank(500) == 500);
+        assertTrue(instance.getRank(-1) == 1001);
+        assertTrue(instance.getCountAtLeast(500) == 500);
+        assertTrue(instance.get(500).getPoints() == 500);
+    }
+    
+    /**
+     * Test of getTop and getAround methods, of class Leaderboard.
+     */
+    @Test
+    public void testGetTopAndAround() {
+        for (int i = 0; i < 100; i++) {
+            instance.submit("Player " + i, (i * 37) % 100);
+        }
+        List<HighscoreItem> top = instance.getTop(3);
+        assertTrue(top.size() == 3);
+        assertTrue(top.get(0).getPoints() == 99 && top.get(2).getPoints() == 97);
+        
+        List<HighscoreItem> around = instance.getAround(50, 2, 2);
+        assertTrue(around.size() == 5);
+        assertTrue(around.get(2).getPoints() == 50);
+        
+        assertTrue(instance.getAround(1, 5, 1).size() == 2);
+        assertTrue(instance.getTop(1000).size() == 100);
+    }
+    
+    /**
+     * Test of submit method from several threads, of class Leaderboard.
+     */
+    @Test
+    public void testConcurrentSubmit() throws InterruptedException {
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 10000; i++) {
+                        instance.submit("Player", i);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        
+        assertTrue(instance.size() == 40000);
+        assertTrue(instance.getRank(9999) == 1);
+        assertTrue(instance.getCountAtLeast(9999) == 4);
+        assertTrue(instance.get(40000).getPoints() == 0);
+    }
+}
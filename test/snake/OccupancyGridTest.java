@@ -0,0 +1,252 @@
+package snake;
+
+import java.awt.Point;
+import java.util.Random;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Test class for OccupancyGrid
+ * 
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class OccupancyGridTest {
+    
+    private OccupancyGrid instance;
+    
+    public OccupancyGridTest() {
+        instance = new OccupancyGrid(3, 2);
+    }
+
+    /**
+     * Test of occupy and free methods, of class OccupancyGrid.
+     */
+    @Test
+    public void testOccupyAndFree() {
+        assertTrue(instance.getFreeCount() == 6);
+        instance.occupy(1, 1, 1);
+        instance.occupy(1, 1, 1);
+        assertFalse(instance.isFree(1, 1));
+        assertTrue(instance.getFreeCount() == 5);
+        instance.free(1, 1);
+        instance.free(1, 1);
+        assertTrue(instance.isFree(1, 1));
+        assertTrue(instance.getFreeCount() == 6);
+    }
+    
+    /**
+     * Test of getRandomFree method, of class OccupancyGrid.
+     */
+    @Test
+    public void testGetRandomFree() {
+        Random random = new Random(1);
+        for (int x = 0; x < 3; x++) {
+            for (int y = 0; y < 2; y++) {
+                if(x != 2 || y != 0) {
+                    instance.occupy(x, y, 1);
+                }
+            }
+        }
+        assertEquals(new Point(2, 0), instance.getRandomFree(random));
+        instance.occupy(2, 0, 1);
+        assertNull(instance.getRandomFree(random));
+    }
+    
+    /**
+     * Test of getOccupant method, of class OccupancyGrid.
+     */
+    @Test
+    public void testGetOccupant() {
+        Fruit fruit = new Fruit(2, 1);
+        fruit.register(instance);
+        assertSame(fruit, instance.getOccupant(2, 1));
+        assertNull(instance.getOccupant(0, 0));
+        
+        fruit.setLocation(new Point(0, 0));
+        assertSame(fruit, instance.getOccupant(0, 0));
+        assertTrue(instance.isFree(2, 1));
+        assertTrue(instance.getFreeCount() == 5);
+    }
+    
+    /**
+     * Test of occupy, free and getRandomFreeCell methods, of class OccupancyGrid,
+     * on a board of a hundred million tiles.
+     */
+    @Test
+    public void testLargeBoard() {
+        OccupancyGrid grid = new OccupancyGrid(10000, 10000);
+        assertTrue(grid.getChunkCount() == 0);
+        
+        grid.occupy(9999, 9999, 1);
+        grid.occupy(0, 0, 1);
+        assertFalse(grid.isFree(9999, 9999));
+        assertTrue(grid.getFreeCount() == 10000 * 10000 - 2);
+        assertTrue(grid.getChunkCount() == 2);
+        
+        int cell = grid.getRandomFreeCell(new Random(1));
+        assertTrue(grid.isFree(Cell.x(cell), Cell.y(cell)));
+        
+        grid.free(9999, 9999);
+        grid.free(0, 0);
+        assertTrue(grid.getFreeCount() == 10000 * 10000);
+        assertTrue(grid.getChunkCount() == 0);
+    }
+    
+    /**
+     * Test of getRandomFreeCell method, of class OccupancyGrid,
+     * on a large board with a single free tile.
+     */
+    @Test
+    public void testLargeBoardFull() {
+        OccupancyGrid grid = new OccupancyGrid(1100, 1000);
+        for (int x = 0; x < 1100; x++) {
+            for (int y = 0; y < 1000; y++) {
+                if(x != 1050 || y != 999) {
+                    grid.occupy(x, y, 1);
+                }
+            }
+        }
+        assertTrue(grid.getRandomFreeCell(new Random(1)) == Cell.pack(1050, 999));
+        grid.occupy(1050, 999, 1);
+        assertTrue(grid.getRandomFreeCell(new Random(1)) == Cell.NONE);
+    }
+    
+    /**
+     * Test of the constructor with a board wider than cells can hold, of class OccupancyGrid.
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public void testTooLarge() {
+        new OccupancyGrid(Cell.MAX_SIZE + 1, 10);
+    }
+    
+    /**
+     * Test of the constructor with the largest board, of class OccupancyGrid.
+     */
+    @Test
+    public void testLargest() {
+        OccupancyGrid grid = new OccupancyGrid(Cell.MAX_SIZE, Cell.MAX_SIZE);
+        assertTrue(grid.getFreeCount() == Cell.MAX_SIZE * Cell.MAX_SIZE);
+        grid.occupy(Cell.MAX_SIZE - 1, Cell.MAX_SIZE - 1, 1);
+        int cell = grid.getRandomFreeCell(new Random(1));
+        assertTrue(grid.isFree(Cell.x(cell), Cell.y(cell)));
+        assertTrue(Cell.x(cell) < Cell.MAX_SIZE && Cell.y(cell) < Cell.MAX_SIZE);
+    }
+    
+    /**
+     * Test of getRandomFreeCell method, of class OccupancyGrid,
+     * on a large board with a few free tiles spread over it.
+     */
+    @Test
+    public void testLargeBoardAlmostFull() {
+        OccupancyGrid grid = new OccupancyGrid(2000, 200);
+        for (int x = 0; x < 2000; x++) {
+            for (int y = 0; y < 200; y++) {
+                grid.occupy(x, y, 1);
+            }
+        }
+        Random random = new Random(9);
+        int[] freed = new int[50];
+        for (int i = 0; i < freed.length; i++) {
+            do {
+                freed[i] = Cell.pack(random.nextInt(2000), random.nextInt(200));
+            } while(grid.isFree(Cell.x(freed[i]), Cell.y(freed[i])));
+            grid.free(Cell.x(freed[i]), Cell.y(freed[i]));
+        }
+        
+        // every free tile is picked, and only free tiles
+        boolean[] picked = new boolean[freed.length];
+        for (int i = 0; i < 2000; i++) {
+            int cell = grid.getRandomFreeCell(random);
+            int found = -1;
+            for (int j = 0; j < freed.length; j++) {
+                if(freed[j] == cell) {
+                    found = j;
+                }
+            }
+            assertTrue(found >= 0);
+            picked[found] = true;
+        }
+        for (boolean tile : picked) {
+            assertTrue(tile);
+        }
+    }
+    
+    /**
+     * Test of getRandomFreeCell method on a board wider than a chunk, of class OccupancyGrid.
+     */
+    @Test
+    public void testGetRandomFreeCellWide() {
+        OccupancyGrid grid = new OccupancyGrid(70, 3);
+        Random random = new Random(5);
+        for (int x = 0; x < 70; x++) {
+            for (int y = 0; y < 3; y++) {
+                if(x != 66 || y != 1) {
+                    grid.occupy(x, y, 1);
+                }
+            }
+        }
+        assertTrue(grid.getRandomFreeCell(random) == Cell.pack(66, 1));
+        
+        // every free tile is picked, and only free tiles
+        grid.free(0, 0);
+        grid.free(63, 2);
+        grid.free(64, 2);
+        boolean[] picked = new boolean[4];
+        for (int i = 0; i < 200; i++) {
+            int cell = grid.getRandomFreeCell(random);
+            assertTrue(grid.isFree(Cell.x(cell), Cell.y(cell)));
+            picked[cell == Cell.pack(0, 0) ? 0 : cell == Cell.pack(66, 1) ? 1 : cell == Cell.pack(63, 2) ? 2 : 3] = true;
+        }
+        assertTrue(picked[0] && picked[1] && picked[2] && picked[3]);
+    }
+    
+    /**
+     * Test that getRandomFreeCell does not depend on the order tiles were freed in, of class OccupancyGrid.
+     */
+    @Test
+    public void testGetRandomFreeCellOrder() {
+        OccupancyGrid first = new OccupancyGrid(30, 20);
+        OccupancyGrid second = new OccupancyGrid(30, 20);
+        for (int x = 0; x < 30; x++) {
+            first.occupy(x, 5, 1);
+            second.occupy(29 - x, 5, 1);
+        }
+        for (int x = 0; x < 30; x += 2) {
+            first.free(x, 5);
+        }
+        for (int x = 28; x >= 0; x -= 2) {
+            second.free(x, 5);
+        }
+        
+        Random firstRandom = new Random(9);
+        Random secondRandom = new Random(9);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(first.getRandomFreeCell(firstRandom) == second.getRandomFreeCell(secondRandom));
+        }
+        assertTrue(first.getSnapshotSize() == 4);
+    }
+    
+    /**
+     * Test of getRandomFreeCell method of a grid listing its free tiles, of class OccupancyGrid.
+     */
+    @Test
+    public void testGetRandomFreeCellListed() {
+        OccupancyGrid grid = new OccupancyGrid(4, 3, true);
+        assertTrue(grid.isListed());
+        
+        // the last free tile moves into the hole, the freed tile goes last
+        grid.occupy(0, 0, 1);
+        grid.occupy(2, 1, 1);
+        grid.free(0, 0);
+        int[] listed = {11, 1, 2, 3, 4, 5, 10, 7, 8, 9, 0};
+        assertTrue(grid.getSnapshotSize() == 4 + 4 * listed.length);
+        
+        Random random = new Random(5);
+        Random expected = new Random(5);
+        for (int i = 0; i < 100; i++) {
+            int tile = listed[expected.nextInt(listed.length)];
+            assertTrue(grid.getRandomFreeCell(random) == Cell.pack(tile % 4, tile / 4));
+        }
+    }
+}
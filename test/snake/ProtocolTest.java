@@ -0,0 +1,79 @@
+package snake;
+
+import java.nio.ByteBuffer;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Test class for Protocol
+ * 
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class ProtocolTest {
+    
+    private Engine instance;
+    
+    public ProtocolTest() {
+        instance = new Engine(30, 20, 42);
+    }
+
+    /**
+     * Test of writeState and writeDelta methods, of class Protocol.
+     */
+    @Test
+    public void testWriteDelta() throws Exception {
+        GreedyController controller = new GreedyController();
+        RemoteState state = new RemoteState();
+        ByteBuffer buffer = ByteBuffer.allocate(Protocol.getStateSize(instance));
+        int[] cells = new int[30 * 20];
+        
+        Protocol.writeState(instance, cells, buffer);
+        buffer.flip();
+        assertTrue(state.read(buffer));
+        assertFalse(buffer.hasRemaining());
+        
+        while(!instance.isDead() && instance.getTicks() < 2000) {
+            int fruit = Cell.pack(instance.getFruit().getLocation().x, instance.getFruit().getLocation().y);
+            int points = instance.getPoints();
+            instance.step(controller.decide(instance));
+            
+            buffer = ByteBuffer.allocate(Protocol.MAX_DELTA_SIZE);
+            Protocol.writeDelta(instance, fruit, points, buffer);
+            buffer.flip();
+            assertTrue(state.read(buffer));
+            assertFalse(buffer.hasRemaining());
+            
+            int count = instance.getSnake().getCells(cells);
+            assertTrue(state.getCellCount() == count);
+            assertTrue(state.getHead() == cells[0]);
+            for (int i = 1; i < count; i++) {
+                assertTrue(state.getCell(i - 1) == cells[i]);
+            }
+            assertTrue(state.getPoints() == instance.getPoints());
+            assertTrue(state.isDead() == instance.isDead());
+            assertTrue(state.getFruit() == Cell.pack(instance.getFruit().getLocation().x,
+                    instance.getFruit().getLocation().y));
+        }
+        assertTrue(instance.getPoints() > 0);
+    }
+    
+    /**
+     * Test of reading a message that has not all arrived, of class RemoteState.
+     */
+    @Test
+    public void testPartialMessage() throws Exception {
+        RemoteState state = new RemoteState();
+        ByteBuffer buffer = ByteBuffer.allocate(Protocol.getStateSize(instance));
+        Protocol.writeState(instance, new int[1], buffer);
+        buffer.flip();
+        
+        buffer.limit(buffer.limit() - 1);
+        assertFalse(state.read(buffer));
+        assertTrue(buffer.position() == 0);
+        buffer.limit(buffer.capacity());
+        assertTrue(state.read(buffer));
+        assertTrue(state.getWidth() == 30);
+        assertTrue(state.getCellCount() == 1);
+    }
+}
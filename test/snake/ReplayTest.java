@@ -0,0 +1,156 @@
+package snake;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Test class for Replay
+ * 
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class ReplayTest {
+    
+    private ReplayRecorder instance;
+    
+    public ReplayTest() throws IOException {
+        File folder = Files.createTempDirectory("replay").toFile();
+        folder.deleteOnExit();
+        instance = new ReplayRecorder(folder);
+    }
+    
+    /**
+     * Records a game played by a GreedyController, like the Board does.
+     * @param inSeed seed of the game
+     * @param inEnd true to record the end of the game
+     * @return the engine after the game
+     * @throws IOException 
+     */
+    private Engine record(long inSeed, boolean inEnd) throws IOException {
+        return record(new Engine(30, 20, inSeed), inEnd);
+    }
+    
+    /**
+     * Records a game played by a GreedyController, like the Board does.
+     * @param inEngine the game to play, just reset
+     * @param inEnd true to record the end of the game
+     * @return the engine after the game
+     * @throws IOException 
+     */
+    private Engine record(Engine inEngine, boolean inEnd) throws IOException {
+        GreedyController controller = new GreedyController();
+        while(!inEngine.isDead() && inEngine.getTicks() < 5000) {
+            long tick = inEngine.getTicks();
+            int direction = controller.decide(inEngine);
+            if(direction != Engine.KEEP_DIRECTION) {
+                instance.turn(tick, direction);
+            }
+            inEngine.step(direction);
+        }
+        if(inEnd) {
+            instance.end(inEngine.getTicks(), inEngine.getPoints());
+        } else {
+            instance.close();
+        }
+        return inEngine;
+    }
+
+    /**
+     * Test of read and verify methods, of class Replay.
+     */
+    @Test
+    public void testVerify() throws IOException {
+        File file = instance.start(7, 30, 20);
+        Engine engine = record(7, true);
+        file.deleteOnExit();
+        
+        Replay replay = Replay.read(file);
+        assertTrue(replay.isComplete());
+        assertTrue(replay.getSeed() == 7);
+        assertTrue(replay.getPoints() == engine.getPoints());
+        assertTrue(replay.getLength() == engine.getTicks());
+        assertTrue(replay.getTurnCount() > 0);
+        assertTrue(replay.verify());
+        
+        // the same replay plays the same game again
+        Engine played = replay.play();
+        assertTrue(played.getPoints() == engine.getPoints());
+        assertTrue(played.getSnake().getLocation().equals(engine.getSnake().getLocation()));
+    }
+    
+    /**
+     * Test of reading a replay that was cut off, of class Replay.
+     */
+    @Test
+    public void testReadCutOff() throws IOException {
+        File file = instance.start(11, 30, 20);
+        record(11, false);
+        file.deleteOnExit();
+        
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 1);
+        }
+        
+        Replay replay = Replay.read(file);
+        assertFalse(replay.isComplete());
+        assertFalse(replay.verify());
+        assertTrue(replay.getLength() > 0);
+    }
+    
+    /**
+     * Test of read and verify methods with files of older versions, of class Replay.
+     */
+    @Test
+    public void testOlderVersions() throws IOException {
+        File file = instance.start(7, 30, 20);
+        file.deleteOnExit();
+        Engine engine = record(new Engine(30, 20, 7, 0, true), true);
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        
+        // version 2 as it was written, with free tiles picked from a list
+        bytes[4] = 2;
+        Files.write(file.toPath(), bytes);
+        Replay replay = Replay.read(file);
+        assertTrue(replay.getVersion() == 2);
+        assertTrue(replay.getPoints() == engine.getPoints());
+        assertTrue(replay.verify());
+        
+        // the same turns end another way when free tiles are picked by rank
+        bytes[4] = 3;
+        Files.write(file.toPath(), bytes);
+        assertFalse(Replay.read(file).verify());
+        
+        // version 1 has no items in the header
+        byte[] older = new byte[bytes.length - 2];
+        System.arraycopy(bytes, 0, older, 0, 17);
+        System.arraycopy(bytes, 19, older, 17, bytes.length - 19);
+        older[4] = 1;
+        Files.write(file.toPath(), older);
+        replay = Replay.read(file);
+        assertTrue(replay.getVersion() == 1);
+        assertTrue(replay.getItems() == 0);
+        assertTrue(replay.verify());
+    }
+    
+    /**
+     * Test of turn method, of class ReplayRecorder, the turns are in the file before the game ends.
+     */
+    @Test
+    public void testTurnFlushed() throws IOException {
+        File file = instance.start(13, 30, 20);
+        file.deleteOnExit();
+        instance.turn(4, Snake.MOVE_UP);
+        instance.turn(9, Snake.MOVE_LEFT);
+        
+        // read while the recorder still has the file open
+        Replay replay = Replay.read(file);
+        assertFalse(replay.isComplete());
+        assertTrue(replay.getTurnCount() == 2);
+        assertTrue(replay.getLength() == 9);
+        instance.close();
+    }
+}
@@ -0,0 +1,51 @@
+package snake;
+
+import java.awt.Point;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Test class for RewindBuffer
+ * 
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class RewindBufferTest {
+    
+    private RewindBuffer instance;
+    
+    public RewindBufferTest() {
+        instance = new RewindBuffer(10);
+    }
+
+    /**
+     * Test of save and rewind methods, of class RewindBuffer.
+     */
+    @Test
+    public void testRewind() {
+        Engine engine = new Engine(30, 20, 42);
+        GreedyController controller = new GreedyController();
+        Point[] heads = new Point[50];
+        for (int i = 0; i < 50; i++) {
+            instance.save(engine);
+            heads[i] = new Point(engine.getSnake().getLocation());
+            engine.step(controller.decide(engine));
+        }
+        
+        // only the last ten snapshots are kept
+        assertTrue(instance.size() == 10);
+        assertTrue(instance.getTicks(0) == 49);
+        assertFalse(instance.rewind(engine, 10));
+        
+        assertTrue(instance.rewind(engine, 3));
+        assertTrue(engine.getTicks() == 46);
+        assertEquals(heads[46], engine.getSnake().getLocation());
+        assertTrue(instance.size() == 7);
+        
+        assertTrue(instance.rewind(engine, 0));
+        assertTrue(engine.getTicks() == 46);
+        
+        instance.clear();
+        assertFalse(instance.rewind(engine, 0));
+    }
+}
@@ -0,0 +1,192 @@
+package snake;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Test class for SessionHost
+ *
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class SessionHostTest {
+
+    private SessionHost instance;
+
+    public SessionHostTest() {
+        instance = new SessionHost(30, 20, 1, 2, 10, 50);
+    }
+
+    /**
+     * Steps the host a number of times.
+     * @param inTicks number of steps
+     */
+    private void tick(int inTicks) {
+        for (int i = 0; i < inTicks; i++) {
+            instance.tick();
+        }
+    }
+
+    /**
+     * Test of open method, of class SessionHost.
+     */
+    @Test
+    public void testOpen() {
+        SessionHost.Session first = instance.open();
+        SessionHost.Session second = instance.open();
+        SessionHost.Session third = instance.open();
+        tick(1);
+        assertTrue(instance.getSessionCount() == 3);
+        assertTrue(instance.getActiveCount() == 0);
+        assertTrue(first.isParked());
+        assertTrue(first.getSnapshotSize() == 0);
+
+        // the games begin with the first turn
+        first.turn(Snake.MOVE_UP);
+        second.turn(Snake.MOVE_DOWN);
+        tick(1);
+        assertTrue(instance.getActiveCount() == 2);
+        assertTrue(first.getTicks() == 1);
+        assertTrue(second.getTicks() == 1);
+        assertTrue(third.getTicks() == 0);
+        assertFalse(first.isParked());
+        assertTrue(third.isParked());
+    }
+
+    /**
+     * Test of parking idle games, of class SessionHost.
+     */
+    @Test
+    public void testPark() {
+        SessionHost.Session session = instance.open();
+        Engine expected = new Engine(30, 20, 1);
+        session.turn(Snake.MOVE_DOWN);
+        tick(30);
+        assertTrue(session.isParked());
+        assertTrue(session.getSnapshotSize() > 0);
+        assertTrue(session.getTicks() == 11);
+        assertTrue(instance.getActiveCount() == 0);
+        assertTrue(instance.getSessionCount() == 1);
+
+        // a turn wakes the game where it was
+        expected.step(Snake.MOVE_DOWN);
+        for (int i = 0; i < 10; i++) {
+            expected.step();
+        }
+        session.turn(Snake.MOVE_LEFT);
+        expected.step(Snake.MOVE_LEFT);
+        tick(1);
+        assertFalse(session.isParked());
+        assertTrue(session.getTicks() == expected.getTicks());
+        assertTrue(session.getPoints() == expected.getPoints());
+        assertTrue(instance.getActiveCount() == 1);
+
+        // a ping wakes the game too
+        tick(20);
+        assertTrue(session.isParked());
+        session.ping();
+        tick(1);
+        assertFalse(session.isParked());
+        assertTrue(session.getTicks() == expected.getTicks() + 11);
+    }
+
+    /**
+     * Test of ping method, of class SessionHost.
+     */
+    @Test
+    public void testPing() {
+        SessionHost.Session pinging = instance.open();
+        SessionHost.Session opened = instance.open();
+
+        // a game going straight has no turns but is not idle
+        pinging.turn(Snake.MOVE_DOWN);
+        for (int i = 0; i < 100; i++) {
+            pinging.ping();
+            opened.ping();
+            tick(1);
+        }
+        assertFalse(pinging.isParked());
+        assertFalse(pinging.isClosed());
+        assertTrue(pinging.getTicks() == 100);
+
+        // a ping does not begin a game
+        assertTrue(opened.isParked());
+        assertTrue(opened.getTicks() == 0);
+        assertFalse(opened.isClosed());
+        assertTrue(instance.getActiveCount() == 1);
+    }
+
+    /**
+     * Test of closing sessions, of class SessionHost.
+     */
+    @Test
+    public void testClose() {
+        SessionHost.Session closed = instance.open();
+        SessionHost.Session idle = instance.open();
+        SessionHost.Session playing = instance.open();
+        tick(1);
+        closed.close();
+        tick(1);
+        assertTrue(instance.getSessionCount() == 2);
+
+        // only the session that keeps turning stays open
+        int[] directions = {Snake.MOVE_UP, Snake.MOVE_RIGHT};
+        for (int i = 0; i < 60; i++) {
+            playing.turn(directions[i % 2]);
+            tick(1);
+        }
+        assertTrue(idle.isClosed());
+        assertFalse(playing.isClosed());
+        assertTrue(instance.getSessionCount() == 1);
+    }
+
+    /**
+     * Test of timing out parked sessions, of class SessionHost.
+     */
+    @Test
+    public void testTimeout() {
+        SessionHost.Session[] sessions = new SessionHost.Session[1000];
+        for (int i = 0; i < sessions.length; i++) {
+            sessions[i] = instance.open();
+        }
+        
+        // taken in on the first step, closed 50 steps after it
+        tick(50);
+        assertTrue(instance.getSessionCount() == 1000);
+        sessions[0].ping();
+        tick(1);
+        assertTrue(instance.getSessionCount() == 1);
+        assertTrue(sessions[1].isClosed());
+        assertFalse(sessions[0].isClosed());
+        
+        // a ping puts off the timeout of a game that has not begun
+        tick(49);
+        assertFalse(sessions[0].isClosed());
+        tick(1);
+        assertTrue(sessions[0].isClosed());
+        assertTrue(instance.getSessionCount() == 0);
+    }
+    
+    /**
+     * Test of start and stop methods, of class SessionHost.
+     */
+    @Test
+    public void testStart() throws InterruptedException {
+        SessionHost.Session session = instance.open();
+        session.turn(Snake.MOVE_UP);
+        instance.start();
+        Thread.sleep(300);
+        instance.stop();
+        assertTrue(session.getTicks() > 0);
+        assertTrue(instance.getTickTimes().getCount() > 0);
+        assertTrue(instance.getSessionCount() == 1);
+    }
+
+    /**
+     * Test of main method with an option without a value, of class SessionHost.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingValue() throws InterruptedException {
+        SessionHost.main(new String[] {"--sessions", "10", "--seconds"});
+    }
+}
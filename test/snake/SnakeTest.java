@@ -0,0 +1,120 @@
+package snake;
+
+import java.util.Arrays;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Test class for Snake
+ *
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class SnakeTest {
+
+    private Snake instance;
+
+    public SnakeTest() {
+        instance = new Snake(5, 5, Snake.MOVE_RIGHT);
+    }
+
+    /**
+     * Moves the snake a number of times.
+     * @param inMoves number of moves
+     */
+    private void move(int inMoves) {
+        for (int i = 0; i < inMoves; i++) {
+            assertTrue(instance.update());
+        }
+    }
+
+    /**
+     * Test of update method when the tail wraps around its buffer, of class Snake.
+     */
+    @Test
+    public void testWrapAround() {
+        // the buffer holds 3 tiles, the fifth move wraps twice
+        move(5);
+        assertTrue(instance.getTailLength() == 3);
+        assertTrue(instance.getTailCell(0) == Cell.pack(7, 5));
+        assertTrue(instance.getTailCell(1) == Cell.pack(8, 5));
+        assertTrue(instance.getTailCell(2) == Cell.pack(9, 5));
+        assertTrue(instance.getLocation().x == 10);
+    }
+
+    /**
+     * Test of grow method while the tail wraps around its buffer, of class Snake.
+     */
+    @Test
+    public void testGrowWrapped() {
+        move(4);
+        instance.grow();
+        instance.grow();
+        instance.grow();
+        assertTrue(instance.getLength() == 6);
+
+        // the tail keeps its order in the larger buffer
+        assertTrue(instance.getTailLength() == 3);
+        assertTrue(instance.getTailCell(0) == Cell.pack(6, 5));
+        assertTrue(instance.getTailCell(2) == Cell.pack(8, 5));
+        move(3);
+        assertTrue(instance.getTailLength() == 6);
+        for (int i = 0; i < 6; i++) {
+            assertTrue(instance.getTailCell(i) == Cell.pack(6 + i, 5));
+        }
+        move(1);
+        assertTrue(instance.getTailCell(0) == Cell.pack(7, 5));
+        assertTrue(instance.getTailCell(5) == Cell.pack(12, 5));
+    }
+
+    /**
+     * Test of getVacatedCell method, of class Snake.
+     */
+    @Test
+    public void testVacatedCell() {
+        // the tail grows to its length before the end leaves a tile
+        move(3);
+        assertTrue(instance.getVacatedCell() == Cell.NONE);
+        move(1);
+        assertTrue(instance.getVacatedCell() == Cell.pack(5, 5));
+        instance.grow();
+        move(1);
+        assertTrue(instance.getVacatedCell() == Cell.NONE);
+        move(1);
+        assertTrue(instance.getVacatedCell() == Cell.pack(6, 5));
+
+        // a registered snake frees the vacated tile in the grid
+        OccupancyGrid grid = new OccupancyGrid(30, 20);
+        instance.register(grid);
+        assertFalse(grid.isFree(7, 5));
+        move(1);
+        assertTrue(instance.getVacatedCell() == Cell.pack(7, 5));
+        assertTrue(grid.isFree(7, 5));
+        assertFalse(grid.isFree(12, 5));
+    }
+
+    /**
+     * Test of getCells and getCellCount methods, of class Snake.
+     */
+    @Test
+    public void testGetCells() {
+        int[] cells = new int[8];
+        assertTrue(instance.getCellCount() == 1);
+        assertTrue(instance.getCells(cells) == 1);
+        assertTrue(cells[0] == Cell.pack(5, 5));
+
+        // the tail is not wrapped yet, one copy
+        move(3);
+        assertTrue(instance.getCells(cells) == instance.getCellCount());
+        assertArrayEquals(new int[] {Cell.pack(8, 5), Cell.pack(5, 5), Cell.pack(6, 5), Cell.pack(7, 5)},
+                Arrays.copyOf(cells, 4));
+
+        // the tail wraps, the second copy starts at the front of the buffer
+        move(2);
+        assertTrue(instance.getCellCount() == 4);
+        assertTrue(instance.getCells(cells) == 4);
+        assertArrayEquals(new int[] {Cell.pack(10, 5), Cell.pack(7, 5), Cell.pack(8, 5), Cell.pack(9, 5)},
+                Arrays.copyOf(cells, 4));
+        assertTrue(instance.getLocations().size() == 4);
+    }
+}
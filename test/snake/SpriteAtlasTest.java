@@ -0,0 +1,53 @@
+package snake;
+
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Test class for SpriteAtlas
+ * 
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class SpriteAtlasTest {
+    
+    private SpriteAtlas instance;
+    private GraphicsConfiguration mConfiguration;
+    
+    public SpriteAtlasTest() {
+        instance = SpriteAtlas.load();
+        mConfiguration = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB).createGraphics().getDeviceConfiguration();
+    }
+
+    /**
+     * Test of getSprites method, of class SpriteAtlas.
+     */
+    @Test
+    public void testGetSprites() {
+        assertTrue(instance.getCount() == 5);
+        
+        Image[] sprites = instance.getSprites(mConfiguration, 40);
+        assertTrue(sprites.length == 5);
+        assertTrue(sprites[SpriteAtlas.HEAD].getWidth(null) == 40);
+        assertSame(sprites, instance.getSprites(mConfiguration, 40));
+        
+        // another size replaces the scaled sprites
+        Image[] smaller = instance.getSprites(mConfiguration, 10);
+        assertTrue(sprites != smaller);
+        assertTrue(smaller[SpriteAtlas.FOOD].getHeight(null) == 10);
+    }
+    
+    /**
+     * Test of createBackground method, of class SpriteAtlas.
+     */
+    @Test
+    public void testCreateBackground() {
+        BufferedImage background = instance.createBackground(mConfiguration, 20, 3, 2);
+        assertTrue(background.getWidth() == 60);
+        assertTrue(background.getHeight() == 40);
+        assertTrue(SpriteAtlas.fitTileSize(800, 500, 40, 30) == 16);
+    }
+}
@@ -0,0 +1,79 @@
+package snake;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Test class for TimerWheel
+ *
+ * @author Christopher Lindblom
+ * @version 2013-01-12
+ */
+public class TimerWheelTest {
+
+    private TimerWheel instance;
+    private int[] expired;
+
+    public TimerWheelTest() {
+        instance = new TimerWheel(8, 4);
+        expired = new int[4];
+    }
+
+    /**
+     * Test of schedule and expire methods, of class TimerWheel.
+     */
+    @Test
+    public void testExpire() {
+        instance.schedule(0, 3);
+        instance.schedule(1, 3);
+        instance.schedule(2, 5);
+        assertTrue(instance.expire(2, expired) == 0);
+        assertTrue(instance.expire(3, expired) == 2);
+        assertTrue(expired[0] + expired[1] == 1);
+        assertFalse(instance.isScheduled(0));
+        assertTrue(instance.isScheduled(2));
+        assertTrue(instance.expire(5, expired) == 1);
+        assertTrue(expired[0] == 2);
+    }
+
+    /**
+     * Test of expire method for deadlines further away than the slots, of class TimerWheel.
+     */
+    @Test
+    public void testExpireLater() {
+        // the wheel has 8 slots, so 3 and 19 share one
+        instance.schedule(0, 19);
+        instance.schedule(1, 3);
+        assertTrue(instance.expire(3, expired) == 1);
+        assertTrue(expired[0] == 1);
+        assertTrue(instance.expire(11, expired) == 0);
+        assertTrue(instance.isScheduled(0));
+        assertTrue(instance.expire(19, expired) == 1);
+        assertTrue(expired[0] == 0);
+    }
+
+    /**
+     * Test of cancel method, of class TimerWheel.
+     */
+    @Test
+    public void testCancel() {
+        instance.schedule(0, 4);
+        instance.schedule(1, 4);
+        instance.schedule(2, 4);
+        instance.cancel(1);
+        instance.cancel(1);
+        assertFalse(instance.isScheduled(1));
+        assertTrue(instance.expire(4, expired) == 2);
+
+        // scheduling again moves the timer
+        instance.schedule(3, 6);
+        instance.schedule(3, 7);
+        assertTrue(instance.getDeadline(3) == 7);
+        assertTrue(instance.expire(6, expired) == 0);
+        assertTrue(instance.expire(7, expired) == 1);
+
+        instance.schedule(0, 9);
+        instance.clear();
+        assertTrue(instance.expire(9, expired) == 0);
+    }
+}